@@ -0,0 +1,11 @@
+package com.levelup.backend.archive;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Orden tal como queda en el archivo frío, con sus items
+public record ArchivedOrder(int id, int userId, String status, double total, LocalDateTime createdAt,
+                            List<Item> items) {
+
+    public record Item(int id, int productId, int quantity, double price) {}
+}
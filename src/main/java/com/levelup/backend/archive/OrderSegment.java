@@ -0,0 +1,178 @@
+package com.levelup.backend.archive;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Segmento inmutable del archivo de órdenes. En memoria solo se mantiene el
+ * índice disperso de bloques (rango de ids y posición de cada bloque); el
+ * índice por usuario se consulta en disco con búsqueda binaria. Buscar una
+ * orden lee y descomprime un único bloque.
+ */
+public final class OrderSegment {
+
+    private final Path path;
+    private final long sequence;
+    private final int[] firstIds;
+    private final int[] lastIds;
+    private final long[] offsets;
+    private final int[] lengths;
+    private final long userIndexOffset;
+    private final int userEntries;
+    private final int orderCount;
+    private final LocalDateTime oldestCreatedAt;
+    private final LocalDateTime newestCreatedAt;
+
+    private OrderSegment(Path path, long sequence, int[] firstIds, int[] lastIds, long[] offsets, int[] lengths,
+                         long userIndexOffset, int userEntries, int orderCount, LocalDateTime oldestCreatedAt,
+                         LocalDateTime newestCreatedAt) {
+        this.path = path;
+        this.sequence = sequence;
+        this.firstIds = firstIds;
+        this.lastIds = lastIds;
+        this.offsets = offsets;
+        this.lengths = lengths;
+        this.userIndexOffset = userIndexOffset;
+        this.userEntries = userEntries;
+        this.orderCount = orderCount;
+        this.oldestCreatedAt = oldestCreatedAt;
+        this.newestCreatedAt = newestCreatedAt;
+    }
+
+    public static OrderSegment open(Path path, long sequence) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "r")) {
+            long length = file.length();
+            if (length < SegmentFormat.TRAILER_SIZE) {
+                throw new IOException("Segmento incompleto: " + path);
+            }
+            file.seek(length - SegmentFormat.TRAILER_SIZE);
+            long blockIndexOffset = file.readLong();
+            long userIndexOffset = file.readLong();
+            LocalDateTime oldest = SegmentFormat.fromMillis(file.readLong());
+            LocalDateTime newest = SegmentFormat.fromMillis(file.readLong());
+            int orderCount = file.readInt();
+            if (file.readInt() != SegmentFormat.MAGIC) {
+                throw new IOException("Segmento inválido: " + path);
+            }
+            file.seek(blockIndexOffset);
+            int blocks = file.readInt();
+            int[] firstIds = new int[blocks];
+            int[] lastIds = new int[blocks];
+            long[] offsets = new long[blocks];
+            int[] lengths = new int[blocks];
+            for (int i = 0; i < blocks; i++) {
+                firstIds[i] = file.readInt();
+                lastIds[i] = file.readInt();
+                offsets[i] = file.readLong();
+                lengths[i] = file.readInt();
+            }
+            file.seek(userIndexOffset);
+            int userEntries = file.readInt();
+            return new OrderSegment(path, sequence, firstIds, lastIds, offsets, lengths,
+                    userIndexOffset + 4, userEntries, orderCount, oldest, newest);
+        }
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public int getOrderCount() {
+        return orderCount;
+    }
+
+    public LocalDateTime getOldestCreatedAt() {
+        return oldestCreatedAt;
+    }
+
+    public LocalDateTime getNewestCreatedAt() {
+        return newestCreatedAt;
+    }
+
+    public int getBlockCount() {
+        return firstIds.length;
+    }
+
+    public ArchivedOrder find(int id) throws IOException {
+        if (firstIds.length == 0 || id < firstIds[0] || id > lastIds[lastIds.length - 1]) {
+            return null;
+        }
+        // Último bloque cuyo primer id es <= id
+        int index = Arrays.binarySearch(firstIds, id);
+        int block = index >= 0 ? index : -index - 2;
+        if (block < 0 || id > lastIds[block]) {
+            return null;
+        }
+        for (ArchivedOrder order : readBlock(block)) {
+            if (order.id() == id) {
+                return order;
+            }
+        }
+        return null;
+    }
+
+    public List<ArchivedOrder> findByUser(int userId) throws IOException {
+        List<Integer> blocks = new ArrayList<>();
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "r")) {
+            int low = 0;
+            int high = userEntries;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                file.seek(userIndexOffset + (long) mid * SegmentFormat.USER_ENTRY_SIZE);
+                if (file.readInt() < userId) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            file.seek(userIndexOffset + (long) low * SegmentFormat.USER_ENTRY_SIZE);
+            for (int i = low; i < userEntries; i++) {
+                if (file.readInt() != userId) {
+                    break;
+                }
+                blocks.add(file.readInt());
+            }
+        }
+        List<ArchivedOrder> orders = new ArrayList<>();
+        for (int block : blocks) {
+            for (ArchivedOrder order : readBlock(block)) {
+                if (order.userId() == userId) {
+                    orders.add(order);
+                }
+            }
+        }
+        return orders;
+    }
+
+    public List<ArchivedOrder> readBlock(int block) throws IOException {
+        byte[] compressed = new byte[lengths[block]];
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "r")) {
+            file.seek(offsets[block]);
+            file.readFully(compressed);
+        }
+        List<ArchivedOrder> orders = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new GZIPInputStream(new ByteArrayInputStream(compressed)))) {
+            while (true) {
+                try {
+                    orders.add(SegmentFormat.readOrder(in));
+                } catch (EOFException e) {
+                    break;
+                }
+            }
+        }
+        return orders;
+    }
+}
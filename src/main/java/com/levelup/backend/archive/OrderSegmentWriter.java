@@ -0,0 +1,171 @@
+package com.levelup.backend.archive;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Escribe un segmento nuevo en un archivo temporal. Solo guarda en memoria el
+ * bloque en curso y los índices (unos pocos bytes por orden), así que el uso
+ * de memoria está acotado por el tamaño máximo del segmento. finish sincroniza
+ * el archivo y lo renombra de forma atómica: un segmento visible está completo.
+ */
+public final class OrderSegmentWriter implements Closeable {
+
+    private final Path tempPath;
+    private final FileChannel channel;
+    private final DataOutputStream file;
+    private final int blockSize;
+
+    private ByteArrayOutputStream blockBuffer = new ByteArrayOutputStream();
+    private DataOutputStream block;
+    private int blockOrders;
+    private int blockFirstId;
+    private int blockLastId;
+    private long position;
+    private long minCreatedAt = Long.MAX_VALUE;
+    private long maxCreatedAt = Long.MIN_VALUE;
+
+    private int[] blockFirstIds = new int[64];
+    private int[] blockLastIds = new int[64];
+    private long[] blockOffsets = new long[64];
+    private int[] blockLengths = new int[64];
+    private int blocks;
+
+    // (userId << 32 | bloque) de cada orden; se ordena al terminar
+    private long[] userEntries = new long[1024];
+    private int userCount;
+
+    private int lastId;
+    private int count;
+
+    public OrderSegmentWriter(Path tempPath, int blockSize) throws IOException {
+        this.tempPath = tempPath;
+        this.blockSize = blockSize;
+        this.channel = FileChannel.open(tempPath, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+        this.file = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024));
+        this.block = new DataOutputStream(blockBuffer);
+    }
+
+    // Las órdenes deben llegar con id creciente
+    public void append(ArchivedOrder order) throws IOException {
+        if (count > 0 && order.id() <= lastId) {
+            throw new IllegalArgumentException("Las órdenes deben archivarse en orden de id: " + order.id());
+        }
+        if (blockOrders == 0) {
+            blockFirstId = order.id();
+        }
+        SegmentFormat.writeOrder(block, order);
+        blockLastId = order.id();
+        blockOrders++;
+        // Rango de fechas en milisegundos, redondeado hacia afuera
+        long createdAt = SegmentFormat.toMillis(order.createdAt());
+        minCreatedAt = Math.min(minCreatedAt, createdAt);
+        maxCreatedAt = Math.max(maxCreatedAt, createdAt + (order.createdAt().getNano() % 1_000_000 != 0 ? 1 : 0));
+
+        lastId = order.id();
+        count++;
+        if (userCount == userEntries.length) {
+            userEntries = Arrays.copyOf(userEntries, userCount * 2);
+        }
+        userEntries[userCount++] = ((long) order.userId() << 32) | blocks;
+
+        if (blockOrders == blockSize) {
+            flushBlock();
+        }
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public void finish(Path target) throws IOException {
+        if (blockOrders > 0) {
+            flushBlock();
+        }
+        long blockIndexOffset = position;
+        file.writeInt(blocks);
+        for (int i = 0; i < blocks; i++) {
+            file.writeInt(blockFirstIds[i]);
+            file.writeInt(blockLastIds[i]);
+            file.writeLong(blockOffsets[i]);
+            file.writeInt(blockLengths[i]);
+        }
+        long userIndexOffset = blockIndexOffset + 4 + (long) blocks * SegmentFormat.BLOCK_ENTRY_SIZE;
+
+        long[] sorted = Arrays.copyOf(userEntries, userCount);
+        Arrays.sort(sorted);
+        int unique = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                sorted[unique++] = sorted[i];
+            }
+        }
+        file.writeInt(unique);
+        for (int i = 0; i < unique; i++) {
+            file.writeInt((int) (sorted[i] >>> 32));
+            file.writeInt((int) sorted[i]);
+        }
+        file.writeLong(blockIndexOffset);
+        file.writeLong(userIndexOffset);
+        file.writeLong(count > 0 ? minCreatedAt : 0);
+        file.writeLong(count > 0 ? maxCreatedAt : 0);
+        file.writeInt(count);
+        file.writeInt(SegmentFormat.MAGIC);
+        file.flush();
+        channel.force(true);
+        file.close();
+        Files.move(tempPath, target, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Descarta el segmento a medio escribir
+    public void abort() throws IOException {
+        file.close();
+        Files.deleteIfExists(tempPath);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel.isOpen()) {
+            abort();
+        }
+    }
+
+    private void flushBlock() throws IOException {
+        block.flush();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(blockBuffer.size() / 3 + 64);
+        try (OutputStream gzip = new GZIPOutputStream(compressed)) {
+            blockBuffer.writeTo(gzip);
+        }
+        if (blocks == blockFirstIds.length) {
+            int size = blocks * 2;
+            blockFirstIds = Arrays.copyOf(blockFirstIds, size);
+            blockLastIds = Arrays.copyOf(blockLastIds, size);
+            blockOffsets = Arrays.copyOf(blockOffsets, size);
+            blockLengths = Arrays.copyOf(blockLengths, size);
+        }
+        blockFirstIds[blocks] = blockFirstId;
+        blockLastIds[blocks] = blockLastId;
+        blockOffsets[blocks] = position;
+        blockLengths[blocks] = compressed.size();
+        blocks++;
+        compressed.writeTo(file);
+        position += compressed.size();
+
+        blockBuffer = new ByteArrayOutputStream();
+        block = new DataOutputStream(blockBuffer);
+        blockOrders = 0;
+    }
+}
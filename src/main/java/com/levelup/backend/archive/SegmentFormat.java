@@ -0,0 +1,70 @@
+package com.levelup.backend.archive;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Formato de un segmento del archivo de órdenes:
+ *
+ * <pre>
+ * [bloque 0][bloque 1]...            bloques GZIP con órdenes en orden de id
+ * [int n][n x (firstId, lastId, offset, length)]   índice disperso de bloques
+ * [int m][m x (userId, bloque)]                    índice por usuario, ordenado
+ * [long offsetBloques][long offsetUsuarios][long createdAt mínimo][long createdAt máximo]
+ *     [int órdenes][int MAGIC]          fechas en milisegundos UTC
+ * </pre>
+ */
+final class SegmentFormat {
+
+    static final int MAGIC = 0x4C564F41;
+    static final int TRAILER_SIZE = 8 + 8 + 8 + 8 + 4 + 4;
+    static final int BLOCK_ENTRY_SIZE = 4 + 4 + 8 + 4;
+    static final int USER_ENTRY_SIZE = 4 + 4;
+    static final String EXTENSION = ".seg";
+
+    private SegmentFormat() {}
+
+    static void writeOrder(DataOutput out, ArchivedOrder order) throws IOException {
+        out.writeInt(order.id());
+        out.writeInt(order.userId());
+        out.writeUTF(order.status() != null ? order.status() : "");
+        out.writeDouble(order.total());
+        out.writeLong(order.createdAt().toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(order.createdAt().getNano());
+        out.writeInt(order.items().size());
+        for (ArchivedOrder.Item item : order.items()) {
+            out.writeInt(item.id());
+            out.writeInt(item.productId());
+            out.writeInt(item.quantity());
+            out.writeDouble(item.price());
+        }
+    }
+
+    static long toMillis(LocalDateTime dateTime) {
+        return dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    static LocalDateTime fromMillis(long millis) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000), (int) Math.floorMod(millis, 1000) * 1_000_000,
+                ZoneOffset.UTC);
+    }
+
+    static ArchivedOrder readOrder(DataInput in) throws IOException {
+        int id = in.readInt();
+        int userId = in.readInt();
+        String status = in.readUTF();
+        double total = in.readDouble();
+        LocalDateTime createdAt = LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+        int itemCount = in.readInt();
+        List<ArchivedOrder.Item> items = new ArrayList<>(itemCount);
+        for (int i = 0; i < itemCount; i++) {
+            items.add(new ArchivedOrder.Item(in.readInt(), in.readInt(), in.readInt(), in.readDouble()));
+        }
+        return new ArchivedOrder(id, userId, status, total, createdAt, items);
+    }
+}
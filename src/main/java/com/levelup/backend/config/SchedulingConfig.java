@@ -0,0 +1,10 @@
+package com.levelup.backend.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Hilos del scheduler en spring.task.scheduling.pool.size (application.properties)
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
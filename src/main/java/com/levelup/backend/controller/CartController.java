@@ -1,19 +1,23 @@
 package com.levelup.backend.controller;
 
+import com.levelup.backend.dto.CartBatchRequest;
 import com.levelup.backend.dto.CartDTO;
-import com.levelup.backend.model.Cart;
-import com.levelup.backend.model.CartId;
-import com.levelup.backend.model.User;
-import com.levelup.backend.model.Product;
-import com.levelup.backend.repository.CartRepository;
-import com.levelup.backend.repository.UserRepository;
-import com.levelup.backend.repository.ProductRepository;
+import com.levelup.backend.dto.CartOperation;
+import com.levelup.backend.dto.CartStoreStatsDTO;
+import com.levelup.backend.dto.OrderDTO;
+import com.levelup.backend.service.CartStore;
+import com.levelup.backend.service.IdempotencyConflictException;
+import com.levelup.backend.service.IdempotencyService;
+import com.levelup.backend.service.OrderService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/cart")
@@ -21,89 +25,140 @@ import java.util.stream.Collectors;
 public class CartController {
 
     @Autowired
-    private CartRepository cartRepository;
+    private CartStore cartStore;
 
     @Autowired
-    private UserRepository userRepository;
+    private IdempotencyService idempotencyService;
 
     @Autowired
-    private ProductRepository productRepository;
+    private OrderService orderService;
 
-    // Obtener carrito de un usuario
+    @Value("${levelup.cart.batch.max-operations:500}")
+    private int batchMaxOperations;
+
+    // Obtener carrito de un usuario (desde memoria si está activo)
     @GetMapping("/{userId}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public ResponseEntity<List<CartDTO>> getCartByUser(@PathVariable Integer userId) {
-        List<CartDTO> cart = cartRepository.findByUser_Id(userId).stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(cart);
+        return ResponseEntity.ok(cartStore.getCart(userId));
+    }
+
+    // Estado del carrito en memoria: carritos activos, pendientes de escribir y filas escritas
+    @GetMapping("/store/stats")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ResponseEntity<CartStoreStatsDTO> getStoreStats() {
+        return ResponseEntity.ok(cartStore.stats());
     }
 
-    // Agregar producto al carrito
+    // Agregar producto al carrito. Con Idempotency-Key, un reintento no vuelve a sumar la cantidad
     @PostMapping
-    public ResponseEntity<CartDTO> addToCart(@RequestBody CartDTO cartDTO) {
-        User user = userRepository.findById(cartDTO.getUserId())
-                .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
-        Product product = productRepository.findById(cartDTO.getProductId())
-                .orElseThrow(() -> new RuntimeException("Producto no encontrado"));
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ResponseEntity<CartDTO> addToCart(@RequestBody CartDTO cartDTO,
+                                             @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        if (cartDTO.getUserId() == null || cartDTO.getProductId() == null || cartDTO.getQuantity() == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return idempotencyService.execute("POST /api/cart", idempotencyKey, cartDTO, CartDTO.class, () ->
+                    ResponseEntity.ok(cartStore.add(cartDTO.getUserId(), cartDTO.getProductId(), cartDTO.getQuantity())));
+        } catch (IdempotencyConflictException e) {
+            return ResponseEntity.status(e.isInProgress() ? HttpStatus.CONFLICT : HttpStatus.UNPROCESSABLE_ENTITY).build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
 
-        CartId cartId = new CartId(cartDTO.getUserId(), cartDTO.getProductId());
-        Cart cart = cartRepository.findById(cartId)
-                .map(existingCart -> {
-                    existingCart.setQuantity(existingCart.getQuantity() + cartDTO.getQuantity());
-                    return existingCart;
-                })
-                .orElseGet(() -> new Cart(user, product, cartDTO.getQuantity()));
+    // Checkout en una sola petición: convierte el carrito en orden con los precios actuales y lo vacía.
+    // Con Idempotency-Key, un reintento devuelve la misma orden en vez de fallar por carrito vacío.
+    // Sin transacción propia: la clave se reclama antes y el checkout abre la suya
+    @PostMapping("/{userId}/checkout")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ResponseEntity<OrderDTO> checkout(@PathVariable Integer userId,
+                                             @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        try {
+            return idempotencyService.execute("POST /api/cart/checkout", idempotencyKey, Map.of("userId", userId),
+                    OrderDTO.class, () -> {
+                        try {
+                            return ResponseEntity.ok(orderService.checkoutCart(userId));
+                        } catch (IllegalArgumentException e) {
+                            return ResponseEntity.badRequest().build();
+                        }
+                    });
+        } catch (IdempotencyConflictException e) {
+            return ResponseEntity.status(e.isInProgress() ? HttpStatus.CONFLICT : HttpStatus.UNPROCESSABLE_ENTITY).build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (IllegalStateException e) {
+            // El carrito sigue bloqueado por otro checkout
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
 
-        Cart savedCart = cartRepository.save(cart);
-        return ResponseEntity.ok(convertToDTO(savedCart));
+    // Sincronización en lote (p. ej. un carrito armado sin conexión): aplica en orden todas las
+    // operaciones add/set/remove o ninguna, y devuelve el carrito resultante
+    @PostMapping("/{userId}/batch")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ResponseEntity<CartDTO[]> applyBatch(@PathVariable Integer userId, @RequestBody CartBatchRequest batchRequest,
+                                                @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        List<CartOperation> operations = batchRequest.getOperations();
+        if (operations == null || operations.isEmpty() || operations.size() > batchMaxOperations) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            // La lista (usuario, operaciones) se serializa siempre igual para comparar reintentos
+            return idempotencyService.execute("POST /api/cart/batch", idempotencyKey, List.of(userId, operations),
+                    CartDTO[].class, () -> ResponseEntity.ok(cartStore.applyBatch(userId, operations).toArray(new CartDTO[0])));
+        } catch (IdempotencyConflictException e) {
+            return ResponseEntity.status(e.isInProgress() ? HttpStatus.CONFLICT : HttpStatus.UNPROCESSABLE_ENTITY).build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
     }
 
-    // Actualizar cantidad de un producto en el carrito
+    // Actualizar cantidad de un producto en el carrito (0 lo quita)
     @PutMapping("/{userId}/{productId}")
-    public ResponseEntity<CartDTO> updateCartItem(@PathVariable Integer userId, 
-                                                   @PathVariable Integer productId, 
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ResponseEntity<CartDTO> updateCartItem(@PathVariable Integer userId,
+                                                   @PathVariable Integer productId,
                                                    @RequestBody CartDTO cartDTO) {
-        CartId cartId = new CartId(userId, productId);
-        return cartRepository.findById(cartId)
-                .map(cart -> {
-                    cart.setQuantity(cartDTO.getQuantity());
-                    Cart updatedCart = cartRepository.save(cart);
-                    return ResponseEntity.ok(convertToDTO(updatedCart));
-                })
-                .orElse(ResponseEntity.notFound().build());
+        if (cartDTO.getQuantity() == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return cartStore.setQuantity(userId, productId, cartDTO.getQuantity())
+                    .map(ResponseEntity::ok)
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
     }
 
     // Eliminar producto del carrito
     @DeleteMapping("/{userId}/{productId}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public ResponseEntity<Void> removeFromCart(@PathVariable Integer userId, @PathVariable Integer productId) {
-        CartId cartId = new CartId(userId, productId);
-        if (cartRepository.existsById(cartId)) {
-            cartRepository.deleteById(cartId);
-            return ResponseEntity.noContent().build();
+        try {
+            return cartStore.remove(userId, productId)
+                    ? ResponseEntity.noContent().build()
+                    : ResponseEntity.notFound().build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
         }
-        return ResponseEntity.notFound().build();
     }
 
     // Vaciar carrito de un usuario
     @DeleteMapping("/{userId}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public ResponseEntity<Void> clearCart(@PathVariable Integer userId) {
-        List<Cart> userCart = cartRepository.findByUser_Id(userId);
-        cartRepository.deleteAll(userCart);
+        try {
+            cartStore.clear(userId);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
         return ResponseEntity.noContent().build();
     }
-
-    // Convertir Cart a CartDTO
-    private CartDTO convertToDTO(Cart cart) {
-        return new CartDTO(
-                cart.getUser().getId(),
-                cart.getProduct().getId(),
-                cart.getProduct().getTitle(),
-                cart.getProduct().getImage(),
-                cart.getProduct().getPrice(),
-                cart.getProduct().getCurrency(),
-                cart.getQuantity(),
-                cart.getAddedAt(),
-                cart.getUpdatedAt()
-        );
-    }
 }
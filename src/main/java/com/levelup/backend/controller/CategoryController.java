@@ -1,12 +1,21 @@
 package com.levelup.backend.controller;
 
 import com.levelup.backend.dto.CategoryDTO;
+import com.levelup.backend.dto.ChangeStamp;
+import com.levelup.backend.event.CategoryChangedEvent;
 import com.levelup.backend.model.Category;
 import com.levelup.backend.repository.CategoryRepository;
+import com.levelup.backend.repository.ProductRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @RestController
@@ -16,9 +25,21 @@ public class CategoryController {
     @Autowired
     private CategoryRepository categoryRepository;
 
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     // Obtener todas las categorías
     @GetMapping
-    public ResponseEntity<List<CategoryDTO>> getAllCategories() {
+    public ResponseEntity<List<CategoryDTO>> getAllCategories(WebRequest request) {
+        // Validador con count y max(updatedAt): solo se leen las filas si el cliente no tiene la versión actual
+        ChangeStamp stamp = categoryRepository.findChangeStamp();
+        if (request.checkNotModified(HttpCaching.weakTag("categories", stamp.getCount(), stamp.getLastModified()),
+                HttpCaching.epochMillis(stamp.getLastModified()))) {
+            return null;
+        }
         List<CategoryDTO> categories = categoryRepository.findAll().stream()
                 .map(this::convertToDTO)
                 .collect(Collectors.toList());
@@ -27,10 +48,18 @@ public class CategoryController {
 
     // Obtener categoría por ID
     @GetMapping("/{id}")
-    public ResponseEntity<CategoryDTO> getCategoryById(@PathVariable Integer id) {
-        return categoryRepository.findById(id)
-                .map(category -> ResponseEntity.ok(convertToDTO(category)))
-                .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<CategoryDTO> getCategoryById(@PathVariable Integer id, WebRequest request) {
+        Optional<Category> category = categoryRepository.findById(id);
+        if (category.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        // La representación es solo id y nombre: el nombre completo (codificado) identifica la versión
+        String name = category.get().getName();
+        if (request.checkNotModified(HttpCaching.strongTag("category", id,
+                name != null ? URLEncoder.encode(name, StandardCharsets.UTF_8) : ""))) {
+            return null;
+        }
+        return ResponseEntity.ok(convertToDTO(category.get()));
     }
 
     // Crear nueva categoría
@@ -38,6 +67,7 @@ public class CategoryController {
     public ResponseEntity<CategoryDTO> createCategory(@RequestBody CategoryDTO categoryDTO) {
         Category category = convertToEntity(categoryDTO);
         Category savedCategory = categoryRepository.save(category);
+        eventPublisher.publishEvent(new CategoryChangedEvent(savedCategory.getId(), savedCategory.getName()));
         return ResponseEntity.ok(convertToDTO(savedCategory));
     }
 
@@ -48,16 +78,20 @@ public class CategoryController {
                 .map(category -> {
                     category.setName(categoryDTO.getName());
                     Category updatedCategory = categoryRepository.save(category);
+                    eventPublisher.publishEvent(new CategoryChangedEvent(updatedCategory.getId(), updatedCategory.getName()));
                     return ResponseEntity.ok(convertToDTO(updatedCategory));
                 })
                 .orElse(ResponseEntity.notFound().build());
     }
 
-    // Eliminar categoría
+    // Eliminar categoría (y en cascada sus productos; las cachés los quitan tras el commit)
     @DeleteMapping("/{id}")
+    @Transactional
     public ResponseEntity<Void> deleteCategory(@PathVariable Integer id) {
         if (categoryRepository.existsById(id)) {
+            List<Integer> productIds = productRepository.findIdsByCategoryId(id);
             categoryRepository.deleteById(id);
+            eventPublisher.publishEvent(new CategoryChangedEvent(id, null, productIds));
             return ResponseEntity.noContent().build();
         }
         return ResponseEntity.notFound().build();
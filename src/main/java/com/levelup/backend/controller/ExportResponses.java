@@ -0,0 +1,119 @@
+package com.levelup.backend.controller;
+
+import com.levelup.backend.service.OrderExportService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Respuestas de exportación en streaming: validación, cabeceras y límite de exportaciones simultáneas
+final class ExportResponses {
+
+    // Presente si el rango pedido alcanza órdenes archivadas, que la exportación no incluye
+    static final String ARCHIVED_EXCLUDED_HEADER = "X-Archived-Orders-Excluded-Through";
+
+    private ExportResponses() {}
+
+    @FunctionalInterface
+    interface Exporter {
+        void write(OutputStream out, boolean gzip) throws IOException;
+    }
+
+    static ResponseEntity<StreamingResponseBody> stream(OrderExportService exportService, HttpServletRequest request,
+                                                        String name, String format, LocalDate from, LocalDate to,
+                                                        Boolean gzip, int retryAfterSeconds, Exporter exporter) {
+        if (!OrderExportService.isSupportedFormat(format) || (from != null && to != null && from.isAfter(to))) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (!exportService.tryAcquire()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                    .build();
+        }
+        // El lugar se devuelve una sola vez: al terminar el cuerpo o al cerrarse la petición
+        // asíncrona aunque el cuerpo nunca llegue a ejecutarse (cliente desconectado, timeout)
+        AtomicBoolean released = new AtomicBoolean();
+        Runnable release = () -> {
+            if (released.compareAndSet(false, true)) {
+                exportService.release();
+            }
+        };
+        WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(ExportResponses.class.getName(),
+                new CallableProcessingInterceptor() {
+                    @Override
+                    public <T> void afterCompletion(NativeWebRequest webRequest, Callable<T> task) {
+                        release.run();
+                    }
+                });
+
+        boolean compress = !Boolean.FALSE.equals(gzip) && acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(OrderExportService.CSV.equals(format)
+                ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                : MediaType.APPLICATION_NDJSON);
+        headers.setContentDisposition(ContentDisposition.attachment().filename(name + "." + format).build());
+        headers.set(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (compress) {
+            headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        LocalDateTime archivedThrough = exportService.archivedThrough(from);
+        if (archivedThrough != null) {
+            headers.set(ARCHIVED_EXCLUDED_HEADER, archivedThrough.toString());
+        }
+        StreamingResponseBody body = out -> {
+            try {
+                exporter.write(out, compress);
+            } finally {
+                release.run();
+            }
+        };
+        return ResponseEntity.ok().headers(headers).body(body);
+    }
+
+    // gzip se usa solo si el cliente lo acepta (gzip, x-gzip o *) con q > 0
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzipQuality = null;
+        Double anyQuality = null;
+        for (String part : acceptEncoding.split(",")) {
+            String[] tokens = part.split(";");
+            String coding = tokens[0].trim().toLowerCase();
+            double quality = 1.0;
+            for (int i = 1; i < tokens.length; i++) {
+                String parameter = tokens[i].trim();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2));
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                gzipQuality = quality;
+            } else if (coding.equals("*")) {
+                anyQuality = quality;
+            }
+        }
+        if (gzipQuality != null) {
+            return gzipQuality > 0;
+        }
+        return anyQuality != null && anyQuality > 0;
+    }
+}
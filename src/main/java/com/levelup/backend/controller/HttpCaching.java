@@ -0,0 +1,36 @@
+package com.levelup.backend.controller;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+// Utilidades para armar ETag y Last-Modified en las respuestas GET condicionales
+final class HttpCaching {
+
+    private HttpCaching() {}
+
+    // ETag fuerte: la representación cambia si y solo si cambia el recurso
+    static String strongTag(Object... parts) {
+        return "\"" + join(parts) + "\"";
+    }
+
+    // ETag débil: para colecciones, equivalentes aunque no idénticas byte a byte
+    static String weakTag(Object... parts) {
+        return "W/\"" + join(parts) + "\"";
+    }
+
+    // Milisegundos para Last-Modified; -1 si no hay fecha
+    static long epochMillis(LocalDateTime dateTime) {
+        return dateTime != null ? dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : -1;
+    }
+
+    private static String join(Object... parts) {
+        StringBuilder tag = new StringBuilder();
+        for (Object part : parts) {
+            if (tag.length() > 0) {
+                tag.append('-');
+            }
+            tag.append(part instanceof LocalDateTime dateTime ? String.valueOf(epochMillis(dateTime)) : part);
+        }
+        return tag.toString();
+    }
+}
@@ -1,13 +1,35 @@
 package com.levelup.backend.controller;
 
+import com.levelup.backend.dto.ChangeStamp;
+import com.levelup.backend.dto.CursorPageDTO;
 import com.levelup.backend.dto.NewsDTO;
+import com.levelup.backend.dto.NewsFeedItemDTO;
+import com.levelup.backend.dto.NewsSearchHitDTO;
+import com.levelup.backend.dto.NewsVersion;
+import com.levelup.backend.dto.NewsViewsDTO;
+import com.levelup.backend.dto.SearchPageDTO;
+import com.levelup.backend.dto.TrendingNewsDTO;
+import com.levelup.backend.event.NewsChangedEvent;
+import com.levelup.backend.event.NewsDeletedEvent;
 import com.levelup.backend.model.News;
 import com.levelup.backend.repository.NewsRepository;
+import com.levelup.backend.service.KeysetCursor;
+import com.levelup.backend.service.NewsSearchService;
+import com.levelup.backend.service.NewsTrendingService;
+import com.levelup.backend.service.NewsViewCounter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.transaction.annotation.Transactional;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @RestController
@@ -18,9 +40,30 @@ public class NewsController {
     @Autowired
     private NewsRepository newsRepository;
 
+    @Autowired
+    private NewsViewCounter newsViewCounter;
+
+    @Autowired
+    private NewsSearchService newsSearchService;
+
+    @Autowired
+    private NewsTrendingService newsTrendingService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${levelup.news.feed.default-size:20}")
+    private int feedDefaultSize;
+
+    @Value("${levelup.news.feed.max-size:100}")
+    private int feedMaxSize;
+
     // Obtener todas las noticias
     @GetMapping
-    public ResponseEntity<List<NewsDTO>> getAllNews() {
+    public ResponseEntity<List<NewsDTO>> getAllNews(WebRequest request) {
+        if (notModified(request, "all", newsRepository.findChangeStamp())) {
+            return null;
+        }
         List<NewsDTO> news = newsRepository.findAll().stream()
                 .map(this::convertToDTO)
                 .collect(Collectors.toList());
@@ -29,16 +72,72 @@ public class NewsController {
 
     // Obtener solo noticias publicadas
     @GetMapping("/published")
-    public ResponseEntity<List<NewsDTO>> getPublishedNews() {
+    public ResponseEntity<List<NewsDTO>> getPublishedNews(WebRequest request) {
+        if (notModified(request, "published", newsRepository.findPublishedChangeStamp())) {
+            return null;
+        }
         List<NewsDTO> news = newsRepository.findByIsPublishedTrue().stream()
                 .map(this::convertToDTO)
                 .collect(Collectors.toList());
         return ResponseEntity.ok(news);
     }
 
-    // Obtener noticia por ID
+    // Feed de noticias publicadas (solo resumen), paginado por cursor; el contenido se obtiene en /{id}
+    @GetMapping("/feed")
+    public ResponseEntity<CursorPageDTO<NewsFeedItemDTO>> getFeed(@RequestParam(required = false) String category,
+                                                                  @RequestParam(required = false) String cursor,
+                                                                  @RequestParam(required = false) Integer size) {
+        KeysetCursor after;
+        try {
+            after = KeysetCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        int pageSize = size == null || size <= 0 ? feedDefaultSize : Math.min(size, feedMaxSize);
+        // Se pide un elemento extra para saber si hay página siguiente
+        Pageable limit = PageRequest.of(0, pageSize + 1);
+
+        List<NewsFeedItemDTO> items;
+        if (category != null && !category.isBlank()) {
+            items = after == null
+                    ? newsRepository.findFeedByCategory(category, limit)
+                    : newsRepository.findFeedByCategoryAfter(category, after.createdAt(), after.id(), limit);
+        } else {
+            items = after == null
+                    ? newsRepository.findFeed(limit)
+                    : newsRepository.findFeedAfter(after.createdAt(), after.id(), limit);
+        }
+
+        boolean hasNext = items.size() > pageSize;
+        if (hasNext) {
+            items = items.subList(0, pageSize);
+        }
+        String nextCursor = null;
+        if (hasNext) {
+            NewsFeedItemDTO last = items.get(items.size() - 1);
+            nextCursor = new KeysetCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+        return ResponseEntity.ok(new CursorPageDTO<>(items, nextCursor, hasNext, items.size()));
+    }
+
+    // Noticias en tendencia (vistas recientes con decaimiento), generales o por categoría
+    @GetMapping("/trending")
+    public ResponseEntity<List<TrendingNewsDTO>> getTrending(@RequestParam(required = false) String category,
+                                                             @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(newsTrendingService.getTrending(category, limit));
+    }
+
+    // Obtener noticia por ID; el ETag incluye las vistas (persistidas + pendientes), que el flush no refleja en updatedAt
     @GetMapping("/{id}")
-    public ResponseEntity<NewsDTO> getNewsById(@PathVariable Long id) {
+    public ResponseEntity<NewsDTO> getNewsById(@PathVariable Long id, WebRequest request) {
+        Optional<NewsVersion> version = newsRepository.findVersionById(id);
+        if (version.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (request.checkNotModified(HttpCaching.strongTag("news", id, version.get().getUpdatedAt(),
+                newsViewCounter.merge(id, version.get().getViews())))) {
+            return null;
+        }
         return newsRepository.findById(id)
                 .map(news -> ResponseEntity.ok(convertToDTO(news)))
                 .orElse(ResponseEntity.notFound().build());
@@ -46,7 +145,10 @@ public class NewsController {
 
     // Obtener noticias por categoría
     @GetMapping("/category/{category}")
-    public ResponseEntity<List<NewsDTO>> getNewsByCategory(@PathVariable String category) {
+    public ResponseEntity<List<NewsDTO>> getNewsByCategory(@PathVariable String category, WebRequest request) {
+        if (notModified(request, "category-" + category, newsRepository.findChangeStampByCategory(category))) {
+            return null;
+        }
         List<NewsDTO> news = newsRepository.findByCategory(category).stream()
                 .map(this::convertToDTO)
                 .collect(Collectors.toList());
@@ -55,13 +157,30 @@ public class NewsController {
 
     // Obtener noticias publicadas por categoría
     @GetMapping("/category/{category}/published")
-    public ResponseEntity<List<NewsDTO>> getPublishedNewsByCategory(@PathVariable String category) {
+    public ResponseEntity<List<NewsDTO>> getPublishedNewsByCategory(@PathVariable String category,
+                                                                    WebRequest request) {
+        if (notModified(request, "published-" + category,
+                newsRepository.findPublishedChangeStampByCategory(category))) {
+            return null;
+        }
         List<NewsDTO> news = newsRepository.findByCategoryAndIsPublishedTrue(category).stream()
                 .map(this::convertToDTO)
                 .collect(Collectors.toList());
         return ResponseEntity.ok(news);
     }
 
+    // Búsqueda de texto completo con relevancia, recencia y fragmentos resaltados
+    @GetMapping("/search")
+    public ResponseEntity<SearchPageDTO<NewsSearchHitDTO>> searchFullText(@RequestParam String q,
+                                                                          @RequestParam(defaultValue = "0") int page,
+                                                                          @RequestParam(defaultValue = "20") int size,
+                                                                          @RequestParam(defaultValue = "true") boolean publishedOnly) {
+        if (q.isBlank()) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(newsSearchService.search(q, page, size, publishedOnly));
+    }
+
     // Buscar noticias por título
     @GetMapping("/search/{title}")
     public ResponseEntity<List<NewsDTO>> searchNews(@PathVariable String title) {
@@ -76,7 +195,9 @@ public class NewsController {
     public ResponseEntity<NewsDTO> createNews(@RequestBody NewsDTO newsDTO) {
         News news = convertToEntity(newsDTO);
         News savedNews = newsRepository.save(news);
-        return ResponseEntity.ok(convertToDTO(savedNews));
+        NewsDTO savedDTO = convertToDTO(savedNews);
+        eventPublisher.publishEvent(new NewsChangedEvent(savedDTO, true, false));
+        return ResponseEntity.ok(savedDTO);
     }
 
     // Actualizar noticia
@@ -84,6 +205,7 @@ public class NewsController {
     public ResponseEntity<NewsDTO> updateNews(@PathVariable Long id, @RequestBody NewsDTO newsDTO) {
         return newsRepository.findById(id)
                 .map(news -> {
+                    boolean wasPublished = Boolean.TRUE.equals(news.getIsPublished());
                     news.setTitle(newsDTO.getTitle());
                     news.setContent(newsDTO.getContent());
                     news.setSummary(newsDTO.getSummary());
@@ -92,9 +214,16 @@ public class NewsController {
                     news.setAuthor(newsDTO.getAuthor());
                     news.setCategory(newsDTO.getCategory());
                     news.setIsPublished(newsDTO.getIsPublished());
-                    news.setViews(newsDTO.getViews());
+                    // Solo se reemplazan las vistas si el cliente envió un valor distinto al actual
+                    // (persistidas + pendientes); si no, el flush diferido las contaría dos veces
+                    if (newsDTO.getViews() != null
+                            && newsDTO.getViews() != newsViewCounter.merge(news.getId(), news.getViews())) {
+                        news.setViews(newsDTO.getViews());
+                    }
                     News updatedNews = newsRepository.save(news);
-                    return ResponseEntity.ok(convertToDTO(updatedNews));
+                    NewsDTO updatedDTO = convertToDTO(updatedNews);
+                    eventPublisher.publishEvent(new NewsChangedEvent(updatedDTO, false, wasPublished));
+                    return ResponseEntity.ok(updatedDTO);
                 })
                 .orElse(ResponseEntity.notFound().build());
     }
@@ -104,21 +233,31 @@ public class NewsController {
     public ResponseEntity<Void> deleteNews(@PathVariable Long id) {
         if (newsRepository.existsById(id)) {
             newsRepository.deleteById(id);
+            eventPublisher.publishEvent(new NewsDeletedEvent(id));
             return ResponseEntity.noContent().build();
         }
         return ResponseEntity.notFound().build();
     }
 
-    // Incrementar vistas
+    // Incrementar vistas (se acumulan en memoria y se guardan en lote)
     @PostMapping("/{id}/view")
-    public ResponseEntity<NewsDTO> incrementViews(@PathVariable Long id) {
-        return newsRepository.findById(id)
-                .map(news -> {
-                    news.setViews(news.getViews() != null ? news.getViews() + 1 : 1);
-                    News updatedNews = newsRepository.save(news);
-                    return ResponseEntity.ok(convertToDTO(updatedNews));
-                })
-                .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<NewsViewsDTO> incrementViews(@PathVariable Long id) {
+        Optional<Integer> persisted = newsRepository.findViewsById(id);
+        if (persisted.isEmpty() && !newsRepository.existsById(id)) {
+            return ResponseEntity.notFound().build();
+        }
+        newsViewCounter.increment(id);
+        newsTrendingService.recordView(id);
+        return ResponseEntity.ok(new NewsViewsDTO(id, newsViewCounter.merge(id, persisted.orElse(0))));
+    }
+
+    // Responder 304 si la colección no cambió desde la copia del cliente. Las vistas quedan fuera
+    // del validador: la ETag es débil y dos copias que solo difieren en vistas se consideran equivalentes
+    private boolean notModified(WebRequest request, String scope, ChangeStamp stamp) {
+        return request.checkNotModified(
+                HttpCaching.weakTag("news", URLEncoder.encode(scope, StandardCharsets.UTF_8), stamp.getCount(),
+                        stamp.getLastModified()),
+                HttpCaching.epochMillis(stamp.getLastModified()));
     }
 
     // Convertir News a NewsDTO
@@ -132,7 +271,7 @@ public class NewsController {
                 news.getThumbnail(),
                 news.getAuthor(),
                 news.getCategory(),
-                news.getViews(),
+                newsViewCounter.merge(news.getId(), news.getViews()),
                 news.getIsPublished(),
                 news.getCreatedAt(),
                 news.getUpdatedAt()
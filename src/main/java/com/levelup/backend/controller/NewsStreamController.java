@@ -0,0 +1,54 @@
+package com.levelup.backend.controller;
+
+import com.levelup.backend.dto.NewsStreamPollDTO;
+import com.levelup.backend.service.NewsStreamService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+// Sin @Transactional: las conexiones quedan abiertas y no deben retener una transacción
+@RestController
+@RequestMapping("/api/news/stream")
+public class NewsStreamController {
+
+    @Autowired
+    private NewsStreamService newsStreamService;
+
+    @Value("${levelup.news.stream.poll-timeout-ms:25000}")
+    private long defaultPollTimeoutMs;
+
+    @Value("${levelup.news.stream.max-poll-timeout-ms:60000}")
+    private long maxPollTimeoutMs;
+
+    // Suscribirse a las noticias publicadas (SSE); Last-Event-ID reanuda desde el último evento recibido
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> stream(@RequestParam(required = false) String category,
+                                             @RequestParam(required = false) String lastEventId,
+                                             @RequestHeader(value = "Last-Event-ID", required = false) String lastEventIdHeader) {
+        Long resumeFrom;
+        try {
+            String raw = lastEventIdHeader != null ? lastEventIdHeader : lastEventId;
+            resumeFrom = raw == null || raw.isBlank() ? null : Long.valueOf(raw.trim());
+        } catch (NumberFormatException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (!newsStreamService.hasCapacity()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(newsStreamService.subscribe(category, resumeFrom));
+    }
+
+    // Alternativa por consulta larga: responde al llegar un evento posterior a "after" o al vencer el tiempo
+    @GetMapping("/poll")
+    public DeferredResult<NewsStreamPollDTO> poll(@RequestParam(required = false) String category,
+                                                  @RequestParam(required = false) Long after,
+                                                  @RequestParam(required = false) Long timeoutMs) {
+        long timeout = timeoutMs == null || timeoutMs <= 0 ? defaultPollTimeoutMs : Math.min(timeoutMs, maxPollTimeoutMs);
+        return newsStreamService.poll(category, after, timeout);
+    }
+}
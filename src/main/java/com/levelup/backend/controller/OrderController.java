@@ -1,21 +1,39 @@
 package com.levelup.backend.controller;
 
+import com.levelup.backend.archive.ArchivedOrder;
+import com.levelup.backend.dto.CheckoutTicketDTO;
+import com.levelup.backend.dto.CursorPageDTO;
+import com.levelup.backend.dto.OrderArchiveStatsDTO;
 import com.levelup.backend.dto.OrderDTO;
+import com.levelup.backend.dto.OrderHistoryDTO;
 import com.levelup.backend.dto.OrderItemDTO;
 import com.levelup.backend.dto.CreateOrderRequest;
-import com.levelup.backend.dto.OrderItemRequest;
 import com.levelup.backend.model.Order;
-import com.levelup.backend.model.OrderItem;
-import com.levelup.backend.model.Product;
 import com.levelup.backend.repository.OrderRepository;
-import com.levelup.backend.repository.OrderItemRepository;
 import com.levelup.backend.repository.UserRepository;
-import com.levelup.backend.repository.ProductRepository;
+import com.levelup.backend.service.AsyncCheckoutService;
+import com.levelup.backend.service.CheckoutQueue;
+import com.levelup.backend.service.IdempotencyConflictException;
+import com.levelup.backend.service.IdempotencyService;
+import com.levelup.backend.service.KeysetCursor;
+import com.levelup.backend.service.OrderArchiveService;
+import com.levelup.backend.service.OrderExportService;
+import com.levelup.backend.service.OrderService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.net.URI;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @RestController
@@ -27,13 +45,28 @@ public class OrderController {
     private OrderRepository orderRepository;
 
     @Autowired
-    private OrderItemRepository orderItemRepository;
+    private UserRepository userRepository;
 
     @Autowired
-    private UserRepository userRepository;
+    private OrderService orderService;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private AsyncCheckoutService asyncCheckoutService;
+
+    @Autowired
+    private OrderArchiveService orderArchiveService;
 
     @Autowired
-    private ProductRepository productRepository;
+    private OrderExportService orderExportService;
+
+    @Value("${levelup.checkout.retry-after-seconds:2}")
+    private int retryAfterSeconds;
+
+    @Value("${levelup.export.retry-after-seconds:30}")
+    private int exportRetryAfterSeconds;
 
     // Obtener todas las órdenes
     @GetMapping
@@ -49,63 +82,164 @@ public class OrderController {
     public ResponseEntity<OrderDTO> getOrderById(@PathVariable Integer id) {
         return orderRepository.findById(id)
                 .map(order -> ResponseEntity.ok(convertToDTO(order)))
-                .orElse(ResponseEntity.notFound().build());
+                .orElseGet(() -> orderArchiveService.find(id)
+                        .map(order -> ResponseEntity.ok(convertToDTO(order)))
+                        .orElse(ResponseEntity.notFound().build()));
     }
 
-    // Obtener órdenes de un usuario
+    // Obtener órdenes de un usuario (incluye las archivadas, al final)
     @GetMapping("/user/{userId}")
     public ResponseEntity<List<OrderDTO>> getOrdersByUser(@PathVariable Integer userId) {
         List<OrderDTO> orders = orderRepository.findByUser_Id(userId).stream()
                 .map(this::convertToDTO)
                 .collect(Collectors.toList());
+        Set<Integer> live = orders.stream().map(OrderDTO::getId).collect(Collectors.toSet());
+        orderArchiveService.findByUser(userId).stream()
+                .filter(order -> !live.contains(order.id()))
+                .map(this::convertToDTO)
+                .forEach(orders::add);
         return ResponseEntity.ok(orders);
     }
 
-    // Crear nueva orden
+    // Exportar órdenes en streaming (format=ndjson|csv; gzip si Accept-Encoding lo acepta, gzip=false lo evita) por rango de días y estado, sin cargarlas en memoria; las archivadas no se incluyen
+    @GetMapping("/export")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ResponseEntity<StreamingResponseBody> exportOrders(
+            @RequestParam(defaultValue = OrderExportService.NDJSON) String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) Boolean gzip,
+            HttpServletRequest request) {
+        String statusFilter = status == null || status.isBlank() ? null : status;
+        return ExportResponses.stream(orderExportService, request, "orders", format, from, to, gzip, exportRetryAfterSeconds,
+                (out, compress) -> orderExportService.exportOrders(from, to, statusFilter, format, compress, out));
+    }
+
+    // Historial de órdenes de un usuario, paginado por cursor, con items y resumen de productos
+    @GetMapping("/user/{userId}/history")
+    public ResponseEntity<CursorPageDTO<OrderHistoryDTO>> getOrderHistory(@PathVariable Integer userId,
+                                                                         @RequestParam(required = false) String status,
+                                                                         @RequestParam(required = false) String cursor,
+                                                                         @RequestParam(required = false) Integer size) {
+        KeysetCursor after;
+        try {
+            after = KeysetCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(orderService.findHistory(userId, status, after, size));
+    }
+
+    // Crear nueva orden (productos validados en una consulta e items insertados en un batch).
+    // Con Idempotency-Key, los reintentos reciben la respuesta original en vez de duplicar la orden.
+    // Sin transacción propia: la clave se reclama antes y la orden abre la suya
     @PostMapping
-    public ResponseEntity<OrderDTO> createOrder(@RequestBody CreateOrderRequest createOrderRequest) {
-        Order order = new Order();
-        userRepository.findById(createOrderRequest.getUserId())
-                .ifPresent(order::setUser);
-        order.setStatus(createOrderRequest.getStatus() != null ? createOrderRequest.getStatus() : "pending");
-        order.setTotal(createOrderRequest.getTotal());
-        
-        Order savedOrder = orderRepository.save(order);
-        
-        // Crear los items de la orden
-        if (createOrderRequest.getItems() != null && !createOrderRequest.getItems().isEmpty()) {
-            for (OrderItemRequest itemRequest : createOrderRequest.getItems()) {
-                OrderItem orderItem = new OrderItem();
-                orderItem.setOrder(savedOrder);
-                productRepository.findById(itemRequest.getProductId().intValue())
-                        .ifPresent(orderItem::setProduct);
-                orderItem.setQuantity(itemRequest.getQuantity());
-                orderItem.setPrice(itemRequest.getPrice());
-                orderItemRepository.save(orderItem);
-            }
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ResponseEntity<OrderDTO> createOrder(@RequestBody CreateOrderRequest createOrderRequest,
+                                                @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        try {
+            return idempotencyService.execute("POST /api/orders", idempotencyKey, createOrderRequest, OrderDTO.class,
+                    () -> {
+                        try {
+                            return ResponseEntity.ok(orderService.createOrder(createOrderRequest));
+                        } catch (IllegalArgumentException e) {
+                            return ResponseEntity.badRequest().build();
+                        }
+                    });
+        } catch (IdempotencyConflictException e) {
+            return ResponseEntity.status(e.isInProgress() ? HttpStatus.CONFLICT : HttpStatus.UNPROCESSABLE_ENTITY).build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Crear orden en modo asíncrono: se encola y se responde 202 con un ticket para consultar su estado.
+    // Sin transacción en el hilo de la petición; si la cola está llena se responde 503 con Retry-After.
+    // Con Idempotency-Key, un reintento devuelve el mismo ticket en vez de encolar otra orden
+    @PostMapping(params = "async=true")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ResponseEntity<CheckoutTicketDTO> createOrderAsync(@RequestBody CreateOrderRequest createOrderRequest,
+                                                              @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        try {
+            return idempotencyService.execute("POST /api/orders?async=true", idempotencyKey, createOrderRequest,
+                    CheckoutTicketDTO.class, () -> {
+                        CheckoutTicketDTO ticket = asyncCheckoutService.submit(createOrderRequest);
+                        if (ticket == null) {
+                            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                                    .build();
+                        }
+                        return ResponseEntity.accepted()
+                                .location(URI.create("/api/orders/checkout/" + ticket.getTicketId()))
+                                .body(ticket);
+                    });
+        } catch (IdempotencyConflictException e) {
+            return ResponseEntity.status(e.isInProgress() ? HttpStatus.CONFLICT : HttpStatus.UNPROCESSABLE_ENTITY).build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Consultar el estado de una orden asíncrona
+    @GetMapping("/checkout/{ticketId}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ResponseEntity<CheckoutTicketDTO> getCheckoutTicket(@PathVariable String ticketId) {
+        CheckoutTicketDTO ticket = asyncCheckoutService.getTicket(ticketId);
+        return ticket != null ? ResponseEntity.ok(ticket) : ResponseEntity.notFound().build();
+    }
+
+    // Métricas de la cola de checkout: profundidad, rechazos y latencias p50/p99
+    @GetMapping("/checkout/stats")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ResponseEntity<CheckoutQueue.Stats> getCheckoutStats() {
+        return ResponseEntity.ok(asyncCheckoutService.stats());
+    }
+
+    // Archivar ahora las órdenes antiguas (normalmente lo hace un proceso periódico)
+    @PostMapping("/archive/run")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ResponseEntity<OrderArchiveStatsDTO> runArchive() {
+        try {
+            orderArchiveService.archive();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        return ResponseEntity.ok(orderArchiveService.stats());
+    }
+
+    // Estado del archivo frío: segmentos, órdenes archivadas y espacio en disco
+    @GetMapping("/archive/stats")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ResponseEntity<OrderArchiveStatsDTO> getArchiveStats() {
+        return ResponseEntity.ok(orderArchiveService.stats());
+    }
+
+    // Devolver una orden archivada a la base (con el mismo id) para poder modificarla
+    @PostMapping("/archive/{id}/restore")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ResponseEntity<OrderDTO> restoreOrder(@PathVariable Integer id) {
+        try {
+            return orderArchiveService.restore(id)
+                    .map(order -> ResponseEntity.ok(convertToDTO(order)))
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
         }
-        
-        return ResponseEntity.ok(convertToDTO(savedOrder));
     }
 
     // Actualizar orden
     @PutMapping("/{id}")
     public ResponseEntity<OrderDTO> updateOrder(@PathVariable Integer id, @RequestBody OrderDTO orderDTO) {
-        return orderRepository.findById(id)
-                .map(order -> {
-                    order.setStatus(orderDTO.getStatus());
-                    order.setTotal(orderDTO.getTotal());
-                    Order updatedOrder = orderRepository.save(order);
-                    return ResponseEntity.ok(convertToDTO(updatedOrder));
-                })
+        return orderService.updateOrder(id, orderDTO.getStatus(), orderDTO.getTotal())
+                .map(updatedOrder -> ResponseEntity.ok(convertToDTO(updatedOrder)))
                 .orElse(ResponseEntity.notFound().build());
     }
 
     // Eliminar orden
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteOrder(@PathVariable Integer id) {
-        if (orderRepository.existsById(id)) {
-            orderRepository.deleteById(id);
+        if (orderService.deleteOrder(id)) {
             return ResponseEntity.noContent().build();
         }
         return ResponseEntity.notFound().build();
@@ -129,6 +263,14 @@ public class OrderController {
         );
     }
 
+    // Convertir una orden archivada a OrderDTO
+    private OrderDTO convertToDTO(ArchivedOrder order) {
+        List<OrderItemDTO> items = order.items().stream()
+                .map(item -> new OrderItemDTO(item.id(), order.id(), item.productId(), item.quantity(), item.price()))
+                .collect(Collectors.toList());
+        return new OrderDTO(order.id(), order.userId(), order.status(), order.total(), order.createdAt(), items);
+    }
+
     // Convertir OrderDTO a Order
     private Order convertToEntity(OrderDTO orderDTO) {
         Order order = new Order();
@@ -3,11 +3,16 @@ package com.levelup.backend.controller;
 import com.levelup.backend.dto.OrderItemDTO;
 import com.levelup.backend.model.OrderItem;
 import com.levelup.backend.repository.OrderItemRepository;
-import com.levelup.backend.repository.OrderRepository;
-import com.levelup.backend.repository.ProductRepository;
+import com.levelup.backend.service.OrderExportService;
+import com.levelup.backend.service.OrderItemService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -19,10 +24,13 @@ public class OrderItemController {
     private OrderItemRepository orderItemRepository;
 
     @Autowired
-    private OrderRepository orderRepository;
+    private OrderItemService orderItemService;
 
     @Autowired
-    private ProductRepository productRepository;
+    private OrderExportService orderExportService;
+
+    @Value("${levelup.export.retry-after-seconds:30}")
+    private int retryAfterSeconds;
 
     // Obtener todos los items de orden
     @GetMapping
@@ -33,6 +41,20 @@ public class OrderItemController {
         return ResponseEntity.ok(items);
     }
 
+    // Exportar items de orden en streaming (format=ndjson|csv; gzip según Accept-Encoding); filtra por fecha y estado de la orden, sin órdenes archivadas
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportOrderItems(
+            @RequestParam(defaultValue = OrderExportService.NDJSON) String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) Boolean gzip,
+            HttpServletRequest request) {
+        String statusFilter = status == null || status.isBlank() ? null : status;
+        return ExportResponses.stream(orderExportService, request, "order-items", format, from, to, gzip, retryAfterSeconds,
+                (out, compress) -> orderExportService.exportOrderItems(from, to, statusFilter, format, compress, out));
+    }
+
     // Obtener item de orden por ID
     @GetMapping("/{id}")
     public ResponseEntity<OrderItemDTO> getOrderItemById(@PathVariable Integer id) {
@@ -50,35 +72,28 @@ public class OrderItemController {
         return ResponseEntity.ok(items);
     }
 
-    // Crear nuevo item de orden
+    // Crear nuevo item de orden (los agregados de ventas reciben el delta)
     @PostMapping
     public ResponseEntity<OrderItemDTO> createOrderItem(@RequestBody OrderItemDTO itemDTO) {
-        OrderItem item = convertToEntity(itemDTO);
-        OrderItem savedItem = orderItemRepository.save(item);
+        OrderItem savedItem = orderItemService.create(itemDTO.getOrderId(), itemDTO.getProductId(),
+                itemDTO.getQuantity(), itemDTO.getPrice());
         return ResponseEntity.ok(convertToDTO(savedItem));
     }
 
     // Actualizar item de orden
     @PutMapping("/{id}")
     public ResponseEntity<OrderItemDTO> updateOrderItem(@PathVariable Integer id, @RequestBody OrderItemDTO itemDTO) {
-        return orderItemRepository.findById(id)
-                .map(item -> {
-                    item.setQuantity(itemDTO.getQuantity());
-                    item.setPrice(itemDTO.getPrice());
-                    OrderItem updatedItem = orderItemRepository.save(item);
-                    return ResponseEntity.ok(convertToDTO(updatedItem));
-                })
+        return orderItemService.update(id, itemDTO.getQuantity(), itemDTO.getPrice())
+                .map(item -> ResponseEntity.ok(convertToDTO(item)))
                 .orElse(ResponseEntity.notFound().build());
     }
 
     // Eliminar item de orden
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteOrderItem(@PathVariable Integer id) {
-        if (orderItemRepository.existsById(id)) {
-            orderItemRepository.deleteById(id);
-            return ResponseEntity.noContent().build();
-        }
-        return ResponseEntity.notFound().build();
+        return orderItemService.delete(id)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
     }
 
     // Convertir OrderItem a OrderItemDTO
@@ -86,18 +101,4 @@ public class OrderItemController {
         return new OrderItemDTO(item.getId(), item.getOrder().getId(), item.getProduct().getId(), 
                               item.getQuantity(), item.getPrice());
     }
-
-    // Convertir OrderItemDTO a OrderItem
-    private OrderItem convertToEntity(OrderItemDTO itemDTO) {
-        OrderItem item = new OrderItem();
-        if (itemDTO.getOrderId() != null) {
-            orderRepository.findById(itemDTO.getOrderId()).ifPresent(item::setOrder);
-        }
-        if (itemDTO.getProductId() != null) {
-            productRepository.findById(itemDTO.getProductId()).ifPresent(item::setProduct);
-        }
-        item.setQuantity(itemDTO.getQuantity());
-        item.setPrice(itemDTO.getPrice());
-        return item;
-    }
 }
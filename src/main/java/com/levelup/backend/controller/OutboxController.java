@@ -0,0 +1,33 @@
+package com.levelup.backend.controller;
+
+import com.levelup.backend.dto.OutboxSinkStatsDTO;
+import com.levelup.backend.service.OutboxDispatcher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/outbox")
+public class OutboxController {
+
+    @Autowired
+    private OutboxDispatcher outboxDispatcher;
+
+    // Checkpoint y retraso (en eventos y en segundos) de cada destino del outbox
+    @GetMapping("/stats")
+    public ResponseEntity<List<OutboxSinkStatsDTO>> getStats() {
+        return ResponseEntity.ok(outboxDispatcher.stats());
+    }
+
+    // Mover el checkpoint de un destino: un id menor reentrega desde ahí
+    @PutMapping("/sinks/{sink}/checkpoint")
+    public ResponseEntity<Void> resetCheckpoint(@PathVariable String sink, @RequestParam long lastEventId) {
+        if (lastEventId < 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        return outboxDispatcher.resetCheckpoint(sink, lastEventId)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+}
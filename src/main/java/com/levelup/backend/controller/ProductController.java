@@ -1,15 +1,33 @@
 package com.levelup.backend.controller;
 
+import com.levelup.backend.dto.ChangeStamp;
+import com.levelup.backend.dto.CursorPageDTO;
+import com.levelup.backend.dto.FacetPageDTO;
 import com.levelup.backend.dto.ProductDTO;
-import com.levelup.backend.dto.TagDTO;
+import com.levelup.backend.dto.SearchPageDTO;
+import com.levelup.backend.event.ProductsChangedEvent;
 import com.levelup.backend.model.Product;
 import com.levelup.backend.repository.ProductRepository;
 import com.levelup.backend.repository.CategoryRepository;
+import com.levelup.backend.service.CatalogSnapshot;
+import com.levelup.backend.service.ProductCatalogCache;
+import com.levelup.backend.service.ProductFacetIndex;
+import com.levelup.backend.service.ProductMapper;
+import com.levelup.backend.service.ProductPageService;
+import com.levelup.backend.service.ProductQueryService;
+import com.levelup.backend.service.ProductSearchService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.transaction.annotation.Transactional;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @RestController
@@ -23,18 +41,75 @@ public class ProductController {
     @Autowired
     private CategoryRepository categoryRepository;
 
+    @Autowired
+    private ProductPageService productPageService;
+
+    @Autowired
+    private ProductCatalogCache productCatalogCache;
+
+    @Autowired
+    private ProductMapper productMapper;
+
+    @Autowired
+    private ProductSearchService productSearchService;
+
+    @Autowired
+    private ProductQueryService productQueryService;
+
+    @Autowired
+    private ProductFacetIndex productFacetIndex;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     // Obtener todos los productos
     @GetMapping
-    public ResponseEntity<List<ProductDTO>> getAllProducts() {
-        List<ProductDTO> products = productRepository.findAll().stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+    public ResponseEntity<List<ProductDTO>> getAllProducts(WebRequest request) {
+        Optional<CatalogSnapshot> snapshot = productCatalogCache.snapshot();
+        if (snapshot.isPresent()) {
+            if (request.checkNotModified(snapshotTag(snapshot.get(), "all"))) {
+                return null;
+            }
+            return ResponseEntity.ok(snapshot.get().getAll());
+        }
+        if (notModified(request, "all", productRepository.findChangeStamp())) {
+            return null;
+        }
+        List<ProductDTO> products = productQueryService.findAll();
         return ResponseEntity.ok(products);
     }
 
+    // Obtener productos paginados por cursor (keyset)
+    @GetMapping("/page")
+    public ResponseEntity<CursorPageDTO<ProductDTO>> getProductsPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String direction) {
+        return buildPage(ProductPageService.Scope.all(), cursor, size, sort, direction);
+    }
+
     // Obtener producto por ID
     @GetMapping("/{id}")
-    public ResponseEntity<ProductDTO> getProductById(@PathVariable Integer id) {
+    public ResponseEntity<ProductDTO> getProductById(@PathVariable Integer id, WebRequest request) {
+        Optional<CatalogSnapshot> snapshot = productCatalogCache.snapshot();
+        if (snapshot.isPresent()) {
+            ProductDTO product = snapshot.get().getById(id);
+            if (product == null) {
+                return ResponseEntity.notFound().build();
+            }
+            if (notModified(request, id, product.getUpdatedAt())) {
+                return null;
+            }
+            return ResponseEntity.ok(product);
+        }
+        Optional<LocalDateTime> updatedAt = productRepository.findUpdatedAtById(id);
+        if (updatedAt.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (notModified(request, id, updatedAt.get())) {
+            return null;
+        }
         return productRepository.findById(id)
                 .map(product -> ResponseEntity.ok(convertToDTO(product)))
                 .orElse(ResponseEntity.notFound().build());
@@ -42,19 +117,85 @@ public class ProductController {
 
     // Obtener productos por categoría
     @GetMapping("/category/{categoryId}")
-    public ResponseEntity<List<ProductDTO>> getProductsByCategory(@PathVariable Integer categoryId) {
-        List<ProductDTO> products = productRepository.findByCategory_Id(categoryId).stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+    public ResponseEntity<List<ProductDTO>> getProductsByCategory(@PathVariable Integer categoryId,
+                                                                  WebRequest request) {
+        Optional<CatalogSnapshot> snapshot = productCatalogCache.snapshot();
+        if (snapshot.isPresent()) {
+            if (request.checkNotModified(snapshotTag(snapshot.get(), "category" + categoryId))) {
+                return null;
+            }
+            return ResponseEntity.ok(snapshot.get().getByCategory(categoryId));
+        }
+        if (notModified(request, "category" + categoryId, productRepository.findChangeStampByCategoryId(categoryId))) {
+            return null;
+        }
+        List<ProductDTO> products = productQueryService.findByCategory(categoryId);
         return ResponseEntity.ok(products);
     }
 
+    // Obtener productos por categoría paginados por cursor
+    @GetMapping("/category/{categoryId}/page")
+    public ResponseEntity<CursorPageDTO<ProductDTO>> getProductsByCategoryPage(
+            @PathVariable Integer categoryId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String direction) {
+        return buildPage(ProductPageService.Scope.category(categoryId), cursor, size, sort, direction);
+    }
+
+    // Buscar productos (título, descripción, categoría y etiquetas) con relevancia y paginación.
+    // Mientras el índice se carga se busca el texto en el título, paginado, directamente en la base
+    @GetMapping("/search")
+    public ResponseEntity<SearchPageDTO<ProductDTO>> search(@RequestParam String q,
+                                                            @RequestParam(defaultValue = "0") Integer page,
+                                                            @RequestParam(defaultValue = "20") Integer size) {
+        if (productSearchService.isReady()) {
+            return ResponseEntity.ok(productSearchService.search(q, page, size));
+        }
+        int pageSize = productPageService.resolveSize(size);
+        int pageNumber = Math.max(page, 0);
+        Page<Product> products = productRepository.findByTitleContainingIgnoreCase(q,
+                PageRequest.of(pageNumber, pageSize, Sort.by("id")));
+        return ResponseEntity.ok(new SearchPageDTO<>(productQueryService.toDTOs(products.getContent()),
+                (int) products.getTotalElements(), pageNumber, pageSize));
+    }
+
+    // Filtrar productos combinando facetas, con conteos por faceta
+    @GetMapping("/filter")
+    public ResponseEntity<FacetPageDTO<ProductDTO>> filterProducts(
+            @RequestParam(required = false) List<Integer> categoryId,
+            @RequestParam(required = false) List<Integer> tagId,
+            @RequestParam(defaultValue = "all") String tagMode,
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice,
+            @RequestParam(required = false) Boolean inStock,
+            @RequestParam(required = false) Boolean discontinued,
+            @RequestParam(defaultValue = "0") Integer page,
+            @RequestParam(defaultValue = "20") Integer size) {
+        int pageSize = productPageService.resolveSize(size);
+        int pageNumber = Math.max(page, 0);
+        ProductFacetIndex.Filter filter = new ProductFacetIndex.Filter(categoryId, tagId,
+                !"any".equalsIgnoreCase(tagMode), minPrice, maxPrice, inStock, discontinued);
+        ProductFacetIndex.Result result = productFacetIndex.filter(filter, pageNumber * pageSize, pageSize);
+
+        Optional<CatalogSnapshot> snapshot = productCatalogCache.snapshot();
+        List<ProductDTO> items = snapshot.isPresent()
+                ? result.ids().stream()
+                        .map(snapshot.get()::getById)
+                        .filter(product -> product != null)
+                        .collect(Collectors.toList())
+                : productQueryService.findByIds(result.ids());
+        return ResponseEntity.ok(new FacetPageDTO<>(items, result.total(), pageNumber, pageSize, result.facets()));
+    }
+
     // Buscar productos por título
     @GetMapping("/search/{title}")
     public ResponseEntity<List<ProductDTO>> searchProducts(@PathVariable String title) {
-        List<ProductDTO> products = productRepository.findByTitleContainingIgnoreCase(title).stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        if (productSearchService.isReady()) {
+            return ResponseEntity.ok(productSearchService.search(title, 0, 100).getItems());
+        }
+        List<ProductDTO> products = productQueryService.toDTOs(productRepository.findByTitleContainingIgnoreCase(title));
         return ResponseEntity.ok(products);
     }
 
@@ -62,8 +203,10 @@ public class ProductController {
     @PostMapping
     public ResponseEntity<ProductDTO> createProduct(@RequestBody ProductDTO productDTO) {
         Product product = convertToEntity(productDTO);
-        Product savedProduct = productRepository.save(product);
-        return ResponseEntity.ok(convertToDTO(savedProduct));
+        Product savedProduct = productRepository.saveAndFlush(product);
+        ProductDTO savedDTO = convertToDTO(savedProduct);
+        eventPublisher.publishEvent(ProductsChangedEvent.of(savedDTO));
+        return ResponseEntity.ok(savedDTO);
     }
 
     // Actualizar producto
@@ -83,8 +226,10 @@ public class ProductController {
                     if (productDTO.getCategoryId() != null) {
                         categoryRepository.findById(productDTO.getCategoryId()).ifPresent(product::setCategory);
                     }
-                    Product updatedProduct = productRepository.save(product);
-                    return ResponseEntity.ok(convertToDTO(updatedProduct));
+                    Product updatedProduct = productRepository.saveAndFlush(product);
+                    ProductDTO updatedDTO = convertToDTO(updatedProduct);
+                    eventPublisher.publishEvent(ProductsChangedEvent.of(updatedDTO));
+                    return ResponseEntity.ok(updatedDTO);
                 })
                 .orElse(ResponseEntity.notFound().build());
     }
@@ -95,8 +240,10 @@ public class ProductController {
         return productRepository.findById(id)
                 .map(product -> {
                     product.setDiscontinued(true);
-                    Product updatedProduct = productRepository.save(product);
-                    return ResponseEntity.ok(convertToDTO(updatedProduct));
+                    Product updatedProduct = productRepository.saveAndFlush(product);
+                    ProductDTO updatedDTO = convertToDTO(updatedProduct);
+                    eventPublisher.publishEvent(ProductsChangedEvent.of(updatedDTO));
+                    return ResponseEntity.ok(updatedDTO);
                 })
                 .orElse(ResponseEntity.notFound().build());
     }
@@ -107,51 +254,101 @@ public class ProductController {
         return productRepository.findById(id)
                 .map(product -> {
                     product.setDiscontinued(false);
-                    Product updatedProduct = productRepository.save(product);
-                    return ResponseEntity.ok(convertToDTO(updatedProduct));
+                    Product updatedProduct = productRepository.saveAndFlush(product);
+                    ProductDTO updatedDTO = convertToDTO(updatedProduct);
+                    eventPublisher.publishEvent(ProductsChangedEvent.of(updatedDTO));
+                    return ResponseEntity.ok(updatedDTO);
                 })
                 .orElse(ResponseEntity.notFound().build());
     }
 
     // Obtener productos activos (no descontinuados)
     @GetMapping("/active")
-    public ResponseEntity<List<ProductDTO>> getActiveProducts() {
-        List<ProductDTO> products = productRepository.findByDiscontinued(false).stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+    public ResponseEntity<List<ProductDTO>> getActiveProducts(WebRequest request) {
+        Optional<CatalogSnapshot> snapshot = productCatalogCache.snapshot();
+        if (snapshot.isPresent()) {
+            if (request.checkNotModified(snapshotTag(snapshot.get(), "active"))) {
+                return null;
+            }
+            return ResponseEntity.ok(snapshot.get().getActive());
+        }
+        if (notModified(request, "active", productRepository.findChangeStampByDiscontinued(false))) {
+            return null;
+        }
+        List<ProductDTO> products = productQueryService.findByDiscontinued(false);
         return ResponseEntity.ok(products);
     }
 
+    // Obtener productos activos paginados por cursor
+    @GetMapping("/active/page")
+    public ResponseEntity<CursorPageDTO<ProductDTO>> getActiveProductsPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String direction) {
+        return buildPage(ProductPageService.Scope.discontinued(false), cursor, size, sort, direction);
+    }
+
     // Obtener productos descontinuados
     @GetMapping("/discontinued")
-    public ResponseEntity<List<ProductDTO>> getDiscontinuedProducts() {
-        List<ProductDTO> products = productRepository.findByDiscontinued(true).stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+    public ResponseEntity<List<ProductDTO>> getDiscontinuedProducts(WebRequest request) {
+        Optional<CatalogSnapshot> snapshot = productCatalogCache.snapshot();
+        if (snapshot.isPresent()) {
+            if (request.checkNotModified(snapshotTag(snapshot.get(), "discontinued"))) {
+                return null;
+            }
+            return ResponseEntity.ok(snapshot.get().getDiscontinued());
+        }
+        if (notModified(request, "discontinued", productRepository.findChangeStampByDiscontinued(true))) {
+            return null;
+        }
+        List<ProductDTO> products = productQueryService.findByDiscontinued(true);
         return ResponseEntity.ok(products);
     }
 
+    // Obtener productos descontinuados paginados por cursor
+    @GetMapping("/discontinued/page")
+    public ResponseEntity<CursorPageDTO<ProductDTO>> getDiscontinuedProductsPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String direction) {
+        return buildPage(ProductPageService.Scope.discontinued(true), cursor, size, sort, direction);
+    }
+
+    // Construir la respuesta de una página de productos
+    private ResponseEntity<CursorPageDTO<ProductDTO>> buildPage(ProductPageService.Scope scope, String cursor,
+                                                                Integer size, String sort, String direction) {
+        try {
+            ProductPageService.Page page = productPageService.findPage(scope, sort, direction, cursor, size);
+            List<ProductDTO> items = productQueryService.toDTOs(page.products());
+            return ResponseEntity.ok(new CursorPageDTO<>(items, page.nextCursor(), page.hasNext(), items.size()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // ETag de una colección servida desde el snapshot del catálogo
+    private String snapshotTag(CatalogSnapshot snapshot, String scope) {
+        return HttpCaching.weakTag("products", scope, productCatalogCache.getInstanceId(), snapshot.getVersion());
+    }
+
+    // Responder 304 si la colección no cambió desde la copia del cliente
+    private boolean notModified(WebRequest request, String scope, ChangeStamp stamp) {
+        return request.checkNotModified(
+                HttpCaching.weakTag("products", scope, stamp.getCount(), stamp.getLastModified()),
+                HttpCaching.epochMillis(stamp.getLastModified()));
+    }
+
+    // Responder 304 si el producto no cambió desde la copia del cliente
+    private boolean notModified(WebRequest request, Integer id, LocalDateTime updatedAt) {
+        return request.checkNotModified(HttpCaching.strongTag("product", id, updatedAt),
+                HttpCaching.epochMillis(updatedAt));
+    }
+
     // Convertir Product a ProductDTO
     private ProductDTO convertToDTO(Product product) {
-        List<TagDTO> tags = product.getTags() != null ?
-                product.getTags().stream()
-                        .map(tag -> new TagDTO(tag.getId(), tag.getName()))
-                        .collect(Collectors.toList()) : List.of();
-
-        return new ProductDTO(
-                product.getId(),
-                product.getTitle(),
-                product.getDescription(),
-                product.getPrice(),
-                product.getCurrency(),
-                product.getCategory() != null ? product.getCategory().getId() : null,
-                product.getStock(),
-                product.getImage(),
-                product.getDiscontinued(),
-                product.getCreatedAt(),
-                product.getUpdatedAt(),
-                tags
-        );
+        return productMapper.toDTO(product);
     }
 
     // Convertir ProductDTO a Product
@@ -0,0 +1,42 @@
+package com.levelup.backend.controller;
+
+import com.levelup.backend.dto.ProductImportReportDTO;
+import com.levelup.backend.service.ProductImportService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import java.io.IOException;
+
+// Sin @Transactional a nivel de clase: cada bloque de la importación usa su propia transacción
+@RestController
+@RequestMapping("/api/products/import")
+public class ProductImportController {
+
+    @Autowired
+    private ProductImportService productImportService;
+
+    // Importar productos en masa desde NDJSON (application/x-ndjson) o CSV (text/csv)
+    @PostMapping
+    public ResponseEntity<ProductImportReportDTO> importProducts(HttpServletRequest request,
+                                                                 @RequestParam(required = false) String format,
+                                                                 @RequestParam(required = false) Integer chunkSize,
+                                                                 @RequestParam(required = false) String importId) throws IOException {
+        ProductImportService.Format importFormat;
+        try {
+            importFormat = ProductImportService.Format.from(format, request.getContentType());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        ProductImportReportDTO report = productImportService.importProducts(importId, request.getInputStream(),
+                importFormat, chunkSize);
+        return ResponseEntity.ok(report);
+    }
+
+    // Consultar el progreso de una importación en curso o reciente
+    @GetMapping("/{importId}")
+    public ResponseEntity<ProductImportReportDTO> getImportProgress(@PathVariable String importId) {
+        ProductImportReportDTO report = productImportService.getProgress(importId);
+        return report != null ? ResponseEntity.ok(report) : ResponseEntity.notFound().build();
+    }
+}
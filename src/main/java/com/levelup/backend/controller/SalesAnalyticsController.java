@@ -0,0 +1,132 @@
+package com.levelup.backend.controller;
+
+import com.levelup.backend.dto.CategorySalesDTO;
+import com.levelup.backend.dto.ProductSalesDTO;
+import com.levelup.backend.dto.SalesPeriodDTO;
+import com.levelup.backend.dto.SalesStatusDTO;
+import com.levelup.backend.service.OrderArchiveService;
+import com.levelup.backend.service.SalesRollupService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+// Reportes de ventas sobre tablas pre-agregadas; from/to son días inclusive (por defecto, los últimos 30)
+@RestController
+@RequestMapping("/api/analytics/sales")
+public class SalesAnalyticsController {
+
+    @Autowired
+    private SalesRollupService salesRollupService;
+
+    @Autowired
+    private OrderArchiveService orderArchiveService;
+
+    @Value("${levelup.analytics.max-range-days:366}")
+    private int maxRangeDays;
+
+    @Value("${levelup.analytics.max-top:100}")
+    private int maxTop;
+
+    // Ingresos, órdenes y unidades por día
+    @GetMapping("/daily")
+    public ResponseEntity<List<SalesPeriodDTO>> getDaily(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String status) {
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusDays(29);
+        if (!validRange(start, end)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(salesRollupService.daily(start, end, blankToNull(status)));
+    }
+
+    // Ingresos, órdenes y unidades por hora
+    @GetMapping("/hourly")
+    public ResponseEntity<List<SalesPeriodDTO>> getHourly(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String status) {
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end;
+        if (!validRange(start, end)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(salesRollupService.hourly(start, end, blankToNull(status)));
+    }
+
+    // Cantidad de órdenes e ingresos por estado
+    @GetMapping("/status")
+    public ResponseEntity<List<SalesStatusDTO>> getByStatus(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusDays(29);
+        if (!validRange(start, end)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(salesRollupService.byStatus(start, end));
+    }
+
+    // Productos más vendidos por ingresos
+    @GetMapping("/top-products")
+    public ResponseEntity<List<ProductSalesDTO>> getTopProducts(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String status,
+            @RequestParam(defaultValue = "10") int limit) {
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusDays(29);
+        if (!validRange(start, end)) {
+            return ResponseEntity.badRequest().build();
+        }
+        int top = Math.max(1, Math.min(limit, maxTop));
+        return ResponseEntity.ok(salesRollupService.topProducts(start, end, blankToNull(status), top));
+    }
+
+    // Unidades e ingresos por categoría
+    @GetMapping("/categories")
+    public ResponseEntity<List<CategorySalesDTO>> getByCategory(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String status) {
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusDays(29);
+        if (!validRange(start, end)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(salesRollupService.byCategory(start, end, blankToNull(status)));
+    }
+
+    // Recalcular los agregados de un rango desde las órdenes (recorre orders; usar fuera de horas punta).
+    // Los días que alcanzan órdenes archivadas no se pueden recalcular: ya no están en orders
+    @PostMapping("/rebuild")
+    public ResponseEntity<Void> rebuild(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        if (!validRange(from, to)) {
+            return ResponseEntity.badRequest().build();
+        }
+        LocalDateTime newestArchived = orderArchiveService.getNewestArchivedAt();
+        if (newestArchived != null && !from.atStartOfDay().isAfter(newestArchived)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        salesRollupService.rebuild(from, to);
+        return ResponseEntity.noContent().build();
+    }
+
+    private boolean validRange(LocalDate from, LocalDate to) {
+        return !from.isAfter(to) && ChronoUnit.DAYS.between(from, to) < maxRangeDays;
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
+}
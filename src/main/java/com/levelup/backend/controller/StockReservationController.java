@@ -0,0 +1,67 @@
+package com.levelup.backend.controller;
+
+import com.levelup.backend.dto.StockReservationDTO;
+import com.levelup.backend.dto.StockReservationRequest;
+import com.levelup.backend.service.InsufficientStockException;
+import com.levelup.backend.service.StockReservationService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/stock")
+public class StockReservationController {
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    // Consultar stock disponible de un producto
+    @GetMapping("/{productId}")
+    public ResponseEntity<Map<String, Integer>> getAvailable(@PathVariable Integer productId) {
+        return ResponseEntity.ok(Map.of(
+                "productId", productId,
+                "available", stockReservationService.available(productId)));
+    }
+
+    // Reservar unidades de un producto por un tiempo limitado
+    @PostMapping("/reservations")
+    public ResponseEntity<StockReservationDTO> reserve(@RequestBody StockReservationRequest request) {
+        try {
+            int quantity = request.getQuantity() != null ? request.getQuantity() : 0;
+            StockReservationDTO reservation = stockReservationService.reserve(request.getProductId(), quantity,
+                    request.getTtlSeconds());
+            return ResponseEntity.status(HttpStatus.CREATED).body(reservation);
+        } catch (InsufficientStockException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Confirmar una reserva
+    @PostMapping("/reservations/{id}/confirm")
+    public ResponseEntity<StockReservationDTO> confirm(@PathVariable Long id) {
+        try {
+            return stockReservationService.confirm(id)
+                    .map(ResponseEntity::ok)
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
+    // Liberar una reserva
+    @DeleteMapping("/reservations/{id}")
+    public ResponseEntity<Void> release(@PathVariable Long id) {
+        try {
+            if (stockReservationService.release(id)) {
+                return ResponseEntity.noContent().build();
+            }
+            return ResponseEntity.notFound().build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.levelup.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Operación sobre una línea del carrito: "add" suma, "set" fija la cantidad (0 la quita), "remove" la quita
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartOperation {
+    private String op;
+    private Integer productId;
+    private Integer quantity;
+}
@@ -0,0 +1,19 @@
+package com.levelup.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Estado del carrito en memoria: carritos activos, pendientes de escribir y volumen escrito
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartStoreStatsDTO {
+    private Boolean enabled;
+    private Integer carts;
+    private Integer dirtyCarts;
+    private Long operations;
+    private Long flushes;
+    private Long rowsWritten;
+    private Long evictions;
+}
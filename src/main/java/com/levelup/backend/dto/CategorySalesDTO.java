@@ -0,0 +1,15 @@
+package com.levelup.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CategorySalesDTO {
+    private Integer categoryId;
+    private String name;
+    private Long units;
+    private Double revenue;
+}
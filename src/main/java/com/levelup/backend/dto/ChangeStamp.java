@@ -0,0 +1,15 @@
+package com.levelup.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+// Cantidad de filas y última modificación de una colección, para ETag/Last-Modified
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChangeStamp {
+    private Long count;
+    private LocalDateTime lastModified;
+}
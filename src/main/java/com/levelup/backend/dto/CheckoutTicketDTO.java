@@ -0,0 +1,18 @@
+package com.levelup.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Estado de una orden enviada en modo asíncrono: pending, processing, completed o failed.
+// error es un código estable (invalid_request, internal_error, shutdown)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CheckoutTicketDTO {
+    private String ticketId;
+    private String status;
+    private Integer orderId;
+    private OrderDTO order;
+    private String error;
+}
@@ -0,0 +1,19 @@
+package com.levelup.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FacetPageDTO<T> {
+    private List<T> items;
+    private Integer total;
+    private Integer page;
+    private Integer size;
+    // Conteos por faceta: nombre de faceta -> valor -> cantidad de productos
+    private Map<String, Map<String, Integer>> facets;
+}
@@ -0,0 +1,19 @@
+package com.levelup.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+// Resumen de noticia para el feed: sin el contenido completo
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NewsFeedItemDTO {
+    private Long id;
+    private String title;
+    private String summary;
+    private String thumbnail;
+    private String category;
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,21 @@
+package com.levelup.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+// Proyección de las columnas de News que indexa la búsqueda (sin imágenes)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NewsIndexRow {
+    private Long id;
+    private String title;
+    private String summary;
+    private String content;
+    private String author;
+    private String category;
+    private Boolean isPublished;
+    private LocalDateTime createdAt;
+}
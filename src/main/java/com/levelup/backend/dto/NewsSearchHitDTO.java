@@ -0,0 +1,23 @@
+package com.levelup.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NewsSearchHitDTO {
+    private Long id;
+    private String title;
+    private String summary;
+    private String thumbnail;
+    private String author;
+    private String category;
+    private Boolean isPublished;
+    private LocalDateTime createdAt;
+    private Double score;
+    // Fragmento del contenido con las coincidencias marcadas con <mark></mark>
+    private String snippet;
+}
@@ -0,0 +1,20 @@
+package com.levelup.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+// Aviso compacto de noticia publicada; eventId sirve para reanudar el stream
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NewsStreamEventDTO {
+    private Long eventId;
+    private Long newsId;
+    private String title;
+    private String summary;
+    private String thumbnail;
+    private String category;
+    private LocalDateTime createdAt;
+}
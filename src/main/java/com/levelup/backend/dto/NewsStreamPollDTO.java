@@ -0,0 +1,17 @@
+package com.levelup.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NewsStreamPollDTO {
+    private List<NewsStreamEventDTO> events;
+    // Valor a enviar como "after" en la siguiente consulta
+    private Long lastEventId;
+    // true si se perdieron eventos y el cliente debe recargar /api/news/published
+    private Boolean reset;
+}
@@ -0,0 +1,15 @@
+package com.levelup.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+// Última modificación y vistas persistidas de una noticia, para su ETag
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NewsVersion {
+    private LocalDateTime updatedAt;
+    private Integer views;
+}
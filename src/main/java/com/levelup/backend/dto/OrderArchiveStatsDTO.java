@@ -0,0 +1,22 @@
+package com.levelup.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+// Estado del archivo frío de órdenes
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderArchiveStatsDTO {
+    private Integer segments;
+    private Long archivedOrders;
+    private Integer tombstones;
+    private Integer restoredOrders;
+    private Long diskBytes;
+    private LocalDateTime oldestArchivedAt;
+    private LocalDateTime newestArchivedAt;
+    private LocalDateTime lastRunAt;
+    private Integer lastRunArchived;
+}
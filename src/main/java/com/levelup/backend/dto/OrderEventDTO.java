@@ -0,0 +1,21 @@
+package com.levelup.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Contenido de los eventos de orden del outbox; items solo en order.created y order.items_changed (lista completa)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderEventDTO {
+    private Integer orderId;
+    private Integer userId;
+    private String previousStatus;
+    private String status;
+    private Double total;
+    private LocalDateTime createdAt;
+    private List<OrderItemDTO> items;
+}
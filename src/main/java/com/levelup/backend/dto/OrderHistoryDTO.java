@@ -0,0 +1,18 @@
+package com.levelup.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderHistoryDTO {
+    private Integer id;
+    private String status;
+    private Double total;
+    private LocalDateTime createdAt;
+    private List<OrderHistoryItemDTO> items;
+}
@@ -0,0 +1,20 @@
+package com.levelup.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Item del historial con el resumen del producto, obtenido en la misma consulta
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderHistoryItemDTO {
+    private Integer id;
+    private Integer orderId;
+    private Integer productId;
+    private String productTitle;
+    private String productImage;
+    private String productCurrency;
+    private Integer quantity;
+    private Double price;
+}
@@ -0,0 +1,16 @@
+package com.levelup.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Línea de orden con la categoría del producto, para las agregaciones de ventas
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderLineRow {
+    private Integer productId;
+    private Integer categoryId;
+    private Integer quantity;
+    private Double price;
+}
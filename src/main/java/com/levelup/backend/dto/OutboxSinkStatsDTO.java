@@ -0,0 +1,24 @@
+package com.levelup.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+// Avance de un destino del outbox: checkpoint, retraso y errores
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxSinkStatsDTO {
+    private String sink;
+    private Long checkpoint;
+    private Long headId;
+    // Diferencia de ids (aproximada: los ids pueden tener huecos)
+    private Long lagEvents;
+    // Antigüedad del evento más viejo sin entregar
+    private Long lagSeconds;
+    private Long delivered;
+    private Long failures;
+    private String lastError;
+    private LocalDateTime lastDeliveredAt;
+}
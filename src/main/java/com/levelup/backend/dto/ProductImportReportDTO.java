@@ -0,0 +1,30 @@
+package com.levelup.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductImportReportDTO {
+    private String importId;
+    private String format;
+    private String status;
+    private Long processed;
+    private Long inserted;
+    private Long upserted;
+    private Long failed;
+    private Long elapsedMs;
+    private List<RowError> errors;
+    private Boolean errorsTruncated;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+        private Long line;
+        private String message;
+    }
+}
@@ -0,0 +1,24 @@
+package com.levelup.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+// Fila de importación masiva de productos (una línea NDJSON o un registro CSV)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductImportRow {
+    private Integer id;
+    private String title;
+    private String description;
+    private Double price;
+    private String currency;
+    private Integer categoryId;
+    private String category;
+    private Integer stock;
+    private String image;
+    private Boolean discontinued;
+    private List<String> tags;
+}
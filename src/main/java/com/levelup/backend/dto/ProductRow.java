@@ -0,0 +1,24 @@
+package com.levelup.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+// Proyección de las columnas de Product usadas por ProductDTO (sin etiquetas)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductRow {
+    private Integer id;
+    private String title;
+    private String description;
+    private Double price;
+    private String currency;
+    private Integer categoryId;
+    private Integer stock;
+    private String image;
+    private Boolean discontinued;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+}
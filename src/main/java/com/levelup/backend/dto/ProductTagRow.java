@@ -0,0 +1,15 @@
+package com.levelup.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Proyección de la relación producto-etiqueta
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductTagRow {
+    private Integer productId;
+    private Integer tagId;
+    private String tagName;
+}
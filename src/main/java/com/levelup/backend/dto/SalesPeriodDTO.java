@@ -0,0 +1,17 @@
+package com.levelup.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+// Totales de un periodo (hora o día, según el reporte)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SalesPeriodDTO {
+    private LocalDateTime period;
+    private Long orderCount;
+    private Long units;
+    private Double revenue;
+}
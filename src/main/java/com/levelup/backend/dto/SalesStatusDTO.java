@@ -0,0 +1,14 @@
+package com.levelup.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SalesStatusDTO {
+    private String status;
+    private Long orderCount;
+    private Double revenue;
+}
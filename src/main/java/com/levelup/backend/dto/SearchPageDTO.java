@@ -0,0 +1,16 @@
+package com.levelup.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchPageDTO<T> {
+    private List<T> items;
+    private Integer total;
+    private Integer page;
+    private Integer size;
+}
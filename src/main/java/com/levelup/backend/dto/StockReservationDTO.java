@@ -0,0 +1,18 @@
+package com.levelup.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockReservationDTO {
+    private Long id;
+    private Integer productId;
+    private Integer quantity;
+    private String status;
+    private LocalDateTime expiresAt;
+    private LocalDateTime createdAt;
+}
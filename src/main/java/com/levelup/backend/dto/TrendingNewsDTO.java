@@ -0,0 +1,20 @@
+package com.levelup.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TrendingNewsDTO {
+    private Long id;
+    private String title;
+    private String summary;
+    private String thumbnail;
+    private String category;
+    private LocalDateTime createdAt;
+    // Vistas recientes ponderadas: cada vista pierde la mitad de su peso por vida media
+    private Double score;
+}
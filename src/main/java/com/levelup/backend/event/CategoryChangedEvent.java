@@ -0,0 +1,19 @@
+package com.levelup.backend.event;
+
+import java.util.List;
+
+/**
+ * Categoría creada o renombrada; name es null si la categoría fue eliminada.
+ * Al eliminarla, deletedProductIds lleva los productos borrados en cascada
+ * (Category.products), para que las cachés los quiten sin consultar la base.
+ */
+public record CategoryChangedEvent(Integer categoryId, String name, List<Integer> deletedProductIds) {
+
+    public CategoryChangedEvent {
+        deletedProductIds = List.copyOf(deletedProductIds);
+    }
+
+    public CategoryChangedEvent(Integer categoryId, String name) {
+        this(categoryId, name, List.of());
+    }
+}
@@ -0,0 +1,14 @@
+package com.levelup.backend.event;
+
+import com.levelup.backend.dto.NewsDTO;
+
+/**
+ * Noticia creada o modificada. wasPublished indica si ya estaba publicada
+ * antes del cambio, para detectar cuándo pasa a publicarse.
+ */
+public record NewsChangedEvent(NewsDTO news, boolean created, boolean wasPublished) {
+
+    public boolean isNewlyPublished() {
+        return Boolean.TRUE.equals(news.getIsPublished()) && (created || !wasPublished);
+    }
+}
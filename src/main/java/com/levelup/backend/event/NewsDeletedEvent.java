@@ -0,0 +1,3 @@
+package com.levelup.backend.event;
+
+public record NewsDeletedEvent(Long newsId) {}
@@ -0,0 +1,23 @@
+package com.levelup.backend.event;
+
+import com.levelup.backend.dto.OrderLineRow;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Cambio de una orden visto por las agregaciones de ventas: se resta lo que
+ * aportaba con (fromStatus, fromTotal, fromLines) y se suma con (toStatus,
+ * toTotal, toLines). fromStatus es null al crearla y toStatus es null al
+ * eliminarla. Un cambio de items deja estado y total iguales en ambos lados
+ * y solo lleva las líneas que cambiaron.
+ */
+public record OrderSalesEvent(Integer orderId, LocalDateTime orderCreatedAt, String fromStatus, Double fromTotal,
+                              String toStatus, Double toTotal, List<OrderLineRow> fromLines,
+                              List<OrderLineRow> toLines) {
+
+    // Mismas líneas en ambos lados: la orden cambia de estado o total, no de items
+    public OrderSalesEvent(Integer orderId, LocalDateTime orderCreatedAt, String fromStatus, Double fromTotal,
+                           String toStatus, Double toTotal, List<OrderLineRow> lines) {
+        this(orderId, orderCreatedAt, fromStatus, fromTotal, toStatus, toTotal, lines, lines);
+    }
+}
@@ -0,0 +1,29 @@
+package com.levelup.backend.event;
+
+import com.levelup.backend.dto.ProductDTO;
+import java.util.List;
+
+/**
+ * Productos creados o modificados dentro de la transacción actual.
+ * Los oyentes con @TransactionalEventListener lo reciben tras el commit.
+ * stockOnly indica que solo cambió el stock por reservas (ver
+ * StockReservationService), agrupado desde la última publicación.
+ */
+public record ProductsChangedEvent(List<ProductDTO> products, boolean stockOnly) {
+
+    public ProductsChangedEvent {
+        products = List.copyOf(products);
+    }
+
+    public ProductsChangedEvent(List<ProductDTO> products) {
+        this(products, false);
+    }
+
+    public static ProductsChangedEvent of(ProductDTO product) {
+        return new ProductsChangedEvent(List.of(product));
+    }
+
+    public static ProductsChangedEvent stock(List<ProductDTO> products) {
+        return new ProductsChangedEvent(products, true);
+    }
+}
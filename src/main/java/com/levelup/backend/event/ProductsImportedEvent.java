@@ -0,0 +1,16 @@
+package com.levelup.backend.event;
+
+import com.levelup.backend.dto.ProductDTO;
+import java.util.List;
+
+/**
+ * Productos de un bloque de una importación masiva, publicado al confirmarse
+ * ese bloque. Las cachés lo aplican como un único cambio; el outbox del
+ * bloque ya se escribió en su misma transacción (ver ProductImportService).
+ */
+public record ProductsImportedEvent(String importId, List<ProductDTO> products) {
+
+    public ProductsImportedEvent {
+        products = List.copyOf(products);
+    }
+}
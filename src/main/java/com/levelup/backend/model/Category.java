@@ -1,6 +1,8 @@
 package com.levelup.backend.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.UpdateTimestamp;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
@@ -14,6 +16,10 @@ public class Category {
     @Column(nullable = false)
     private String name;
 
+    // Nulo en las categorías anteriores a la columna hasta su próxima modificación
+    @UpdateTimestamp
+    private LocalDateTime updatedAt;
+
     @OneToMany(mappedBy = "category", cascade = CascadeType.ALL)
     private List<Product> products;
 
@@ -41,6 +47,14 @@ public class Category {
         this.name = name;
     }
 
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
     public List<Product> getProducts() {
         return products;
     }
@@ -6,7 +6,10 @@ import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
 @Entity
-@Table(name = "news")
+@Table(name = "news", indexes = {
+    @Index(name = "idx_news_published_created_id", columnList = "isPublished, createdAt, id"),
+    @Index(name = "idx_news_category_published_created_id", columnList = "category, isPublished, createdAt, id")
+})
 public class News {
 
     @Id
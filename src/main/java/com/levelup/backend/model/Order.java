@@ -6,7 +6,10 @@ import java.time.LocalDateTime;
 import org.hibernate.annotations.CreationTimestamp;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+    @Index(name = "idx_orders_user_created_id", columnList = "user_id, createdAt, id"),
+    @Index(name = "idx_orders_created", columnList = "createdAt")
+})
 public class Order {
 
     @Id
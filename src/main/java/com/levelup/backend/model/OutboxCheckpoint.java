@@ -0,0 +1,48 @@
+package com.levelup.backend.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// Último evento del outbox entregado a cada destino
+@Entity
+@Table(name = "outbox_checkpoints")
+public class OutboxCheckpoint {
+
+    @Id
+    @Column(length = 100)
+    private String sink;
+
+    @Column(nullable = false)
+    private Long lastEventId;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+
+    // Constructores
+    public OutboxCheckpoint() {}
+
+    // Getters y Setters
+    public String getSink() {
+        return sink;
+    }
+
+    public void setSink(String sink) {
+        this.sink = sink;
+    }
+
+    public Long getLastEventId() {
+        return lastEventId;
+    }
+
+    public void setLastEventId(Long lastEventId) {
+        this.lastEventId = lastEventId;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -7,7 +7,13 @@ import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
 @Entity
-@Table(name = "products")
+@Table(name = "products", indexes = {
+    @Index(name = "idx_products_created_at_id", columnList = "createdAt, id"),
+    @Index(name = "idx_products_price_id", columnList = "price, id"),
+    @Index(name = "idx_products_title_id", columnList = "title, id"),
+    @Index(name = "idx_products_category_id_id", columnList = "category_id, id"),
+    @Index(name = "idx_products_discontinued_id", columnList = "discontinued, id")
+})
 public class Product {
 
     @Id
@@ -50,7 +56,7 @@ public class Product {
     @OneToMany(mappedBy = "product", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Favorite> favorites;
 
-    @ManyToMany(fetch = FetchType.EAGER, cascade = { CascadeType.PERSIST, CascadeType.MERGE })
+    @ManyToMany(fetch = FetchType.LAZY, cascade = { CascadeType.PERSIST, CascadeType.MERGE })
     @JoinTable(
         name = "product_tags",
         joinColumns = @JoinColumn(name = "product_id"),
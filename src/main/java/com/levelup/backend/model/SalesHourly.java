@@ -0,0 +1,57 @@
+package com.levelup.backend.model;
+
+import jakarta.persistence.*;
+
+// Agregado de órdenes por hora de creación y estado; lo mantiene SalesRollupService
+@Entity
+@Table(name = "sales_hourly")
+public class SalesHourly {
+
+    @EmbeddedId
+    private SalesHourlyId id;
+
+    @Column(nullable = false)
+    private Long orderCount;
+
+    @Column(nullable = false)
+    private Long units;
+
+    @Column(nullable = false)
+    private Double revenue;
+
+    // Constructores
+    public SalesHourly() {}
+
+    // Getters y Setters
+    public SalesHourlyId getId() {
+        return id;
+    }
+
+    public void setId(SalesHourlyId id) {
+        this.id = id;
+    }
+
+    public Long getOrderCount() {
+        return orderCount;
+    }
+
+    public void setOrderCount(Long orderCount) {
+        this.orderCount = orderCount;
+    }
+
+    public Long getUnits() {
+        return units;
+    }
+
+    public void setUnits(Long units) {
+        this.units = units;
+    }
+
+    public Double getRevenue() {
+        return revenue;
+    }
+
+    public void setRevenue(Double revenue) {
+        this.revenue = revenue;
+    }
+}
@@ -0,0 +1,52 @@
+package com.levelup.backend.model;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+@Embeddable
+public class SalesHourlyId implements Serializable {
+
+    // Inicio de la hora (minutos y segundos en cero)
+    private LocalDateTime bucket;
+
+    @Column(length = 20)
+    private String status;
+
+    public SalesHourlyId() {}
+
+    public SalesHourlyId(LocalDateTime bucket, String status) {
+        this.bucket = bucket;
+        this.status = status;
+    }
+
+    public LocalDateTime getBucket() {
+        return bucket;
+    }
+
+    public void setBucket(LocalDateTime bucket) {
+        this.bucket = bucket;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        SalesHourlyId that = (SalesHourlyId) o;
+        return Objects.equals(bucket, that.bucket) && Objects.equals(status, that.status);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(bucket, status);
+    }
+}
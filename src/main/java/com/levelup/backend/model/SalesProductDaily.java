@@ -0,0 +1,58 @@
+package com.levelup.backend.model;
+
+import jakarta.persistence.*;
+
+// Unidades e ingresos por día, producto y estado de la orden. La categoría es la del producto al vender
+@Entity
+@Table(name = "sales_product_daily", indexes = {
+    @Index(name = "idx_sales_product_daily_date_category", columnList = "saleDate, categoryId")
+})
+public class SalesProductDaily {
+
+    @EmbeddedId
+    private SalesProductDailyId id;
+
+    private Integer categoryId;
+
+    @Column(nullable = false)
+    private Long units;
+
+    @Column(nullable = false)
+    private Double revenue;
+
+    // Constructores
+    public SalesProductDaily() {}
+
+    // Getters y Setters
+    public SalesProductDailyId getId() {
+        return id;
+    }
+
+    public void setId(SalesProductDailyId id) {
+        this.id = id;
+    }
+
+    public Integer getCategoryId() {
+        return categoryId;
+    }
+
+    public void setCategoryId(Integer categoryId) {
+        this.categoryId = categoryId;
+    }
+
+    public Long getUnits() {
+        return units;
+    }
+
+    public void setUnits(Long units) {
+        this.units = units;
+    }
+
+    public Double getRevenue() {
+        return revenue;
+    }
+
+    public void setRevenue(Double revenue) {
+        this.revenue = revenue;
+    }
+}
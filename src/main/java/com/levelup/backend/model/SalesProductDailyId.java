@@ -0,0 +1,63 @@
+package com.levelup.backend.model;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+@Embeddable
+public class SalesProductDailyId implements Serializable {
+
+    private LocalDate saleDate;
+
+    private Integer productId;
+
+    @Column(length = 20)
+    private String status;
+
+    public SalesProductDailyId() {}
+
+    public SalesProductDailyId(LocalDate saleDate, Integer productId, String status) {
+        this.saleDate = saleDate;
+        this.productId = productId;
+        this.status = status;
+    }
+
+    public LocalDate getSaleDate() {
+        return saleDate;
+    }
+
+    public void setSaleDate(LocalDate saleDate) {
+        this.saleDate = saleDate;
+    }
+
+    public Integer getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Integer productId) {
+        this.productId = productId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        SalesProductDailyId that = (SalesProductDailyId) o;
+        return Objects.equals(saleDate, that.saleDate) && Objects.equals(productId, that.productId)
+                && Objects.equals(status, that.status);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(saleDate, productId, status);
+    }
+}
@@ -0,0 +1,73 @@
+package com.levelup.backend.outbox;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Escribe los eventos como JSON por línea en un archivo por día
+ * (events-AAAA-MM-DD.jsonl). Cada lote se sincroniza a disco antes de
+ * confirmar la entrega.
+ */
+@Component
+public class FileOutboxSink implements OutboxSink {
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${levelup.outbox.file.dir:outbox}")
+    private String directoryName;
+
+    private Path directory;
+
+    @PostConstruct
+    public void init() throws IOException {
+        directory = Files.createDirectories(Path.of(directoryName));
+    }
+
+    @Override
+    public String name() {
+        return "file";
+    }
+
+    @Override
+    public void deliver(List<OutboxMessage> batch) throws IOException {
+        Map<LocalDate, StringBuilder> byDay = new LinkedHashMap<>();
+        for (OutboxMessage message : batch) {
+            Map<String, Object> line = new LinkedHashMap<>();
+            line.put("id", message.id());
+            line.put("aggregateType", message.aggregateType());
+            line.put("aggregateId", message.aggregateId());
+            line.put("eventType", message.eventType());
+            line.put("createdAt", message.createdAt().toString());
+            line.put("payload", objectMapper.readTree(message.payload()));
+            byDay.computeIfAbsent(message.createdAt().toLocalDate(), day -> new StringBuilder())
+                    .append(objectMapper.writeValueAsString(line)).append('\n');
+        }
+        for (Map.Entry<LocalDate, StringBuilder> entry : byDay.entrySet()) {
+            Path file = directory.resolve("events-" + entry.getKey() + ".jsonl");
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND)) {
+                ByteBuffer buffer = ByteBuffer.wrap(entry.getValue().toString().getBytes(StandardCharsets.UTF_8));
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            }
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.levelup.backend.outbox;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Republica cada evento del outbox como OutboxMessage para los
+ * @EventListener de la aplicación. Se llama a los oyentes en el hilo del
+ * despachador; si uno lanza una excepción el lote se reintenta, así que los
+ * oyentes deben ser idempotentes (pueden filtrar por id).
+ */
+@Component
+public class InProcessOutboxSink implements OutboxSink {
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Override
+    public String name() {
+        return "listeners";
+    }
+
+    @Override
+    public void deliver(List<OutboxMessage> batch) {
+        for (OutboxMessage message : batch) {
+            eventPublisher.publishEvent(message);
+        }
+    }
+}
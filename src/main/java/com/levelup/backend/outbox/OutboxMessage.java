@@ -0,0 +1,10 @@
+package com.levelup.backend.outbox;
+
+import java.time.LocalDateTime;
+
+/**
+ * Evento leído del outbox. La entrega es al menos una vez: un destino puede
+ * recibir el mismo id más de una vez y debe tolerarlo.
+ */
+public record OutboxMessage(long id, String aggregateType, String aggregateId, String eventType, String payload,
+                            LocalDateTime createdAt) {}
@@ -0,0 +1,16 @@
+package com.levelup.backend.outbox;
+
+import java.util.List;
+
+/**
+ * Destino de los eventos del outbox. El despachador entrega lotes en orden de
+ * id y solo avanza el checkpoint del destino si deliver termina sin
+ * excepción; si falla, el mismo lote se reintenta más tarde.
+ */
+public interface OutboxSink {
+
+    // Nombre estable: identifica el checkpoint del destino
+    String name();
+
+    void deliver(List<OutboxMessage> batch) throws Exception;
+}
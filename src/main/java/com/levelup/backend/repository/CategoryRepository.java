@@ -1,9 +1,18 @@
 package com.levelup.backend.repository;
 
+import com.levelup.backend.dto.ChangeStamp;
 import com.levelup.backend.model.Category;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
+import java.util.List;
 
 @Repository
 public interface CategoryRepository extends JpaRepository<Category, Integer> {
+    List<Category> findByNameIn(Collection<String> names);
+
+    // Validador de la colección sin cargar las filas
+    @Query("select new com.levelup.backend.dto.ChangeStamp(count(c), max(c.updatedAt)) from Category c")
+    ChangeStamp findChangeStamp();
 }
@@ -0,0 +1,30 @@
+package com.levelup.backend.repository;
+
+import com.levelup.backend.model.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    // Borrado condicional: solo se elimina si sigue siendo el mismo registro en curso
+    @Modifying
+    @Query("delete from IdempotencyRecord r where r.id = :id and r.status = 'in_progress' and r.createdAt = :createdAt")
+    int deleteInProgress(@Param("id") String id, @Param("createdAt") LocalDateTime createdAt);
+
+    @Modifying
+    @Query("delete from IdempotencyRecord r where r.id = :id and r.status = 'in_progress' and r.claimToken = :claimToken")
+    int deleteClaim(@Param("id") String id, @Param("claimToken") String claimToken);
+
+    @Modifying
+    @Query("delete from IdempotencyRecord r where r.id = :id and r.expiresAt < :now")
+    int deleteExpired(@Param("id") String id, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("delete from IdempotencyRecord r where r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
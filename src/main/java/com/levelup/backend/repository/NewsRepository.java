@@ -1,9 +1,18 @@
 package com.levelup.backend.repository;
 
+import com.levelup.backend.dto.ChangeStamp;
+import com.levelup.backend.dto.NewsIndexRow;
+import com.levelup.backend.dto.NewsFeedItemDTO;
+import com.levelup.backend.dto.NewsVersion;
 import com.levelup.backend.model.News;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface NewsRepository extends JpaRepository<News, Long> {
@@ -11,4 +20,56 @@ public interface NewsRepository extends JpaRepository<News, Long> {
     List<News> findByIsPublishedTrue();
     List<News> findByTitleContainingIgnoreCase(String title);
     List<News> findByCategoryAndIsPublishedTrue(String category);
+
+    // Marcas de cambio para GET condicionales (ETag / Last-Modified)
+    String CHANGE_STAMP = "select new com.levelup.backend.dto.ChangeStamp(count(n), max(n.updatedAt)) from News n ";
+
+    @Query("select new com.levelup.backend.dto.NewsVersion(n.updatedAt, n.views) from News n where n.id = :id")
+    Optional<NewsVersion> findVersionById(@Param("id") Long id);
+
+    @Query(CHANGE_STAMP)
+    ChangeStamp findChangeStamp();
+
+    @Query(CHANGE_STAMP + "where n.isPublished = true")
+    ChangeStamp findPublishedChangeStamp();
+
+    @Query(CHANGE_STAMP + "where n.category = :category")
+    ChangeStamp findChangeStampByCategory(@Param("category") String category);
+
+    @Query(CHANGE_STAMP + "where n.category = :category and n.isPublished = true")
+    ChangeStamp findPublishedChangeStampByCategory(@Param("category") String category);
+
+    // Carga del índice de búsqueda por keyset sobre id: cada página es una consulta acotada sin OFFSET
+    @Query("select new com.levelup.backend.dto.NewsIndexRow(n.id, n.title, n.summary, n.content, n.author, "
+            + "n.category, n.isPublished, n.createdAt) from News n where n.id > :afterId order by n.id")
+    List<NewsIndexRow> findIndexRowsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("select n.views from News n where n.id = :id")
+    Optional<Integer> findViewsById(@Param("id") Long id);
+
+    // Feed de noticias publicadas: solo columnas de resumen, paginado por (createdAt, id) descendente
+    String FEED_ITEM = "select new com.levelup.backend.dto.NewsFeedItemDTO(n.id, n.title, n.summary, n.thumbnail, "
+            + "n.category, n.createdAt) from News n where n.isPublished = true ";
+
+    String FEED_AFTER = "and (n.createdAt < :createdAt or (n.createdAt = :createdAt and n.id < :id)) ";
+
+    String FEED_ORDER = "order by n.createdAt desc, n.id desc";
+
+    @Query(FEED_ITEM + FEED_ORDER)
+    List<NewsFeedItemDTO> findFeed(Pageable pageable);
+
+    @Query(FEED_ITEM)
+    List<NewsFeedItemDTO> findAllFeedItems();
+
+    @Query(FEED_ITEM + FEED_AFTER + FEED_ORDER)
+    List<NewsFeedItemDTO> findFeedAfter(@Param("createdAt") LocalDateTime createdAt, @Param("id") Long id,
+                                        Pageable pageable);
+
+    @Query(FEED_ITEM + "and n.category = :category " + FEED_ORDER)
+    List<NewsFeedItemDTO> findFeedByCategory(@Param("category") String category, Pageable pageable);
+
+    @Query(FEED_ITEM + "and n.category = :category " + FEED_AFTER + FEED_ORDER)
+    List<NewsFeedItemDTO> findFeedByCategoryAfter(@Param("category") String category,
+                                                  @Param("createdAt") LocalDateTime createdAt,
+                                                  @Param("id") Long id, Pageable pageable);
 }
@@ -1,11 +1,26 @@
 package com.levelup.backend.repository;
 
+import com.levelup.backend.dto.OrderHistoryItemDTO;
+import com.levelup.backend.dto.OrderLineRow;
 import com.levelup.backend.model.OrderItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface OrderItemRepository extends JpaRepository<OrderItem, Integer> {
     List<OrderItem> findByOrder_Id(Integer orderId);
+
+    // Items de varias órdenes con el resumen del producto en una sola consulta
+    @Query("select new com.levelup.backend.dto.OrderHistoryItemDTO(i.id, i.order.id, p.id, p.title, p.image, "
+            + "p.currency, i.quantity, i.price) from OrderItem i join i.product p "
+            + "where i.order.id in :orderIds order by i.order.id, i.id")
+    List<OrderHistoryItemDTO> findHistoryItemsByOrderIdIn(@Param("orderIds") Collection<Integer> orderIds);
+
+    @Query("select new com.levelup.backend.dto.OrderLineRow(p.id, c.id, i.quantity, i.price) "
+            + "from OrderItem i join i.product p left join p.category c where i.order.id = :orderId")
+    List<OrderLineRow> findLinesByOrderId(@Param("orderId") Integer orderId);
 }
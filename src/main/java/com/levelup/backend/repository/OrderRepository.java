@@ -1,11 +1,38 @@
 package com.levelup.backend.repository;
 
 import com.levelup.backend.model.Order;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Integer> {
+    // Items en la misma consulta para que convertToDTO no los cargue orden por orden
+    @EntityGraph(attributePaths = "items")
     List<Order> findByUser_Id(Integer userId);
+
+    // Historial por usuario, más recientes primero, paginado por (createdAt, id); status opcional
+    String HISTORY = "select o from Order o where o.user.id = :userId and (:status is null or o.status = :status) ";
+
+    String HISTORY_AFTER = "and (o.createdAt < :createdAt or (o.createdAt = :createdAt and o.id < :id)) ";
+
+    String HISTORY_ORDER = "order by o.createdAt desc, o.id desc";
+
+    @Query(HISTORY + HISTORY_ORDER)
+    List<Order> findHistory(@Param("userId") Integer userId, @Param("status") String status, Pageable pageable);
+
+    @Query(HISTORY + HISTORY_AFTER + HISTORY_ORDER)
+    List<Order> findHistoryAfter(@Param("userId") Integer userId, @Param("status") String status,
+                                 @Param("createdAt") LocalDateTime createdAt, @Param("id") Integer id,
+                                 Pageable pageable);
+
+    // Cuáles de estos ids siguen en la base (las órdenes archivadas no)
+    @Query("select o.id from Order o where o.id in :ids")
+    List<Integer> findExistingIds(@Param("ids") Collection<Integer> ids);
 }
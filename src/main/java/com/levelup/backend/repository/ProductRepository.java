@@ -1,13 +1,103 @@
 package com.levelup.backend.repository;
 
+import com.levelup.backend.dto.ChangeStamp;
+import com.levelup.backend.dto.ProductCategoryRow;
+import com.levelup.backend.dto.ProductRow;
+import com.levelup.backend.dto.ProductTagRow;
 import com.levelup.backend.model.Product;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Integer> {
     List<Product> findByCategory_Id(Integer categoryId);
     List<Product> findByTitleContainingIgnoreCase(String title);
+    Page<Product> findByTitleContainingIgnoreCase(String title, Pageable pageable);
     List<Product> findByDiscontinued(Boolean discontinued);
+
+    // Consultas paginadas por keyset (ver ProductPageService)
+    Window<Product> findAllBy(ScrollPosition position, Sort sort, Limit limit);
+    Window<Product> findByCategory_Id(Integer categoryId, ScrollPosition position, Sort sort, Limit limit);
+    Window<Product> findByDiscontinued(Boolean discontinued, ScrollPosition position, Sort sort, Limit limit);
+
+    // Proyecciones para listados (ver ProductQueryService)
+    String PRODUCT_ROW = "select new com.levelup.backend.dto.ProductRow(p.id, p.title, p.description, p.price, "
+            + "p.currency, c.id, p.stock, p.image, p.discontinued, p.createdAt, p.updatedAt) "
+            + "from Product p left join p.category c ";
+
+    String PRODUCT_TAG_ROW = "select new com.levelup.backend.dto.ProductTagRow(p.id, t.id, t.name) "
+            + "from Product p join p.tags t ";
+
+    @Query(PRODUCT_ROW + "order by p.id")
+    List<ProductRow> findAllRows();
+
+    @Query(PRODUCT_ROW + "where c.id = :categoryId order by p.id")
+    List<ProductRow> findRowsByCategoryId(@Param("categoryId") Integer categoryId);
+
+    @Query(PRODUCT_ROW + "where p.discontinued = :discontinued order by p.id")
+    List<ProductRow> findRowsByDiscontinued(@Param("discontinued") Boolean discontinued);
+
+    @Query(PRODUCT_ROW + "where p.id in :ids")
+    List<ProductRow> findRowsByIdIn(@Param("ids") Collection<Integer> ids);
+
+    @Query(PRODUCT_TAG_ROW + "order by p.id, t.id")
+    List<ProductTagRow> findAllTagRows();
+
+    @Query(PRODUCT_TAG_ROW + "where p.category.id = :categoryId order by p.id, t.id")
+    List<ProductTagRow> findTagRowsByCategoryId(@Param("categoryId") Integer categoryId);
+
+    @Query(PRODUCT_TAG_ROW + "where p.discontinued = :discontinued order by p.id, t.id")
+    List<ProductTagRow> findTagRowsByDiscontinued(@Param("discontinued") Boolean discontinued);
+
+    @Query(PRODUCT_TAG_ROW + "where p.id in :ids order by p.id, t.id")
+    List<ProductTagRow> findTagRowsByProductIdIn(@Param("ids") Collection<Integer> ids);
+
+    // Productos que se eliminan en cascada con su categoría
+    @Query("select p.id from Product p where p.category.id = :categoryId")
+    List<Integer> findIdsByCategoryId(@Param("categoryId") Integer categoryId);
+
+    // Actualizaciones condicionales de stock (ver StockReservationService)
+    @Query("select p.stock from Product p where p.id = :id")
+    Integer findStockById(@Param("id") Integer id);
+
+    @Modifying
+    @Query("update Product p set p.stock = p.stock - :quantity, p.updatedAt = local datetime "
+            + "where p.id = :id and p.stock >= :quantity")
+    int decrementStock(@Param("id") Integer id, @Param("quantity") Integer quantity);
+
+    @Modifying
+    @Query("update Product p set p.stock = p.stock + :quantity, p.updatedAt = local datetime where p.id = :id")
+    int incrementStock(@Param("id") Integer id, @Param("quantity") Integer quantity);
+
+    // Marcas de cambio para GET condicionales (ETag / Last-Modified)
+    String CHANGE_STAMP = "select new com.levelup.backend.dto.ChangeStamp(count(p), max(p.updatedAt)) from Product p ";
+
+    @Query("select new com.levelup.backend.dto.ProductCategoryRow(p.id, c.id) from Product p left join p.category c "
+            + "where p.id in :ids")
+    List<ProductCategoryRow> findCategoryRowsByIdIn(@Param("ids") Collection<Integer> ids);
+
+    @Query("select p.updatedAt from Product p where p.id = :id")
+    Optional<LocalDateTime> findUpdatedAtById(@Param("id") Integer id);
+
+    @Query(CHANGE_STAMP)
+    ChangeStamp findChangeStamp();
+
+    @Query(CHANGE_STAMP + "where p.category.id = :categoryId")
+    ChangeStamp findChangeStampByCategoryId(@Param("categoryId") Integer categoryId);
+
+    @Query(CHANGE_STAMP + "where p.discontinued = :discontinued")
+    ChangeStamp findChangeStampByDiscontinued(@Param("discontinued") Boolean discontinued);
 }
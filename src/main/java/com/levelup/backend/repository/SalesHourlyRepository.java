@@ -0,0 +1,30 @@
+package com.levelup.backend.repository;
+
+import com.levelup.backend.dto.SalesPeriodDTO;
+import com.levelup.backend.dto.SalesStatusDTO;
+import com.levelup.backend.model.SalesHourly;
+import com.levelup.backend.model.SalesHourlyId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface SalesHourlyRepository extends JpaRepository<SalesHourly, SalesHourlyId> {
+
+    // Rango [from, to) sobre filas ya agregadas; status null = todos los estados
+    String RANGE = "from SalesHourly h where h.id.bucket >= :from and h.id.bucket < :to "
+            + "and (:status is null or h.id.status = :status) ";
+
+    @Query("select new com.levelup.backend.dto.SalesPeriodDTO(h.id.bucket, sum(h.orderCount), sum(h.units), "
+            + "sum(h.revenue)) " + RANGE + "group by h.id.bucket order by h.id.bucket")
+    List<SalesPeriodDTO> findHourly(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+                                    @Param("status") String status);
+
+    @Query("select new com.levelup.backend.dto.SalesStatusDTO(h.id.status, sum(h.orderCount), sum(h.revenue)) "
+            + RANGE + "group by h.id.status order by h.id.status")
+    List<SalesStatusDTO> findByStatus(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+                                      @Param("status") String status);
+}
@@ -0,0 +1,32 @@
+package com.levelup.backend.repository;
+
+import com.levelup.backend.dto.CategorySalesDTO;
+import com.levelup.backend.dto.ProductSalesDTO;
+import com.levelup.backend.model.SalesProductDaily;
+import com.levelup.backend.model.SalesProductDailyId;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface SalesProductDailyRepository extends JpaRepository<SalesProductDaily, SalesProductDailyId> {
+
+    String RANGE = "where r.id.saleDate >= :from and r.id.saleDate <= :to "
+            + "and (:status is null or r.id.status = :status) ";
+
+    @Query("select new com.levelup.backend.dto.ProductSalesDTO(r.id.productId, p.title, sum(r.units), sum(r.revenue)) "
+            + "from SalesProductDaily r left join Product p on p.id = r.id.productId " + RANGE
+            + "group by r.id.productId, p.title order by sum(r.revenue) desc")
+    List<ProductSalesDTO> findTopProducts(@Param("from") LocalDate from, @Param("to") LocalDate to,
+                                          @Param("status") String status, Pageable pageable);
+
+    @Query("select new com.levelup.backend.dto.CategorySalesDTO(r.categoryId, c.name, sum(r.units), sum(r.revenue)) "
+            + "from SalesProductDaily r left join Category c on c.id = r.categoryId " + RANGE
+            + "group by r.categoryId, c.name order by sum(r.revenue) desc")
+    List<CategorySalesDTO> findByCategory(@Param("from") LocalDate from, @Param("to") LocalDate to,
+                                          @Param("status") String status);
+}
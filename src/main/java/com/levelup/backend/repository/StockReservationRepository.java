@@ -0,0 +1,27 @@
+package com.levelup.backend.repository;
+
+import com.levelup.backend.model.StockReservation;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface StockReservationRepository extends JpaRepository<StockReservation, Long> {
+    List<StockReservation> findByStatusAndExpiresAtBeforeOrderByExpiresAt(String status, LocalDateTime time, Limit limit);
+
+    // Cambio de estado condicional: solo una de dos operaciones concurrentes lo logra
+    @Modifying
+    @Query("update StockReservation r set r.status = :to where r.id = :id and r.status = :from")
+    int transition(@Param("id") Long id, @Param("from") String from, @Param("to") String to);
+
+    // Confirmar solo reservas vigentes
+    @Modifying
+    @Query("update StockReservation r set r.status = 'confirmed' "
+            + "where r.id = :id and r.status = 'reserved' and r.expiresAt > :now")
+    int confirm(@Param("id") Long id, @Param("now") LocalDateTime now);
+}
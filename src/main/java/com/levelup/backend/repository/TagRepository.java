@@ -3,9 +3,12 @@ package com.levelup.backend.repository;
 import com.levelup.backend.model.Tag;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface TagRepository extends JpaRepository<Tag, Integer> {
     Optional<Tag> findByName(String name);
+    List<Tag> findByNameIn(Collection<String> names);
 }
@@ -0,0 +1,273 @@
+package com.levelup.backend.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongPredicate;
+import java.util.function.LongToDoubleFunction;
+
+/**
+ * Índice invertido en memoria con actualización incremental por documento.
+ * Cada término se guarda en dos variantes: exacto ("=juego") y prefijo
+ * ("^jue"), de modo que las búsquedas mientras se escribe encuentren
+ * coincidencias parciales sin recorrer todos los documentos.
+ * Las consultas son AND entre términos y se ordenan por TF-IDF ponderado
+ * por campo.
+ *
+ * Cada lista de postings son dos arreglos primitivos paralelos (ids
+ * ordenados y pesos), sin objetos por entrada, y cada documento guarda
+ * referencias a sus listas para poder desindexarse. Los prefijos se generan
+ * hasta TextAnalyzer.MAX_PREFIX caracteres y solo en los campos que lo piden.
+ */
+public class InvertedIndex {
+
+    // Peso relativo de una coincidencia por prefijo frente a una exacta
+    private static final float PREFIX_FACTOR = 0.5f;
+
+    // prefixes: si el campo también se indexa por prefijos (los textos largos suelen no hacerlo)
+    public record Field(String text, float weight, boolean prefixes) {
+
+        public Field(String text, float weight) {
+            this(text, weight, true);
+        }
+    }
+
+    public record Hit(long id, double score) {}
+
+    public record Hits(int total, List<Hit> hits) {}
+
+    private static final Postings EMPTY = new Postings("");
+
+    private final Map<String, Postings> postings = new HashMap<>();
+    private final Map<Long, Postings[]> documents = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Agregar o reemplazar un documento
+    public void index(long id, List<Field> fields) {
+        Map<String, Float> terms = analyze(fields);
+        lock.writeLock().lock();
+        try {
+            removeInternal(id);
+            Postings[] lists = new Postings[terms.size()];
+            int i = 0;
+            for (Map.Entry<String, Float> term : terms.entrySet()) {
+                Postings list = postings.computeIfAbsent(term.getKey(), Postings::new);
+                list.put(id, term.getValue());
+                lists[i++] = list;
+            }
+            documents.put(id, lists);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Hits search(String query, int offset, int limit) {
+        return search(query, offset, limit, id -> true, id -> 1.0);
+    }
+
+    /**
+     * Buscar documentos que contengan todos los términos de la consulta.
+     * El filtro descarta documentos (por ejemplo no publicados) y el factor de
+     * boost se multiplica por la relevancia textual (por ejemplo para favorecer
+     * documentos recientes).
+     */
+    public Hits search(String query, int offset, int limit, LongPredicate filter, LongToDoubleFunction boost) {
+        List<String> tokens = TextAnalyzer.tokenize(query);
+        if (tokens.isEmpty() || limit <= 0) {
+            return new Hits(0, List.of());
+        }
+
+        lock.readLock().lock();
+        try {
+            int totalDocuments = Math.max(documents.size(), 1);
+            List<TokenPostings> perToken = new ArrayList<>(tokens.size());
+            for (String token : tokens) {
+                Postings exact = postings.getOrDefault("=" + token, EMPTY);
+                // Un término más largo que el máximo indexado se busca por su prefijo más largo
+                Postings prefix = postings.getOrDefault("^" + TextAnalyzer.indexedPrefix(token), EMPTY);
+                if (exact.size == 0 && prefix.size == 0) {
+                    return new Hits(0, List.of());
+                }
+                perToken.add(new TokenPostings(exact, prefix,
+                        idf(totalDocuments, exact.size), idf(totalDocuments, exact.size + prefix.size)));
+            }
+            // Se recorre la lista más corta y se consulta el resto por id
+            perToken.sort(Comparator.comparingInt(TokenPostings::size));
+            TokenPostings driver = perToken.get(0);
+
+            int keep = offset + limit;
+            PriorityQueue<Hit> top = new PriorityQueue<>(Comparator.comparingDouble(Hit::score));
+            int total = 0;
+            for (int pass = 0; pass < 2; pass++) {
+                Postings source = pass == 0 ? driver.exact() : driver.prefix();
+                for (int i = 0; i < source.size; i++) {
+                    long id = source.ids[i];
+                    if (pass == 1 && driver.exact().indexOf(id) >= 0) {
+                        continue; // ya contado como coincidencia exacta
+                    }
+                    if (!filter.test(id)) {
+                        continue;
+                    }
+                    double score = 0;
+                    boolean matchesAll = true;
+                    for (TokenPostings token : perToken) {
+                        double tokenScore = token.score(id);
+                        if (tokenScore <= 0) {
+                            matchesAll = false;
+                            break;
+                        }
+                        score += tokenScore;
+                    }
+                    if (!matchesAll) {
+                        continue;
+                    }
+                    total++;
+                    Hit hit = new Hit(id, score * boost.applyAsDouble(id));
+                    if (top.size() < keep) {
+                        top.add(hit);
+                    } else if (hit.score() > top.peek().score()) {
+                        top.poll();
+                        top.add(hit);
+                    }
+                }
+            }
+
+            List<Hit> ordered = new ArrayList<>(top);
+            ordered.sort(Comparator.comparingDouble(Hit::score).reversed().thenComparingLong(Hit::id));
+            List<Hit> page = offset >= ordered.size() ? List.of() : ordered.subList(offset, ordered.size());
+            return new Hits(total, List.copyOf(page));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void removeInternal(long id) {
+        Postings[] previous = documents.remove(id);
+        if (previous == null) {
+            return;
+        }
+        for (Postings list : previous) {
+            if (list.remove(id) && list.size == 0) {
+                postings.remove(list.term, list);
+            }
+        }
+    }
+
+    private static Map<String, Float> analyze(List<Field> fields) {
+        Map<String, Float> terms = new HashMap<>();
+        for (Field field : fields) {
+            for (String token : TextAnalyzer.tokenize(field.text())) {
+                terms.merge("=" + token, field.weight(), Float::sum);
+                if (!field.prefixes()) {
+                    continue;
+                }
+                for (String prefix : TextAnalyzer.prefixes(token)) {
+                    terms.merge("^" + prefix, field.weight() * PREFIX_FACTOR, Math::max);
+                }
+            }
+        }
+        return terms;
+    }
+
+    private static double idf(int totalDocuments, int documentFrequency) {
+        return Math.log(1.0 + (double) totalDocuments / Math.max(documentFrequency, 1));
+    }
+
+    private record TokenPostings(Postings exact, Postings prefix, double exactIdf, double prefixIdf) {
+
+        int size() {
+            return exact.size + prefix.size;
+        }
+
+        double score(long id) {
+            int i = exact.indexOf(id);
+            if (i >= 0) {
+                return Math.log(1.0 + exact.weights[i]) * exactIdf;
+            }
+            i = prefix.indexOf(id);
+            return i >= 0 ? Math.log(1.0 + prefix.weights[i]) * prefixIdf * PREFIX_FACTOR : 0;
+        }
+    }
+
+    // Documentos de un término: ids ordenados y sus pesos en arreglos paralelos
+    private static final class Postings {
+
+        private final String term;
+        private long[] ids = new long[2];
+        private float[] weights = new float[2];
+        private int size;
+
+        private Postings(String term) {
+            this.term = term;
+        }
+
+        int indexOf(long id) {
+            return Arrays.binarySearch(ids, 0, size, id);
+        }
+
+        // Los ids suelen llegar en orden (carga inicial), así que casi siempre se agrega al final
+        void put(long id, float weight) {
+            int i = size > 0 && ids[size - 1] < id ? -size - 1 : indexOf(id);
+            if (i >= 0) {
+                weights[i] = weight;
+                return;
+            }
+            i = -i - 1;
+            if (size == ids.length) {
+                int capacity = size + (size >> 1) + 1;
+                ids = Arrays.copyOf(ids, capacity);
+                weights = Arrays.copyOf(weights, capacity);
+            }
+            System.arraycopy(ids, i, ids, i + 1, size - i);
+            System.arraycopy(weights, i, weights, i + 1, size - i);
+            ids[i] = id;
+            weights[i] = weight;
+            size++;
+        }
+
+        boolean remove(long id) {
+            int i = indexOf(id);
+            if (i < 0) {
+                return false;
+            }
+            System.arraycopy(ids, i + 1, ids, i, size - i - 1);
+            System.arraycopy(weights, i + 1, weights, i, size - i - 1);
+            size--;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.levelup.backend.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Genera fragmentos de texto alrededor de las coincidencias de una búsqueda,
+ * marcando cada palabra encontrada con &lt;mark&gt;&lt;/mark&gt;. La comparación usa
+ * el mismo plegado de tildes y minúsculas que TextAnalyzer.
+ */
+public final class SnippetHighlighter {
+
+    private static final Pattern WORD = Pattern.compile("[\\p{L}\\p{N}]+");
+    private static final String ELLIPSIS = "…";
+
+    private SnippetHighlighter() {}
+
+    public static String snippet(String text, String query, int maxLength) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        List<String> tokens = TextAnalyzer.tokenize(query);
+        String folded = foldAligned(text);
+
+        List<int[]> matches = new ArrayList<>();
+        Matcher matcher = WORD.matcher(folded);
+        while (matcher.find()) {
+            String word = matcher.group();
+            for (String token : tokens) {
+                if (word.startsWith(token)) {
+                    matches.add(new int[] { matcher.start(), matcher.end() });
+                    break;
+                }
+            }
+        }
+
+        int start = 0;
+        if (!matches.isEmpty()) {
+            start = Math.max(0, matches.get(0)[0] - maxLength / 3);
+            // Empezar en un límite de palabra
+            while (start > 0 && !Character.isWhitespace(text.charAt(start - 1))) {
+                start--;
+            }
+        }
+        int end = Math.min(text.length(), start + maxLength);
+
+        StringBuilder snippet = new StringBuilder();
+        if (start > 0) {
+            snippet.append(ELLIPSIS);
+        }
+        int position = start;
+        for (int[] match : matches) {
+            if (match[1] <= start) {
+                continue;
+            }
+            if (match[0] >= end) {
+                break;
+            }
+            int matchStart = Math.max(match[0], start);
+            int matchEnd = Math.min(match[1], end);
+            appendEscaped(snippet, text, position, matchStart);
+            snippet.append("<mark>");
+            appendEscaped(snippet, text, matchStart, matchEnd);
+            snippet.append("</mark>");
+            position = matchEnd;
+        }
+        appendEscaped(snippet, text, position, end);
+        if (end < text.length()) {
+            snippet.append(ELLIPSIS);
+        }
+        return snippet.toString();
+    }
+
+    // Plegado carácter a carácter para que los índices coincidan con el texto original
+    private static String foldAligned(String text) {
+        StringBuilder folded = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            String f = TextAnalyzer.fold(String.valueOf(c));
+            folded.append(f.isEmpty() ? c : f.charAt(0));
+        }
+        return folded.toString();
+    }
+
+    private static void appendEscaped(StringBuilder out, String text, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '<' -> out.append("&lt;");
+                case '>' -> out.append("&gt;");
+                case '&' -> out.append("&amp;");
+                default -> out.append(c);
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.levelup.backend.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Análisis de texto para los índices de búsqueda: pasa a minúsculas, elimina
+ * tildes y diacríticos (búsqueda "cancion" encuentra "Canción"), separa en
+ * palabras, descarta stopwords en español y reduce plurales simples.
+ */
+public final class TextAnalyzer {
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final Set<String> STOPWORDS = Set.of(
+            "a", "al", "ante", "con", "de", "del", "desde", "el", "en", "entre", "es", "la", "las",
+            "lo", "los", "o", "para", "por", "que", "se", "sin", "sobre", "su", "sus", "un", "una",
+            "unos", "unas", "y", "e", "u", "the", "and", "of", "for");
+
+    public static final int MIN_PREFIX = 2;
+    // Más allá de este largo un prefijo ya casi no separa resultados y solo ocupa memoria
+    public static final int MAX_PREFIX = 8;
+
+    private TextAnalyzer() {}
+
+    // Texto normalizado: minúsculas y sin diacríticos
+    public static String fold(String text) {
+        if (text == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return DIACRITICS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    // Términos indexables del texto, en orden de aparición
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        for (String raw : NON_ALPHANUMERIC.split(fold(text))) {
+            if (raw.isEmpty() || STOPWORDS.contains(raw)) {
+                continue;
+            }
+            tokens.add(stem(raw));
+        }
+        return tokens;
+    }
+
+    // Prefijos (edge n-grams) del término para coincidencias parciales
+    public static List<String> prefixes(String token) {
+        List<String> prefixes = new ArrayList<>();
+        int max = Math.min(token.length() - 1, MAX_PREFIX);
+        for (int length = MIN_PREFIX; length <= max; length++) {
+            prefixes.add(token.substring(0, length));
+        }
+        return prefixes;
+    }
+
+    // Prefijo con el que se busca un término parcial: el propio término, o su prefijo indexado más largo
+    public static String indexedPrefix(String token) {
+        return token.length() > MAX_PREFIX ? token.substring(0, MAX_PREFIX) : token;
+    }
+
+    // Reducción de plurales regulares del español: "juegos" -> "juego", "auriculares" -> "auricular"
+    static String stem(String token) {
+        int length = token.length();
+        if (length > 4 && token.endsWith("es") && !isVowel(token.charAt(length - 3))) {
+            return token.substring(0, length - 2);
+        }
+        if (length > 3 && token.endsWith("s") && isVowel(token.charAt(length - 2))) {
+            return token.substring(0, length - 1);
+        }
+        return token;
+    }
+
+    private static boolean isVowel(char c) {
+        return c == 'a' || c == 'e' || c == 'i' || c == 'o' || c == 'u';
+    }
+}
@@ -0,0 +1,85 @@
+package com.levelup.backend.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Borra los carritos abandonados: los de usuarios cuya última modificación
+ * en cart es anterior a levelup.cart.sweep.age-days. Recorre la tabla por
+ * user_id en tramos de batch-size usuarios (lectura sin bloqueos sobre la
+ * clave primaria) y cada tramo se borra con un solo DELETE corto a través
+ * de CartStore, que salta los carritos que están en uso en memoria.
+ */
+@Service
+public class AbandonedCartSweeper {
+
+    private static final Logger logger = LoggerFactory.getLogger(AbandonedCartSweeper.class);
+
+    private static final String CANDIDATES_SQL = "SELECT user_id FROM cart WHERE user_id > ? "
+            + "GROUP BY user_id HAVING MAX(updated_at) < ? ORDER BY user_id LIMIT ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CartStore cartStore;
+
+    @Value("${levelup.cart.sweep.enabled:true}")
+    private boolean enabled;
+
+    @Value("${levelup.cart.sweep.age-days:30}")
+    private int ageDays;
+
+    @Value("${levelup.cart.sweep.batch-size:500}")
+    private int batchSize;
+
+    @Scheduled(fixedDelayString = "${levelup.cart.sweep.interval-ms:3600000}",
+            initialDelayString = "${levelup.cart.sweep.initial-delay-ms:600000}")
+    public void scheduledSweep() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            sweep();
+        } catch (DataAccessException e) {
+            // Lo que quedó se borra en la próxima pasada
+            logger.warn("No se pudieron borrar los carritos abandonados: {}", e.getMessage());
+        }
+    }
+
+    // Devuelve las filas borradas
+    public int sweep() {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(ageDays);
+        int lastUserId = 0;
+        int users = 0;
+        int rows = 0;
+        while (true) {
+            List<Integer> candidates = jdbcTemplate.queryForList(CANDIDATES_SQL, Integer.class, lastUserId,
+                    Timestamp.valueOf(cutoff), batchSize);
+            if (candidates.isEmpty()) {
+                break;
+            }
+            users += candidates.size();
+            rows += cartStore.deleteAbandoned(candidates, cutoff);
+            if (candidates.size() < batchSize) {
+                break;
+            }
+            lastUserId = candidates.get(candidates.size() - 1);
+        }
+        if (rows > 0) {
+            logger.info("Carritos abandonados: {} filas borradas ({} usuarios sin cambios desde {})", rows, users,
+                    cutoff);
+        }
+        return rows;
+    }
+}
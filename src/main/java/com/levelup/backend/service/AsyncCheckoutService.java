@@ -0,0 +1,85 @@
+package com.levelup.backend.service;
+
+import com.levelup.backend.dto.CheckoutTicketDTO;
+import com.levelup.backend.dto.CreateOrderRequest;
+import com.levelup.backend.dto.OrderDTO;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Modo asíncrono de creación de órdenes: la petición solo se encola y se
+ * responde de inmediato con un ticket; los workers crean la orden con
+ * OrderService, cada una en su propia transacción. Así una base lenta llena
+ * la cola (y se rechazan nuevas órdenes) en vez de agotar los hilos del
+ * servidor que atienden el resto de endpoints.
+ */
+@Service
+public class AsyncCheckoutService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncCheckoutService.class);
+
+    @Autowired
+    private OrderService orderService;
+
+    @Value("${levelup.checkout.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${levelup.checkout.workers:8}")
+    private int workers;
+
+    @Value("${levelup.checkout.ticket-ttl-minutes:30}")
+    private long ticketTtlMinutes;
+
+    @Value("${levelup.checkout.shutdown-timeout-ms:30000}")
+    private long shutdownTimeoutMs;
+
+    private CheckoutQueue<CreateOrderRequest, OrderDTO> queue;
+
+    @PostConstruct
+    public void init() {
+        queue = new CheckoutQueue<>(queueCapacity, workers, orderService::createOrder);
+        logger.info("Cola de checkout asíncrono: capacidad {}, {} workers", queueCapacity, workers);
+    }
+
+    // null si la cola está llena
+    public CheckoutTicketDTO submit(CreateOrderRequest request) {
+        CheckoutQueue.Ticket<CreateOrderRequest, OrderDTO> ticket = queue.submit(request);
+        return ticket != null ? toDTO(ticket) : null;
+    }
+
+    public CheckoutTicketDTO getTicket(String ticketId) {
+        CheckoutQueue.Ticket<CreateOrderRequest, OrderDTO> ticket = queue.ticket(ticketId);
+        return ticket != null ? toDTO(ticket) : null;
+    }
+
+    public CheckoutQueue.Stats stats() {
+        return queue.stats();
+    }
+
+    @Scheduled(fixedDelayString = "${levelup.checkout.evict-interval-ms:60000}")
+    public void evictCompleted() {
+        queue.evictCompleted(TimeUnit.MINUTES.toNanos(ticketTtlMinutes));
+    }
+
+    // Las órdenes ya aceptadas (202) se crean antes de apagar, hasta shutdown-timeout-ms
+    @PreDestroy
+    public void shutdown() {
+        queue.shutdown(shutdownTimeoutMs);
+    }
+
+    private static CheckoutTicketDTO toDTO(CheckoutQueue.Ticket<CreateOrderRequest, OrderDTO> ticket) {
+        // El estado se lee primero: si está terminado, el resultado ya es visible
+        String status = ticket.getStatus();
+        OrderDTO order = ticket.getResult();
+        return new CheckoutTicketDTO(ticket.getId(), status, order != null ? order.getId() : null, order,
+                ticket.getError());
+    }
+}
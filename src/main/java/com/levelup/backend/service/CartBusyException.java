@@ -0,0 +1,13 @@
+package com.levelup.backend.service;
+
+// El carrito sigue bloqueado por un cambio externo (checkout, limpieza) tras levelup.cart.store.fence-timeout-ms
+public class CartBusyException extends IllegalStateException {
+
+    public CartBusyException(int userId) {
+        super("El carrito del usuario " + userId + " está ocupado");
+    }
+
+    public CartBusyException(int userId, Throwable cause) {
+        super("Interrumpido esperando el carrito del usuario " + userId, cause);
+    }
+}
@@ -0,0 +1,844 @@
+package com.levelup.backend.service;
+
+import com.levelup.backend.dto.CartDTO;
+import com.levelup.backend.dto.CartOperation;
+import com.levelup.backend.dto.CartStoreStatsDTO;
+import com.levelup.backend.dto.ProductDTO;
+import com.levelup.backend.dto.ProductRow;
+import com.levelup.backend.repository.ProductRepository;
+import com.levelup.backend.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Carritos activos en memoria con escritura diferida. El carrito de un
+ * usuario se carga de la base la primera vez que se usa; desde ahí las
+ * lecturas y cambios ocurren en memoria (bajo el lock de ese carrito) y solo
+ * se anota qué productos cambiaron. Un proceso periódico escribe en un batch
+ * el estado actual de esos productos (upsert o delete), así diez cambios de
+ * cantidad seguidos se convierten en una sola fila escrita. Los carritos
+ * vacíos y sin cambios no se guardan entre operaciones; los inactivos se
+ * escriben y se descartan periódicamente, y al pasar de
+ * levelup.cart.store.max-carts se descartan en el momento los que no tienen
+ * nada pendiente. Al apagar se escribe todo lo pendiente.
+ *
+ * Quien cambie la tabla cart por su cuenta (checkout, borrados masivos) debe
+ * hacerlo dentro de withExternalChange, que escribe lo pendiente y deja el
+ * carrito bloqueado hasta que termina su transacción. Como el estado vive en
+ * la memoria de este nodo, con varias instancias las peticiones de un mismo
+ * usuario deben ir siempre a la misma; si no, conviene desactivarlo
+ * (levelup.cart.store.enabled=false), y entonces cada operación lee y
+ * escribe la base directamente.
+ */
+@Service
+public class CartStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(CartStore.class);
+
+    // Operaciones de applyBatch
+    public static final String OP_ADD = "add";
+    public static final String OP_SET = "set";
+    public static final String OP_REMOVE = "remove";
+
+    private static final String LOAD_SQL = "SELECT product_id, quantity, added_at, updated_at FROM cart "
+            + "WHERE user_id = ? ORDER BY added_at, product_id";
+
+    private static final String UPSERT_SQL = "INSERT INTO cart (user_id, product_id, quantity, added_at, updated_at) "
+            + "VALUES (?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE quantity = VALUES(quantity), "
+            + "updated_at = VALUES(updated_at)";
+
+    private static final String DELETE_SQL = "DELETE FROM cart WHERE user_id = ? AND product_id = ?";
+
+    private static final String CLEAR_SQL = "DELETE FROM cart WHERE user_id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductCatalogCache productCatalogCache;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${levelup.cart.store.enabled:true}")
+    private boolean enabled;
+
+    @Value("${levelup.cart.store.max-carts:100000}")
+    private int maxCarts;
+
+    @Value("${levelup.cart.store.idle-minutes:30}")
+    private long idleMinutes;
+
+    @Value("${levelup.cart.store.fence-timeout-ms:10000}")
+    private long fenceTimeoutMs;
+
+    private TransactionTemplate transactionTemplate;
+
+    private final Map<Integer, UserCart> carts = new ConcurrentHashMap<>();
+    private final Set<UserCart> dirty = ConcurrentHashMap.newKeySet();
+
+    // Una sola escritura a la vez: dos flush no pueden reordenar estados del mismo producto
+    private final Object flushLock = new Object();
+
+    // Un solo recorte a la vez; los demás que pasen del límite siguen sin esperar
+    private final AtomicBoolean trimming = new AtomicBoolean();
+
+    private final LongAdder operations = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder rowsWritten = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public List<CartDTO> getCart(int userId) {
+        return withCart(userId, false, this::toDTOs);
+    }
+
+    // Suma la cantidad si el producto ya estaba; IllegalArgumentException si el usuario o el producto no existen
+    public CartDTO add(int userId, int productId, int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Cantidad inválida: " + quantity);
+        }
+        return withCart(userId, true, cart -> {
+            if (!productExists(productId)) {
+                throw new IllegalArgumentException("Producto no encontrado: " + productId);
+            }
+            LocalDateTime now = LocalDateTime.now();
+            Line line = cart.lines.get(productId);
+            if (line == null) {
+                line = new Line(0, now);
+                cart.lines.put(productId, line);
+            }
+            line.quantity += quantity;
+            line.updatedAt = now;
+            cart.changed.add(productId);
+            return toDTOs(cart, List.of(productId)).get(0);
+        });
+    }
+
+    // Cambia la cantidad de un producto que ya está en el carrito; con cantidad 0 o menor se quita
+    public Optional<CartDTO> setQuantity(int userId, int productId, int quantity) {
+        return withCart(userId, false, cart -> {
+            Line line = cart.lines.get(productId);
+            if (line == null) {
+                return Optional.empty();
+            }
+            line.quantity = Math.max(quantity, 0);
+            line.updatedAt = LocalDateTime.now();
+            CartDTO result = toDTOs(cart, List.of(productId)).get(0);
+            if (quantity <= 0) {
+                cart.lines.remove(productId);
+            }
+            cart.changed.add(productId);
+            return Optional.of(result);
+        });
+    }
+
+    public boolean remove(int userId, int productId) {
+        return withCart(userId, false, cart -> {
+            if (cart.lines.remove(productId) == null) {
+                return false;
+            }
+            cart.changed.add(productId);
+            return true;
+        });
+    }
+
+    // Vaciar se escribe como un solo DELETE por usuario; lo pendiente de antes ya no hace falta
+    public void clear(int userId) {
+        withCart(userId, false, cart -> {
+            cart.lines.clear();
+            cart.changed.clear();
+            cart.cleared = true;
+            return null;
+        });
+    }
+
+    /**
+     * Aplica una lista de operaciones (add, set, remove) al carrito de un
+     * usuario, en orden y todas o ninguna: primero se validan y se buscan
+     * de una vez los productos referenciados (catálogo en memoria o una
+     * consulta IN), y solo si todo es válido se cambia el carrito. Las filas
+     * tocadas se escriben juntas en el mismo batch de upserts y deletes.
+     * Devuelve el carrito resultante.
+     */
+    public List<CartDTO> applyBatch(int userId, List<CartOperation> operations) {
+        Set<Integer> referenced = new HashSet<>();
+        for (CartOperation operation : operations) {
+            if (operation == null || operation.getProductId() == null) {
+                throw new IllegalArgumentException("Operación sin producto");
+            }
+            String op = operation.getOp();
+            Integer quantity = operation.getQuantity();
+            if (OP_ADD.equals(op)) {
+                if (quantity == null || quantity <= 0) {
+                    throw new IllegalArgumentException("Cantidad inválida: " + quantity);
+                }
+                referenced.add(operation.getProductId());
+            } else if (OP_SET.equals(op)) {
+                if (quantity == null) {
+                    throw new IllegalArgumentException("Operación set sin cantidad");
+                }
+                if (quantity > 0) {
+                    referenced.add(operation.getProductId());
+                }
+            } else if (!OP_REMOVE.equals(op)) {
+                throw new IllegalArgumentException("Operación desconocida: " + op);
+            }
+        }
+        return withCart(userId, true, cart -> {
+            Map<Integer, ProductDTO> products = products(referenced);
+            for (Integer productId : referenced) {
+                if (!products.containsKey(productId)) {
+                    throw new IllegalArgumentException("Producto no encontrado: " + productId);
+                }
+            }
+            LocalDateTime now = LocalDateTime.now();
+            for (CartOperation operation : operations) {
+                Integer productId = operation.getProductId();
+                Line line = cart.lines.get(productId);
+                if (OP_REMOVE.equals(operation.getOp())
+                        || (OP_SET.equals(operation.getOp()) && operation.getQuantity() <= 0)) {
+                    if (line != null) {
+                        cart.lines.remove(productId);
+                        cart.changed.add(productId);
+                    }
+                    continue;
+                }
+                if (line == null) {
+                    line = new Line(0, now);
+                    cart.lines.put(productId, line);
+                }
+                line.quantity = OP_ADD.equals(operation.getOp())
+                        ? line.quantity + operation.getQuantity()
+                        : operation.getQuantity();
+                line.updatedAt = now;
+                cart.changed.add(productId);
+            }
+            // Los productos que quedaron sin tocar en este batch se completan con la misma búsqueda
+            List<Integer> productIds = new ArrayList<>(cart.lines.keySet());
+            List<Integer> unknown = new ArrayList<>();
+            for (Integer productId : productIds) {
+                if (!products.containsKey(productId)) {
+                    unknown.add(productId);
+                }
+            }
+            if (!unknown.isEmpty()) {
+                products.putAll(products(unknown));
+            }
+            return toDTOs(cart, productIds, products);
+        });
+    }
+
+    /**
+     * Ejecuta un cambio hecho directamente sobre la tabla cart. El carrito en
+     * memoria queda bloqueado hasta que termine la transacción en curso y lo
+     * pendiente del usuario se escribe antes, dentro de esa misma
+     * transacción (sin otra conexión). Si se confirma, el carrito se vuelve
+     * a cargar de la base con lo que haya quedado; si se revierte, lo
+     * pendiente sigue en memoria para el próximo flush.
+     */
+    public <T> T withExternalChange(int userId, Supplier<T> action) {
+        UserCart cart = acquire(userId);
+        try {
+            // La espera es solo sobre este carrito: los flush y checkouts de otros usuarios siguen
+            synchronized (cart) {
+                awaitFence(cart);
+                cart.fenced = true;
+            }
+        } catch (RuntimeException e) {
+            release(cart);
+            throw e;
+        }
+        try {
+            // Un flush que ya tomó cambios de este carrito termina antes; los siguientes lo saltan
+            synchronized (flushLock) {
+                List<Change> pending;
+                synchronized (cart) {
+                    pending = pendingChanges(cart, false);
+                }
+                if (!pending.isEmpty()) {
+                    executeBatch(pending);
+                    rowsWritten.add(pending.size());
+                }
+            }
+        } catch (RuntimeException e) {
+            unfence(cart, false);
+            throw e;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            boolean completed = false;
+            try {
+                T result = action.get();
+                completed = true;
+                return result;
+            } finally {
+                unfence(cart, completed);
+            }
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                unfence(cart, status == STATUS_COMMITTED);
+            }
+        });
+        return action.get();
+    }
+
+    // Fin de un cambio externo: si se confirmó, lo pendiente ya está en la base y se recarga al usarlo
+    private void unfence(UserCart cart, boolean committed) {
+        synchronized (cart) {
+            if (committed) {
+                cart.changed.clear();
+                cart.cleared = false;
+                dirty.remove(cart);
+                cart.lines.clear();
+                cart.loaded = false;
+            }
+            cart.fenced = false;
+            cart.notifyAll();
+        }
+        release(cart);
+    }
+
+    /**
+     * Borra de una vez los carritos abandonados de estos usuarios. Se saltan
+     * los que están en uso en memoria (cargados o con cambios sin escribir);
+     * el resto queda bloqueado mientras se confirma, con la misma consulta,
+     * que ninguna fila cambió después de cutoff y se ejecuta un solo DELETE.
+     * Devuelve las filas borradas.
+     */
+    public int deleteAbandoned(Collection<Integer> userIds, LocalDateTime cutoff) {
+        List<UserCart> locked = new ArrayList<>(userIds.size());
+        try {
+            for (Integer userId : userIds) {
+                UserCart cart = acquire(userId);
+                synchronized (cart) {
+                    if (cart.loaded || cart.hasPending() || cart.fenced) {
+                        release(cart);
+                        continue;
+                    }
+                    cart.fenced = true;
+                }
+                locked.add(cart);
+            }
+            if (locked.isEmpty()) {
+                return 0;
+            }
+            List<Integer> ids = new ArrayList<>(locked.size());
+            for (UserCart cart : locked) {
+                ids.add(cart.userId);
+            }
+            String in = String.join(",", Collections.nCopies(ids.size(), "?"));
+            List<Object> args = new ArrayList<>(ids);
+            args.add(Timestamp.valueOf(cutoff));
+            List<Integer> abandoned = jdbcTemplate.queryForList("SELECT user_id FROM cart WHERE user_id IN (" + in
+                    + ") GROUP BY user_id HAVING MAX(updated_at) < ?", Integer.class, args.toArray());
+            if (abandoned.isEmpty()) {
+                return 0;
+            }
+            String abandonedIn = String.join(",", Collections.nCopies(abandoned.size(), "?"));
+            return jdbcTemplate.update("DELETE FROM cart WHERE user_id IN (" + abandonedIn + ")", abandoned.toArray());
+        } finally {
+            for (UserCart cart : locked) {
+                synchronized (cart) {
+                    cart.fenced = false;
+                    cart.notifyAll();
+                }
+                release(cart);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${levelup.cart.store.flush-interval-ms:1000}")
+    public void flush() {
+        synchronized (flushLock) {
+            if (!dirty.isEmpty()) {
+                write(new ArrayList<>(dirty));
+            }
+        }
+    }
+
+    // Escribe y descarta los carritos inactivos y, si sobran, los usados hace más tiempo
+    @Scheduled(fixedDelayString = "${levelup.cart.store.evict-interval-ms:30000}")
+    public void evict() {
+        synchronized (flushLock) {
+            long idleBefore = System.nanoTime() - TimeUnit.MINUTES.toNanos(idleMinutes);
+            // Se copia el último acceso: ordenar sobre un valor que cambia rompe el Comparator
+            List<Map.Entry<UserCart, Long>> candidates = new ArrayList<>(carts.size());
+            for (UserCart cart : carts.values()) {
+                candidates.add(Map.entry(cart, cart.lastAccess));
+            }
+            candidates.sort(Map.Entry.comparingByValue(Comparator.comparingLong(Long::longValue)));
+            int excess = candidates.size() - maxCarts;
+            List<UserCart> victims = new ArrayList<>();
+            for (Map.Entry<UserCart, Long> candidate : candidates) {
+                if (candidate.getValue() - idleBefore < 0 || victims.size() < excess) {
+                    victims.add(candidate.getKey());
+                } else {
+                    break;
+                }
+            }
+            if (victims.isEmpty()) {
+                return;
+            }
+            write(victims);
+            for (UserCart cart : victims) {
+                synchronized (cart) {
+                    // Si se volvió a usar o quedó algo sin escribir, se queda
+                    if (!cart.hasPending() && cart.users == 0 && !cart.fenced && carts.remove(cart.userId, cart)) {
+                        cart.evicted = true;
+                        evictions.increment();
+                    }
+                }
+            }
+            logger.debug("Carritos descartados de memoria: {}", victims.size());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    public CartStoreStatsDTO stats() {
+        return new CartStoreStatsDTO(enabled, carts.size(), dirty.size(), operations.sum(), flushes.sum(),
+                rowsWritten.sum(), evictions.sum());
+    }
+
+    // Ejecuta la acción con el carrito cargado y bloqueado; sin memoria, escribe y lo descarta al terminar
+    private <T> T withCart(int userId, boolean requireUser, Function<UserCart, T> action) {
+        operations.increment();
+        UserCart cart = acquire(userId);
+        try {
+            synchronized (cart) {
+                awaitFence(cart);
+                if (!cart.loaded) {
+                    load(cart);
+                }
+                if (requireUser && !cart.userExists()) {
+                    throw new IllegalArgumentException("Usuario no encontrado: " + userId);
+                }
+                cart.lastAccess = System.nanoTime();
+                T result = action.apply(cart);
+                if (cart.hasPending()) {
+                    if (enabled) {
+                        dirty.add(cart);
+                    } else {
+                        // Sin caché: se escribe ahora, en la transacción del llamador si la hay
+                        write(List.of(cart));
+                    }
+                }
+                if (!enabled) {
+                    cart.loaded = false;
+                    cart.lines.clear();
+                }
+                return result;
+            }
+        } finally {
+            release(cart);
+        }
+    }
+
+    // Obtiene el carrito del mapa marcándolo en uso, para que el descarte no lo quite mientras tanto
+    private UserCart acquire(int userId) {
+        while (true) {
+            UserCart cart = carts.computeIfAbsent(userId, UserCart::new);
+            boolean acquired;
+            synchronized (cart) {
+                acquired = !cart.evicted;
+                if (acquired) {
+                    cart.users++;
+                }
+            }
+            if (acquired) {
+                if (carts.size() > maxCarts) {
+                    trim();
+                }
+                return cart;
+            }
+        }
+    }
+
+    private void release(UserCart cart) {
+        synchronized (cart) {
+            cart.users--;
+            // Sin memoria no se guardan carritos entre operaciones; tampoco los vacíos sin nada que escribir
+            // (recargarlos es una consulta), así leer el carrito de cualquier id no lo deja en el mapa
+            if (cart.users == 0 && !cart.fenced && (!enabled || cart.lines.isEmpty() && !cart.hasPending())
+                    && carts.remove(cart.userId, cart)) {
+                cart.evicted = true;
+            }
+        }
+    }
+
+    /**
+     * Descarta de inmediato, de los usados hace más tiempo, los carritos que
+     * no tienen nada pendiente ni están en uso, hasta dejar un 10% libre
+     * bajo max-carts para no recorrer el mapa con cada carrito nuevo. No
+     * escribe: corre en el hilo de la petición, quizás dentro de su
+     * transacción; los que tienen cambios quedan para evict después del
+     * próximo flush.
+     */
+    private void trim() {
+        if (!trimming.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            int target = maxCarts - Math.max(1, maxCarts / 10);
+            List<Map.Entry<UserCart, Long>> candidates = new ArrayList<>(carts.size());
+            for (UserCart cart : carts.values()) {
+                candidates.add(Map.entry(cart, cart.lastAccess));
+            }
+            candidates.sort(Map.Entry.comparingByValue(Comparator.comparingLong(Long::longValue)));
+            int removed = 0;
+            for (Map.Entry<UserCart, Long> candidate : candidates) {
+                if (carts.size() <= target) {
+                    break;
+                }
+                UserCart cart = candidate.getKey();
+                synchronized (cart) {
+                    if (!cart.hasPending() && cart.users == 0 && !cart.fenced && carts.remove(cart.userId, cart)) {
+                        cart.evicted = true;
+                        evictions.increment();
+                        removed++;
+                    }
+                }
+            }
+            logger.debug("Carritos descartados al superar el límite de {}: {}", maxCarts, removed);
+        } finally {
+            trimming.set(false);
+        }
+    }
+
+    private void awaitFence(UserCart cart) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(fenceTimeoutMs);
+        while (cart.fenced) {
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining <= 0) {
+                throw new CartBusyException(cart.userId);
+            }
+            try {
+                cart.wait(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CartBusyException(cart.userId, e);
+            }
+        }
+    }
+
+    private void load(UserCart cart) {
+        cart.lines.clear();
+        jdbcTemplate.query(LOAD_SQL, rs -> {
+            Line line = new Line(rs.getInt("quantity"), rs.getObject("added_at", LocalDateTime.class));
+            line.updatedAt = rs.getObject("updated_at", LocalDateTime.class);
+            cart.lines.put(rs.getInt("product_id"), line);
+        }, cart.userId);
+        // Con filas en el carrito el usuario existe (clave foránea); si no, se verifica al primer cambio
+        cart.knownUser = cart.lines.isEmpty() ? null : Boolean.TRUE;
+        cart.loaded = true;
+    }
+
+    /**
+     * Escribe el estado actual de los productos marcados de cada carrito: un
+     * batch de upserts y uno de deletes en una transacción, precedidos por
+     * un DELETE de todo el carrito para los que se vaciaron. Si el batch falla
+     * se reintenta fila por fila, con una transacción por carrito: lo
+     * pendiente de un carrito (por ejemplo un applyBatch entero) se confirma
+     * junto o no se confirma. Las filas que la base rechaza por integridad
+     * (producto o usuario borrados después de validar) se descartan también
+     * de la memoria, como si el borrado hubiera llegado después del cambio;
+     * ante otros errores se revierte el carrito y todo su cambio queda
+     * marcado para el próximo ciclo.
+     */
+    private void write(Collection<UserCart> batch) {
+        List<Change> changes = new ArrayList<>();
+        for (UserCart cart : batch) {
+            synchronized (cart) {
+                // Bloqueado por un cambio externo: lo escribe withExternalChange en su transacción
+                if (cart.fenced) {
+                    continue;
+                }
+                dirty.remove(cart);
+                changes.addAll(pendingChanges(cart, true));
+            }
+        }
+        if (changes.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> executeBatch(changes));
+            flushes.increment();
+            rowsWritten.add(changes.size());
+        } catch (DataAccessException e) {
+            logger.warn("No se pudo escribir el carrito en lote ({} filas), reintentando fila por fila: {}",
+                    changes.size(), e.getMessage());
+            writeOneByOne(changes);
+        }
+    }
+
+    // Estado actual de lo marcado en el carrito, con el vaciado primero; con consume se da por escrito
+    private List<Change> pendingChanges(UserCart cart, boolean consume) {
+        List<Change> changes = new ArrayList<>();
+        if (cart.cleared) {
+            changes.add(new Change(cart, null, null, null, null));
+        }
+        for (Integer productId : cart.changed) {
+            Line line = cart.lines.get(productId);
+            changes.add(new Change(cart, productId, line != null ? line.quantity : null,
+                    line != null ? line.addedAt : null, line != null ? line.updatedAt : null));
+        }
+        if (consume) {
+            cart.cleared = false;
+            cart.changed.clear();
+        }
+        return changes;
+    }
+
+    // Un batch de vaciados, uno de upserts y uno de deletes, en la transacción en curso
+    private void executeBatch(List<Change> changes) {
+        List<Object[]> clears = new ArrayList<>();
+        List<Object[]> upserts = new ArrayList<>();
+        List<Object[]> deletes = new ArrayList<>();
+        for (Change change : changes) {
+            if (change.productId() == null) {
+                clears.add(new Object[] { change.cart().userId });
+            } else if (change.quantity() != null) {
+                upserts.add(change.upsertArgs());
+            } else {
+                deletes.add(new Object[] { change.cart().userId, change.productId() });
+            }
+        }
+        if (!clears.isEmpty()) {
+            jdbcTemplate.batchUpdate(CLEAR_SQL, clears);
+        }
+        if (!upserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT_SQL, upserts);
+        }
+        if (!deletes.isEmpty()) {
+            jdbcTemplate.batchUpdate(DELETE_SQL, deletes);
+        }
+    }
+
+    private void writeOneByOne(List<Change> changes) {
+        Map<UserCart, List<Change>> byCart = new LinkedHashMap<>();
+        for (Change change : changes) {
+            byCart.computeIfAbsent(change.cart(), cart -> new ArrayList<>()).add(change);
+        }
+        boolean written = false;
+        for (Map.Entry<UserCart, List<Change>> entry : byCart.entrySet()) {
+            List<Change> rejected = new ArrayList<>();
+            try {
+                // MySQL deshace solo la sentencia rechazada por integridad; el resto del carrito sigue en la transacción
+                transactionTemplate.executeWithoutResult(status -> {
+                    for (Change change : entry.getValue()) {
+                        try {
+                            writeOne(change);
+                        } catch (DataIntegrityViolationException e) {
+                            rejected.add(change);
+                            logger.warn("Carrito {}: se descarta el producto {} ({})", change.cart().userId,
+                                    change.productId(), e.getMostSpecificCause().getMessage());
+                        }
+                    }
+                });
+            } catch (DataAccessException e) {
+                logger.warn("No se pudo escribir el carrito {}, se reintenta en el próximo ciclo: {}",
+                        entry.getKey().userId, e.getMessage());
+                remark(entry.getKey(), entry.getValue());
+                continue;
+            }
+            written = true;
+            rowsWritten.add(entry.getValue().size() - rejected.size());
+            UserCart cart = entry.getKey();
+            synchronized (cart) {
+                for (Change change : rejected) {
+                    if (!cart.changed.contains(change.productId())) {
+                        cart.lines.remove(change.productId());
+                    }
+                }
+            }
+        }
+        if (written) {
+            flushes.increment();
+        }
+    }
+
+    private void writeOne(Change change) {
+        if (change.productId() == null) {
+            jdbcTemplate.update(CLEAR_SQL, change.cart().userId);
+        } else if (change.quantity() != null) {
+            jdbcTemplate.update(UPSERT_SQL, change.upsertArgs());
+        } else {
+            jdbcTemplate.update(DELETE_SQL, change.cart().userId, change.productId());
+        }
+    }
+
+    // Devuelve al carrito los cambios de una escritura revertida
+    private void remark(UserCart cart, List<Change> changes) {
+        synchronized (cart) {
+            for (Change change : changes) {
+                if (change.productId() == null) {
+                    cart.cleared = true;
+                } else {
+                    cart.changed.add(change.productId());
+                }
+            }
+            if (enabled && !cart.evicted) {
+                dirty.add(cart);
+            }
+        }
+    }
+
+    private boolean productExists(int productId) {
+        Optional<CatalogSnapshot> snapshot = productCatalogCache.snapshot();
+        if (snapshot.isPresent()) {
+            return snapshot.get().getById(productId) != null;
+        }
+        return productRepository.existsById(productId);
+    }
+
+    private List<CartDTO> toDTOs(UserCart cart) {
+        return toDTOs(cart, new ArrayList<>(cart.lines.keySet()));
+    }
+
+    private List<CartDTO> toDTOs(UserCart cart, List<Integer> productIds) {
+        return toDTOs(cart, productIds, products(productIds));
+    }
+
+    // Datos del producto desde el catálogo en memoria; los que no estén, con una sola consulta IN
+    private Map<Integer, ProductDTO> products(Collection<Integer> productIds) {
+        Map<Integer, ProductDTO> products = new HashMap<>();
+        Optional<CatalogSnapshot> snapshot = productCatalogCache.snapshot();
+        Set<Integer> missing = new HashSet<>();
+        for (Integer productId : productIds) {
+            ProductDTO product = snapshot.map(s -> s.getById(productId)).orElse(null);
+            if (product != null) {
+                products.put(productId, product);
+            } else {
+                missing.add(productId);
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (ProductRow row : productRepository.findRowsByIdIn(missing)) {
+                ProductDTO product = new ProductDTO();
+                product.setId(row.getId());
+                product.setTitle(row.getTitle());
+                product.setImage(row.getImage());
+                product.setPrice(row.getPrice());
+                product.setCurrency(row.getCurrency());
+                products.put(row.getId(), product);
+            }
+        }
+        return products;
+    }
+
+    private List<CartDTO> toDTOs(UserCart cart, List<Integer> productIds, Map<Integer, ProductDTO> products) {
+        List<CartDTO> result = new ArrayList<>(productIds.size());
+        for (Integer productId : productIds) {
+            Line line = cart.lines.get(productId);
+            ProductDTO product = products.get(productId);
+            result.add(new CartDTO(cart.userId, productId,
+                    product != null ? product.getTitle() : null,
+                    product != null ? product.getImage() : null,
+                    product != null ? product.getPrice() : null,
+                    product != null ? product.getCurrency() : null,
+                    line.quantity, line.addedAt, line.updatedAt));
+        }
+        return result;
+    }
+
+    private final class UserCart {
+        private final int userId;
+        // Orden de inserción: como se agregaron los productos
+        private final Map<Integer, Line> lines = new LinkedHashMap<>();
+        // Productos cuyo estado actual falta escribir (si no está en lines, se borra)
+        private final Set<Integer> changed = new HashSet<>();
+        // Se vació: antes de lo que haya en changed se borran todas sus filas
+        private boolean cleared;
+        private boolean loaded;
+        private boolean evicted;
+        private boolean fenced;
+        private int users;
+        private Boolean knownUser;
+        private volatile long lastAccess = System.nanoTime();
+
+        private UserCart(Integer userId) {
+            this.userId = userId;
+        }
+
+        private boolean hasPending() {
+            return cleared || !changed.isEmpty();
+        }
+
+        private boolean userExists() {
+            if (knownUser == null) {
+                knownUser = userRepository.existsById(userId);
+            }
+            return knownUser;
+        }
+    }
+
+    private static final class Line {
+        private int quantity;
+        private final LocalDateTime addedAt;
+        private LocalDateTime updatedAt;
+
+        private Line(int quantity, LocalDateTime addedAt) {
+            this.quantity = quantity;
+            this.addedAt = addedAt;
+            this.updatedAt = addedAt;
+        }
+    }
+
+    // Sin productId: vaciar todo el carrito
+    private record Change(UserCart cart, Integer productId, Integer quantity, LocalDateTime addedAt,
+                          LocalDateTime updatedAt) {
+
+        private Object[] upsertArgs() {
+            return new Object[] { cart.userId, productId, quantity, Timestamp.valueOf(addedAt),
+                    Timestamp.valueOf(updatedAt) };
+        }
+    }
+}
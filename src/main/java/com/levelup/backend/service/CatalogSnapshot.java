@@ -0,0 +1,262 @@
+package com.levelup.backend.service;
+
+import com.levelup.backend.dto.ProductDTO;
+import com.levelup.backend.dto.TagDTO;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Vista inmutable del catálogo en un instante dado. Nunca se modifica una vez
+ * construida: cada escritura genera una nueva versión que reemplaza a la
+ * anterior de forma atómica en ProductCatalogCache.
+ *
+ * Los productos se guardan en páginas de ids consecutivos. Una versión nueva
+ * comparte con la anterior todas las páginas que no cambiaron y solo copia
+ * las tocadas, así aplicar un cambio no cuesta copiar el catálogo entero.
+ * Las listas derivadas (todos, por categoría, activos, descontinuados) se
+ * arman la primera vez que se piden en cada versión.
+ *
+ * Los productos que entrega son copias congeladas: sus setters lanzan
+ * UnsupportedOperationException, de modo que nadie puede alterar por error
+ * lo que ven las demás lecturas.
+ */
+public final class CatalogSnapshot {
+
+    // 256 ids por página
+    private static final int PAGE_BITS = 8;
+
+    private final long version;
+    private final TreeMap<Integer, Map<Integer, ProductDTO>> pages;
+    private final int size;
+    private volatile Views views;
+
+    private record Views(List<ProductDTO> all, Map<Integer, List<ProductDTO>> byCategory,
+                         List<ProductDTO> active, List<ProductDTO> discontinued) {}
+
+    private CatalogSnapshot(long version, TreeMap<Integer, Map<Integer, ProductDTO>> pages, int size) {
+        this.version = version;
+        this.pages = pages;
+        this.size = size;
+    }
+
+    public static CatalogSnapshot of(long version, Collection<ProductDTO> products) {
+        return new CatalogSnapshot(version - 1, new TreeMap<>(), 0).with(version, products);
+    }
+
+    // Nueva versión con los productos indicados agregados o reemplazados
+    public CatalogSnapshot withProducts(Collection<ProductDTO> changed) {
+        return with(version + 1, changed);
+    }
+
+    // Nueva versión sin los productos indicados; los ids que no estaban se ignoran
+    public CatalogSnapshot withoutProducts(Collection<Integer> removed) {
+        Map<Integer, TreeMap<Integer, ProductDTO>> touched = new HashMap<>();
+        int newSize = size;
+        for (Integer id : removed) {
+            Map<Integer, ProductDTO> current = pages.get(id >>> PAGE_BITS);
+            if (current == null || !current.containsKey(id)) {
+                continue;
+            }
+            TreeMap<Integer, ProductDTO> page = touched.computeIfAbsent(id >>> PAGE_BITS,
+                    key -> new TreeMap<>(current));
+            if (page.remove(id) != null) {
+                newSize--;
+            }
+        }
+        TreeMap<Integer, Map<Integer, ProductDTO>> newPages = new TreeMap<>(pages);
+        touched.forEach((key, page) -> {
+            if (page.isEmpty()) {
+                newPages.remove(key);
+            } else {
+                newPages.put(key, Collections.unmodifiableMap(page));
+            }
+        });
+        return new CatalogSnapshot(version + 1, newPages, newSize);
+    }
+
+    private CatalogSnapshot with(long newVersion, Collection<ProductDTO> changed) {
+        Map<Integer, TreeMap<Integer, ProductDTO>> touched = new HashMap<>();
+        int newSize = size;
+        for (ProductDTO product : changed) {
+            TreeMap<Integer, ProductDTO> page = touched.computeIfAbsent(product.getId() >>> PAGE_BITS, key -> {
+                Map<Integer, ProductDTO> current = pages.get(key);
+                return current != null ? new TreeMap<>(current) : new TreeMap<>();
+            });
+            if (page.put(product.getId(), freeze(product)) == null) {
+                newSize++;
+            }
+        }
+        TreeMap<Integer, Map<Integer, ProductDTO>> newPages = new TreeMap<>(pages);
+        touched.forEach((key, page) -> newPages.put(key, Collections.unmodifiableMap(page)));
+        return new CatalogSnapshot(newVersion, newPages, newSize);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public ProductDTO getById(Integer id) {
+        if (id == null) {
+            return null;
+        }
+        Map<Integer, ProductDTO> page = pages.get(id >>> PAGE_BITS);
+        return page != null ? page.get(id) : null;
+    }
+
+    public List<ProductDTO> getAll() {
+        return views().all();
+    }
+
+    public List<ProductDTO> getByCategory(Integer categoryId) {
+        return views().byCategory().getOrDefault(categoryId, List.of());
+    }
+
+    public List<ProductDTO> getActive() {
+        return views().active();
+    }
+
+    public List<ProductDTO> getDiscontinued() {
+        return views().discontinued();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Si dos lecturas llegan a la vez pueden armarlas ambas; el resultado es el mismo
+    private Views views() {
+        Views current = views;
+        if (current == null) {
+            current = buildViews();
+            views = current;
+        }
+        return current;
+    }
+
+    private Views buildViews() {
+        List<ProductDTO> all = new ArrayList<>(size);
+        Map<Integer, List<ProductDTO>> categories = new HashMap<>();
+        List<ProductDTO> activeProducts = new ArrayList<>();
+        List<ProductDTO> discontinuedProducts = new ArrayList<>();
+        for (Map<Integer, ProductDTO> page : pages.values()) {
+            for (ProductDTO product : page.values()) {
+                all.add(product);
+                if (product.getCategoryId() != null) {
+                    categories.computeIfAbsent(product.getCategoryId(), id -> new ArrayList<>()).add(product);
+                }
+                if (Boolean.TRUE.equals(product.getDiscontinued())) {
+                    discontinuedProducts.add(product);
+                } else {
+                    activeProducts.add(product);
+                }
+            }
+        }
+        categories.replaceAll((id, list) -> List.copyOf(list));
+        return new Views(List.copyOf(all), Map.copyOf(categories), List.copyOf(activeProducts),
+                List.copyOf(discontinuedProducts));
+    }
+
+    private static ProductDTO freeze(ProductDTO product) {
+        return product instanceof FrozenProduct ? product : new FrozenProduct(product);
+    }
+
+    // Copia de solo lectura de un producto y sus etiquetas
+    private static final class FrozenProduct extends ProductDTO {
+
+        private FrozenProduct(ProductDTO source) {
+            super(source.getId(), source.getTitle(), source.getDescription(), source.getPrice(),
+                    source.getCurrency(), source.getCategoryId(), source.getStock(), source.getImage(),
+                    source.getDiscontinued(), source.getCreatedAt(), source.getUpdatedAt(),
+                    source.getTags() == null ? null
+                            : source.getTags().stream().map(tag -> (TagDTO) new FrozenTag(tag)).toList());
+        }
+
+        @Override
+        public void setId(Integer id) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setTitle(String title) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setDescription(String description) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setPrice(Double price) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setCurrency(String currency) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setCategoryId(Integer categoryId) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setStock(Integer stock) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setImage(String image) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setDiscontinued(Boolean discontinued) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setCreatedAt(LocalDateTime createdAt) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setUpdatedAt(LocalDateTime updatedAt) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setTags(List<TagDTO> tags) {
+            throw readOnly();
+        }
+    }
+
+    private static final class FrozenTag extends TagDTO {
+
+        private FrozenTag(TagDTO source) {
+            super(source.getId(), source.getName());
+        }
+
+        @Override
+        public void setId(Integer id) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setName(String name) {
+            throw readOnly();
+        }
+    }
+
+    private static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("Los productos del catálogo en caché son de solo lectura");
+    }
+}
@@ -0,0 +1,237 @@
+package com.levelup.backend.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Cola acotada de trabajos atendida por un número fijo de hilos virtuales.
+ * Si la cola está llena, submit devuelve null en vez de bloquear: el llamador
+ * decide cómo rechazar (back-pressure). El número de workers limita cuántos
+ * trabajos usan la base a la vez, independiente de cuántas peticiones lleguen.
+ *
+ * Un ticket aceptado ya se confirmó al cliente, así que al apagar se deja de
+ * aceptar y los workers vacían la cola antes de terminar (con un tiempo
+ * máximo). Los errores se exponen como códigos estables, no como el mensaje
+ * de la excepción.
+ */
+public class CheckoutQueue<T, R> {
+
+    private static final Logger logger = LoggerFactory.getLogger(CheckoutQueue.class);
+
+    public static final String PENDING = "pending";
+    public static final String PROCESSING = "processing";
+    public static final String COMPLETED = "completed";
+    public static final String FAILED = "failed";
+
+    // Códigos de error de un ticket fallido
+    public static final String ERROR_INVALID_REQUEST = "invalid_request";
+    public static final String ERROR_INTERNAL = "internal_error";
+    public static final String ERROR_SHUTDOWN = "shutdown";
+
+    // Cada cuánto un worker sin trabajo revisa si la cola se está apagando
+    private static final long POLL_MILLIS = 100;
+
+    // Cantidad de latencias recientes usadas para los percentiles
+    private static final int LATENCY_WINDOW = 4096;
+
+    public static final class Ticket<T, R> {
+        private final String id = UUID.randomUUID().toString();
+        private final T request;
+        private final long acceptedAt = System.nanoTime();
+        private volatile String status = PENDING;
+        private volatile R result;
+        private volatile String error;
+        private volatile long completedAt;
+
+        private Ticket(T request) {
+            this.request = request;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        public R getResult() {
+            return result;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        public boolean isDone() {
+            return COMPLETED.equals(status) || FAILED.equals(status);
+        }
+    }
+
+    public record Stats(int queueDepth, int capacity, long accepted, long rejected, long completed, long failed,
+                        double p50Millis, double p99Millis) {}
+
+    private final BlockingQueue<Ticket<T, R>> queue;
+    private final Map<String, Ticket<T, R>> tickets = new ConcurrentHashMap<>();
+    private final Function<T, R> processor;
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running = true;
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    // Latencias de extremo a extremo (espera en cola + proceso), en nanosegundos
+    private final long[] latencies = new long[LATENCY_WINDOW];
+    private int latencyCount;
+
+    public CheckoutQueue(int capacity, int workerCount, Function<T, R> processor) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.processor = processor;
+        for (int i = 0; i < workerCount; i++) {
+            workers.add(Thread.ofVirtual().name("checkout-worker-" + i).start(this::work));
+        }
+    }
+
+    // null si la cola está llena o se está apagando
+    public Ticket<T, R> submit(T request) {
+        Ticket<T, R> ticket = new Ticket<>(request);
+        tickets.put(ticket.id, ticket);
+        boolean offered;
+        // Con el mismo lock que shutdown: nada entra a la cola después de que los workers la vacían
+        synchronized (this) {
+            offered = running && queue.offer(ticket);
+        }
+        if (!offered) {
+            tickets.remove(ticket.id);
+            rejected.incrementAndGet();
+            return null;
+        }
+        accepted.incrementAndGet();
+        return ticket;
+    }
+
+    public Ticket<T, R> ticket(String id) {
+        return tickets.get(id);
+    }
+
+    // Olvida los tickets terminados hace más de maxAgeNanos
+    public int evictCompleted(long maxAgeNanos) {
+        long limit = System.nanoTime() - maxAgeNanos;
+        int before = tickets.size();
+        tickets.values().removeIf(ticket -> ticket.isDone() && ticket.completedAt - limit < 0);
+        return before - tickets.size();
+    }
+
+    public Stats stats() {
+        long[] window;
+        synchronized (latencies) {
+            window = Arrays.copyOf(latencies, Math.min(latencyCount, LATENCY_WINDOW));
+        }
+        Arrays.sort(window);
+        return new Stats(queue.size(), queue.size() + queue.remainingCapacity(), accepted.get(), rejected.get(),
+                completed.get(), failed.get(), percentileMillis(window, 0.50), percentileMillis(window, 0.99));
+    }
+
+    /**
+     * Deja de aceptar trabajos y espera hasta timeoutMillis a que los workers
+     * procesen lo que ya estaba en la cola. Lo que no alcanzó a procesarse se
+     * marca como fallido (ERROR_SHUTDOWN). Devuelve cuántos quedaron así.
+     */
+    public int shutdown(long timeoutMillis) {
+        synchronized (this) {
+            running = false;
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        try {
+            for (Thread worker : workers) {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining <= 0 || !worker.join(Duration.ofMillis(remaining))) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        workers.forEach(Thread::interrupt);
+        List<Ticket<T, R>> left = new ArrayList<>();
+        queue.drainTo(left);
+        for (Ticket<T, R> ticket : left) {
+            finish(ticket, FAILED, ERROR_SHUTDOWN);
+            failed.incrementAndGet();
+        }
+        if (!left.isEmpty()) {
+            logger.error("Cola de checkout apagada con {} trabajos aceptados sin procesar", left.size());
+        }
+        return left.size();
+    }
+
+    private void work() {
+        while (true) {
+            Ticket<T, R> ticket;
+            try {
+                ticket = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (ticket == null) {
+                if (!running) {
+                    return;
+                }
+                continue;
+            }
+            ticket.status = PROCESSING;
+            try {
+                ticket.result = processor.apply(ticket.request);
+                completed.incrementAndGet();
+                finish(ticket, COMPLETED, null);
+            } catch (IllegalArgumentException e) {
+                failed.incrementAndGet();
+                finish(ticket, FAILED, ERROR_INVALID_REQUEST);
+            } catch (RuntimeException e) {
+                logger.error("Falló el trabajo del ticket {}", ticket.id, e);
+                failed.incrementAndGet();
+                finish(ticket, FAILED, ERROR_INTERNAL);
+            }
+        }
+    }
+
+    private void finish(Ticket<T, R> ticket, String status, String error) {
+        ticket.error = error;
+        ticket.completedAt = System.nanoTime();
+        // El estado se publica al final: quien lo ve terminado ve también el resultado
+        ticket.status = status;
+        recordLatency(ticket.completedAt - ticket.acceptedAt);
+    }
+
+    private void recordLatency(long nanos) {
+        synchronized (latencies) {
+            latencies[latencyCount++ % LATENCY_WINDOW] = nanos;
+            if (latencyCount == 2 * LATENCY_WINDOW) {
+                latencyCount = LATENCY_WINDOW;
+            }
+        }
+    }
+
+    private static double percentileMillis(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1_000_000.0;
+    }
+}
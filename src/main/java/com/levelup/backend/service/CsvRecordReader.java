@@ -0,0 +1,88 @@
+package com.levelup.backend.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lector CSV (RFC 4180) que entrega un registro a la vez, de modo que un
+ * archivo de cualquier tamaño se procesa con memoria acotada. Soporta
+ * campos entre comillas con comas, comillas dobles escapadas y saltos de línea.
+ */
+public class CsvRecordReader {
+
+    private final Reader reader;
+    private long currentLine = 1;
+    private long recordLine = 0;
+    private int pending = -2;
+
+    public CsvRecordReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    // Número de línea donde comenzó el último registro leído
+    public long getLine() {
+        return recordLine;
+    }
+
+    // Siguiente registro o null al llegar al final
+    public List<String> next() throws IOException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean any = false;
+        recordLine = currentLine;
+
+        int c;
+        while ((c = read()) != -1) {
+            any = true;
+            if (quoted) {
+                if (c == '"') {
+                    int following = read();
+                    if (following == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        unread(following);
+                    }
+                } else {
+                    if (c == '\n') {
+                        currentLine++;
+                    }
+                    field.append((char) c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\r') {
+                // se ignora; el registro termina en '\n'
+            } else if (c == '\n') {
+                currentLine++;
+                break;
+            } else {
+                field.append((char) c);
+            }
+        }
+        if (!any) {
+            return null;
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private int read() throws IOException {
+        if (pending != -2) {
+            int c = pending;
+            pending = -2;
+            return c;
+        }
+        return reader.read();
+    }
+
+    private void unread(int c) {
+        pending = c;
+    }
+}
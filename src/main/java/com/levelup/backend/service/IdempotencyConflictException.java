@@ -0,0 +1,18 @@
+package com.levelup.backend.service;
+
+public class IdempotencyConflictException extends RuntimeException {
+
+    // true: la petición original aún se está procesando; false: la clave se usó con otro cuerpo
+    private final boolean inProgress;
+
+    public IdempotencyConflictException(String key, boolean inProgress) {
+        super(inProgress
+                ? "La petición con Idempotency-Key " + key + " aún se está procesando"
+                : "La Idempotency-Key " + key + " ya se usó con una petición distinta");
+        this.inProgress = inProgress;
+    }
+
+    public boolean isInProgress() {
+        return inProgress;
+    }
+}
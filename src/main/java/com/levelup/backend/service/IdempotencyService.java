@@ -0,0 +1,329 @@
+package com.levelup.backend.service;
+
+import com.levelup.backend.model.IdempotencyRecord;
+import com.levelup.backend.repository.IdempotencyRecordRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.databind.ObjectMapper;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Soporte de Idempotency-Key para operaciones de escritura.
+ *
+ * La primera petición con una clave la "reclama" insertando una fila en
+ * curso en idempotency_keys (en su propia transacción, así la clave primaria
+ * excluye a otros nodos), ejecuta la operación y guarda la respuesta en una
+ * misma transacción junto con la escritura. Las repeticiones reciben la
+ * respuesta guardada; las concurrentes en este nodo esperan a que termine la
+ * primera.
+ *
+ * Quien llama no debe tener una transacción abierta (los endpoints usan
+ * Propagation.NOT_SUPPORTED): así el reclamo no necesita una segunda conexión
+ * del pool y una petición duplicada no retiene ninguna mientras espera.
+ * Las respuestas recientes se mantienen en una caché LRU acotada, de modo
+ * que una repetición no va a la base.
+ *
+ * Una fila en curso más antigua que in-progress-timeout-ms se considera
+ * abandonada y otra petición puede tomarla. Cada reclamo lleva un token, así
+ * que si la dueña original solo era lenta ya no puede completar la clave:
+ * su transacción se revierte y la orden no se crea dos veces.
+ */
+@Service
+public class IdempotencyService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 100;
+
+    private static final String INSERT_SQL = "INSERT INTO idempotency_keys "
+            + "(id, request_hash, status, created_at, expires_at, claim_token) VALUES (?, ?, ?, ?, ?, ?)";
+
+    // Solo completa la fila que esta petición reclamó: si otra la tomó por abandonada, no actualiza nada
+    private static final String COMPLETE_SQL = "UPDATE idempotency_keys "
+            + "SET status = ?, response_status = ?, response_body = ? "
+            + "WHERE id = ? AND status = '" + IdempotencyRecord.IN_PROGRESS + "' AND claim_token = ?";
+
+    private record StoredResponse(String requestHash, int status, String body, LocalDateTime expiresAt) {}
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${levelup.idempotency.ttl-hours:24}")
+    private int ttlHours;
+
+    @Value("${levelup.idempotency.cache-size:10000}")
+    private int cacheSize;
+
+    @Value("${levelup.idempotency.wait-timeout-ms:10000}")
+    private long waitTimeoutMs;
+
+    @Value("${levelup.idempotency.in-progress-timeout-ms:60000}")
+    private long inProgressTimeoutMs;
+
+    private TransactionTemplate transaction;
+    private TransactionTemplate newTransaction;
+    private Map<String, StoredResponse> cache;
+
+    // Peticiones en curso en este nodo, para que las duplicadas esperen
+    private final Map<String, CompletableFuture<StoredResponse>> inFlight = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        transaction = new TransactionTemplate(transactionManager);
+        newTransaction = new TransactionTemplate(transactionManager);
+        newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, StoredResponse> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Ejecuta la acción una sola vez por clave. Sin clave, la ejecuta sin más.
+     * Las respuestas 5xx y las excepciones liberan la clave para reintentar.
+     */
+    public <T> ResponseEntity<T> execute(String scope, String key, Object request, Class<T> responseType,
+                                         Supplier<ResponseEntity<T>> action) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key demasiado larga");
+        }
+        String id = scope + ":" + key;
+        String requestHash = hash(request);
+        long deadline = System.currentTimeMillis() + waitTimeoutMs;
+
+        while (true) {
+            StoredResponse cached = cached(id);
+            if (cached != null) {
+                return replay(key, cached, requestHash, responseType);
+            }
+
+            CompletableFuture<StoredResponse> mine = new CompletableFuture<>();
+            CompletableFuture<StoredResponse> running = inFlight.putIfAbsent(id, mine);
+            if (running != null) {
+                try {
+                    StoredResponse done = running.get(Math.max(0, deadline - System.currentTimeMillis()),
+                            TimeUnit.MILLISECONDS);
+                    return replay(key, done, requestHash, responseType);
+                } catch (ExecutionException e) {
+                    // La primera falló o la clave está tomada en otro nodo: se vuelve a intentar
+                    if (System.currentTimeMillis() >= deadline) {
+                        throw new IdempotencyConflictException(key, true);
+                    }
+                    continue;
+                } catch (TimeoutException e) {
+                    throw new IdempotencyConflictException(key, true);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IdempotencyConflictException(key, true);
+                }
+            }
+
+            String token = UUID.randomUUID().toString();
+            StoredResponse existing;
+            try {
+                existing = claim(id, key, requestHash, token);
+            } catch (RuntimeException e) {
+                inFlight.remove(id, mine);
+                mine.completeExceptionally(e);
+                throw e;
+            }
+            if (existing != null) {
+                publish(id, mine, existing);
+                return replay(key, existing, requestHash, responseType);
+            }
+            return runClaimed(id, key, token, requestHash, mine, action);
+        }
+    }
+
+    // Borra claves vencidas; su respuesta ya no se reproduce
+    @Scheduled(fixedDelayString = "${levelup.idempotency.purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        Integer deleted = newTransaction.execute(status ->
+                idempotencyRecordRepository.deleteExpired(LocalDateTime.now()));
+        if (deleted != null && deleted > 0) {
+            logger.debug("Claves de idempotencia vencidas eliminadas: {}", deleted);
+        }
+    }
+
+    private <T> ResponseEntity<T> runClaimed(String id, String key, String token, String requestHash,
+                                             CompletableFuture<StoredResponse> mine,
+                                             Supplier<ResponseEntity<T>> action) {
+        ResponseEntity<T> response;
+        try {
+            // La operación y la respuesta guardada se confirman o revierten juntas
+            response = transaction.execute(status -> {
+                ResponseEntity<T> result = action.get();
+                if (!result.getStatusCode().is5xxServerError()) {
+                    complete(id, key, token, requestHash, mine, result);
+                }
+                return result;
+            });
+        } catch (RuntimeException e) {
+            release(id, token, mine, e);
+            throw e;
+        }
+        if (response.getStatusCode().is5xxServerError()) {
+            release(id, token, mine, new IllegalStateException("Respuesta " + response.getStatusCode().value()));
+        }
+        return response;
+    }
+
+    private <T> void complete(String id, String key, String token, String requestHash,
+                              CompletableFuture<StoredResponse> mine, ResponseEntity<T> response) {
+        StoredResponse stored = new StoredResponse(requestHash, response.getStatusCode().value(),
+                response.getBody() != null ? objectMapper.writeValueAsString(response.getBody()) : null,
+                LocalDateTime.now().plusHours(ttlHours));
+        int updated = jdbcTemplate.update(COMPLETE_SQL, IdempotencyRecord.COMPLETED, stored.status(), stored.body(),
+                id, token);
+        if (updated != 1) {
+            // Se tomó por abandonada mientras esta petición seguía: la otra es la que vale y esta se revierte
+            logger.warn("La clave de idempotencia {} fue tomada por otra petición; se revierte esta", id);
+            throw new IdempotencyConflictException(key, true);
+        }
+        // Solo se publica si la transacción confirma; si no, la clave se libera para reintentar
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    publish(id, mine, stored);
+                } else {
+                    release(id, token, mine, new IllegalStateException("Transacción revertida"));
+                }
+            }
+        });
+    }
+
+    // Devuelve la respuesta ya guardada, o null si esta petición quedó a cargo de la clave
+    private StoredResponse claim(String id, String key, String requestHash, String token) {
+        for (int attempt = 0; attempt < 3; attempt++) {
+            LocalDateTime now = LocalDateTime.now();
+            try {
+                newTransaction.executeWithoutResult(status -> jdbcTemplate.update(INSERT_SQL, id, requestHash,
+                        IdempotencyRecord.IN_PROGRESS, Timestamp.valueOf(now),
+                        Timestamp.valueOf(now.plusHours(ttlHours)), token));
+                return null;
+            } catch (DuplicateKeyException e) {
+                Optional<IdempotencyRecord> found = newTransaction.execute(status ->
+                        idempotencyRecordRepository.findById(id));
+                if (found == null || found.isEmpty()) {
+                    continue;
+                }
+                IdempotencyRecord record = found.get();
+                if (IdempotencyRecord.COMPLETED.equals(record.getStatus()) && record.getExpiresAt().isAfter(now)) {
+                    return new StoredResponse(record.getRequestHash(), record.getResponseStatus(),
+                            record.getResponseBody(), record.getExpiresAt());
+                }
+                boolean abandoned = IdempotencyRecord.IN_PROGRESS.equals(record.getStatus())
+                        && record.getCreatedAt().plusNanos(inProgressTimeoutMs * 1_000_000).isBefore(now);
+                if (!abandoned && IdempotencyRecord.IN_PROGRESS.equals(record.getStatus())) {
+                    throw new IdempotencyConflictException(key, true);
+                }
+                // Abandonada por un nodo caído o ya vencida: se libera y se reintenta
+                newTransaction.executeWithoutResult(status -> {
+                    if (abandoned) {
+                        idempotencyRecordRepository.deleteInProgress(id, record.getCreatedAt());
+                    } else {
+                        idempotencyRecordRepository.deleteExpired(id, now);
+                    }
+                });
+            }
+        }
+        throw new IdempotencyConflictException(key, true);
+    }
+
+    private void publish(String id, CompletableFuture<StoredResponse> mine, StoredResponse stored) {
+        synchronized (cache) {
+            cache.put(id, stored);
+        }
+        inFlight.remove(id, mine);
+        mine.complete(stored);
+    }
+
+    private void release(String id, String token, CompletableFuture<StoredResponse> mine, Exception cause) {
+        try {
+            newTransaction.executeWithoutResult(status -> idempotencyRecordRepository.deleteClaim(id, token));
+        } catch (RuntimeException e) {
+            // Si no se pudo borrar, la fila se considera abandonada tras in-progress-timeout-ms
+            logger.warn("No se pudo liberar la clave de idempotencia {}: {}", id, e.getMessage());
+        }
+        inFlight.remove(id, mine);
+        mine.completeExceptionally(cause);
+    }
+
+    private StoredResponse cached(String id) {
+        synchronized (cache) {
+            StoredResponse stored = cache.get(id);
+            if (stored != null && stored.expiresAt().isBefore(LocalDateTime.now())) {
+                cache.remove(id);
+                return null;
+            }
+            return stored;
+        }
+    }
+
+    private <T> ResponseEntity<T> replay(String key, StoredResponse stored, String requestHash, Class<T> responseType) {
+        if (!stored.requestHash().equals(requestHash)) {
+            throw new IdempotencyConflictException(key, false);
+        }
+        T body = stored.body() != null ? objectMapper.readValue(stored.body(), responseType) : null;
+        return ResponseEntity.status(stored.status()).header(REPLAYED_HEADER, "true").body(body);
+    }
+
+    private String hash(Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] json = request != null
+                    ? objectMapper.writeValueAsBytes(request)
+                    : "null".getBytes(StandardCharsets.UTF_8);
+            return HexFormat.of().formatHex(digest.digest(json));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
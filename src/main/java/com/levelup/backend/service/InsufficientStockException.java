@@ -0,0 +1,15 @@
+package com.levelup.backend.service;
+
+public class InsufficientStockException extends RuntimeException {
+
+    private final Integer productId;
+
+    public InsufficientStockException(Integer productId) {
+        super("Stock insuficiente para el producto: " + productId);
+        this.productId = productId;
+    }
+
+    public Integer getProductId() {
+        return productId;
+    }
+}
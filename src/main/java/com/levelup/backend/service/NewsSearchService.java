@@ -0,0 +1,195 @@
+package com.levelup.backend.service;
+
+import com.levelup.backend.dto.NewsDTO;
+import com.levelup.backend.dto.NewsIndexRow;
+import com.levelup.backend.dto.NewsSearchHitDTO;
+import com.levelup.backend.dto.SearchPageDTO;
+import com.levelup.backend.event.NewsChangedEvent;
+import com.levelup.backend.event.NewsDeletedEvent;
+import com.levelup.backend.model.News;
+import com.levelup.backend.repository.NewsRepository;
+import com.levelup.backend.search.InvertedIndex;
+import com.levelup.backend.search.SnippetHighlighter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Búsqueda de noticias sobre título, resumen, contenido, autor y categoría.
+ * El orden combina la relevancia textual con un factor de recencia que decae
+ * a la mitad cada levelup.news.search.recency-half-life-days días.
+ *
+ * Los cambios que llegan durante la carga inicial se guardan y se aplican
+ * al terminarla: son posteriores a las filas leídas, y una página leída
+ * después no debe pisar una edición ni volver a agregar una noticia borrada.
+ */
+@Service
+public class NewsSearchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(NewsSearchService.class);
+
+    private static final float TITLE_WEIGHT = 3.0f;
+    private static final float SUMMARY_WEIGHT = 2.0f;
+    private static final float AUTHOR_WEIGHT = 1.5f;
+    private static final float CATEGORY_WEIGHT = 1.5f;
+    private static final float CONTENT_WEIGHT = 1.0f;
+
+    private static final int LOAD_PAGE_SIZE = 500;
+    private static final double MILLIS_PER_DAY = 86_400_000d;
+
+    // Datos mínimos por noticia para filtrar y ordenar sin ir a la base
+    private record NewsMeta(boolean published, long createdAtMillis) {}
+
+    @Autowired
+    private NewsRepository newsRepository;
+
+    @Value("${levelup.news.search.recency-half-life-days:30}")
+    private double halfLifeDays;
+
+    @Value("${levelup.news.search.recency-weight:0.5}")
+    private double recencyWeight;
+
+    @Value("${levelup.news.search.snippet-length:160}")
+    private int snippetLength;
+
+    @Value("${levelup.search.max-page-size:100}")
+    private int maxPageSize;
+
+    private final InvertedIndex index = new InvertedIndex();
+    private final Map<Long, NewsMeta> meta = new ConcurrentHashMap<>();
+
+    private final Object writeLock = new Object();
+
+    // Cambios recibidos durante la carga, en orden; null fuera de ella. Protegido por writeLock
+    private List<Runnable> pending;
+
+    // Carga inicial por páginas de proyecciones (sin entidades administradas), así solo una página
+    // de contenido está en memoria a la vez
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        synchronized (writeLock) {
+            pending = new ArrayList<>();
+        }
+        try {
+            long afterId = 0;
+            List<NewsIndexRow> batch;
+            do {
+                batch = newsRepository.findIndexRowsAfter(afterId, PageRequest.of(0, LOAD_PAGE_SIZE));
+                for (NewsIndexRow row : batch) {
+                    indexNews(row.getId(), row.getTitle(), row.getSummary(), row.getContent(), row.getAuthor(),
+                            row.getCategory(), row.getIsPublished(), row.getCreatedAt());
+                    afterId = row.getId();
+                }
+            } while (batch.size() == LOAD_PAGE_SIZE);
+        } finally {
+            // También si la carga falló, para no perder los cambios guardados
+            synchronized (writeLock) {
+                pending.forEach(Runnable::run);
+                logger.debug("Cambios aplicados tras la carga del índice de noticias: {}", pending.size());
+                pending = null;
+            }
+        }
+        logger.info("Índice de búsqueda de noticias cargado: {} documentos", index.size());
+    }
+
+    public SearchPageDTO<NewsSearchHitDTO> search(String query, int page, int size, boolean publishedOnly) {
+        int pageSize = Math.max(1, Math.min(size, maxPageSize));
+        int pageNumber = Math.max(page, 0);
+        long now = System.currentTimeMillis();
+
+        InvertedIndex.Hits hits = index.search(query, pageNumber * pageSize, pageSize,
+                id -> {
+                    NewsMeta newsMeta = meta.get(id);
+                    return newsMeta != null && (!publishedOnly || newsMeta.published());
+                },
+                id -> recencyBoost(meta.get(id), now));
+
+        List<Long> ids = hits.hits().stream().map(InvertedIndex.Hit::id).collect(Collectors.toList());
+        Map<Long, News> byId = new HashMap<>();
+        newsRepository.findAllById(ids).forEach(news -> byId.put(news.getId(), news));
+
+        List<NewsSearchHitDTO> items = new ArrayList<>();
+        for (InvertedIndex.Hit hit : hits.hits()) {
+            News news = byId.get(hit.id());
+            if (news == null) {
+                continue;
+            }
+            items.add(new NewsSearchHitDTO(
+                    news.getId(),
+                    news.getTitle(),
+                    news.getSummary(),
+                    news.getThumbnail(),
+                    news.getAuthor(),
+                    news.getCategory(),
+                    news.getIsPublished(),
+                    news.getCreatedAt(),
+                    hit.score(),
+                    SnippetHighlighter.snippet(news.getContent(), query, snippetLength)
+            ));
+        }
+        return new SearchPageDTO<>(items, hits.total(), pageNumber, pageSize);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onNewsChanged(NewsChangedEvent event) {
+        NewsDTO news = event.news();
+        update(() -> indexNews(news.getId(), news.getTitle(), news.getSummary(), news.getContent(),
+                news.getAuthor(), news.getCategory(), news.getIsPublished(), news.getCreatedAt()));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onNewsDeleted(NewsDeletedEvent event) {
+        update(() -> {
+            index.remove(event.newsId());
+            meta.remove(event.newsId());
+        });
+    }
+
+    private void update(Runnable change) {
+        synchronized (writeLock) {
+            if (pending != null) {
+                pending.add(change);
+                return;
+            }
+            change.run();
+        }
+    }
+
+    private void indexNews(Long id, String title, String summary, String content, String author, String category,
+                           Boolean published, LocalDateTime createdAt) {
+        index.index(id, List.of(
+                new InvertedIndex.Field(title, TITLE_WEIGHT),
+                new InvertedIndex.Field(summary, SUMMARY_WEIGHT),
+                new InvertedIndex.Field(content, CONTENT_WEIGHT),
+                new InvertedIndex.Field(author, AUTHOR_WEIGHT),
+                new InvertedIndex.Field(category, CATEGORY_WEIGHT)));
+        long createdAtMillis = createdAt != null
+                ? createdAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                : System.currentTimeMillis();
+        meta.put(id, new NewsMeta(Boolean.TRUE.equals(published), createdAtMillis));
+    }
+
+    // 1 + peso * 2^(-edad / vida media): una noticia de hoy vale hasta (1 + peso) veces más
+    private double recencyBoost(NewsMeta newsMeta, long now) {
+        if (newsMeta == null) {
+            return 1.0;
+        }
+        double ageDays = Math.max(0, now - newsMeta.createdAtMillis()) / MILLIS_PER_DAY;
+        return 1.0 + recencyWeight * Math.pow(0.5, ageDays / halfLifeDays);
+    }
+}
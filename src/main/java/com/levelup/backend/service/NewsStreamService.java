@@ -0,0 +1,306 @@
+package com.levelup.backend.service;
+
+import com.levelup.backend.dto.NewsDTO;
+import com.levelup.backend.dto.NewsStreamEventDTO;
+import com.levelup.backend.dto.NewsStreamPollDTO;
+import com.levelup.backend.event.NewsChangedEvent;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Difunde las noticias recién publicadas por Server-Sent Events, con una
+ * consulta larga (long-poll) como alternativa.
+ *
+ * Las conexiones abiertas usan el procesamiento asíncrono del servlet, así
+ * que un suscriptor inactivo no ocupa ningún hilo. Cada suscriptor tiene
+ * su propia cola acotada y, mientras tenga envíos pendientes, un hilo
+ * virtual que la vacía: se respeta el orden de sus eventos, nunca se
+ * escribe a la vez en la misma conexión y un cliente lento no frena a los
+ * demás. Si su cola se llena se cierra la conexión; el cliente se reconecta
+ * con Last-Event-ID y recibe lo que le faltó desde el buffer acotado de
+ * últimos eventos (o un reset si ya salieron de él).
+ */
+@Service
+public class NewsStreamService {
+
+    private static final Logger logger = LoggerFactory.getLogger(NewsStreamService.class);
+
+    public static final String PUBLISHED_EVENT = "news-published";
+    public static final String RESET_EVENT = "reset";
+
+    private static final class Subscriber {
+        final SseEmitter emitter;
+        final String category;
+        final BlockingQueue<SseEmitter.SseEventBuilder> queue;
+        // true mientras un hilo está vaciando la cola
+        final AtomicBoolean draining = new AtomicBoolean();
+        // Desconectado por cola llena; el hilo que envía cierra la conexión
+        volatile boolean closed;
+
+        Subscriber(SseEmitter emitter, String category, int queueSize) {
+            this.emitter = emitter;
+            this.category = category;
+            this.queue = new ArrayBlockingQueue<>(queueSize);
+        }
+    }
+
+    private record Waiter(String category, long after, DeferredResult<NewsStreamPollDTO> result) {}
+
+    @Value("${levelup.news.stream.replay-buffer-size:1000}")
+    private int replayBufferSize;
+
+    @Value("${levelup.news.stream.max-subscribers:20000}")
+    private int maxSubscribers;
+
+    @Value("${levelup.news.stream.timeout-ms:1800000}")
+    private long emitterTimeoutMs;
+
+    @Value("${levelup.news.stream.retry-ms:3000}")
+    private long retryMs;
+
+    @Value("${levelup.news.stream.subscriber-queue-size:64}")
+    private int subscriberQueueSize;
+
+    private final Object lock = new Object();
+
+    // Protegidos por lock
+    private final Deque<NewsStreamEventDTO> buffer = new ArrayDeque<>();
+    private final List<Waiter> waiters = new ArrayList<>();
+    // Se parte de la hora de arranque para que los ids sigan creciendo entre reinicios
+    private long lastEventId = System.currentTimeMillis() * 1000;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    private final ExecutorService senders =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("news-stream-", 0).factory());
+
+    public boolean hasCapacity() {
+        return subscribers.size() < maxSubscribers;
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    public SseEmitter subscribe(String category, Long lastSeenEventId) {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        Subscriber subscriber = new Subscriber(emitter, normalize(category), subscriberQueueSize);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(error -> subscribers.remove(subscriber));
+
+        synchronized (lock) {
+            boolean gap = lastSeenEventId != null && isGap(lastSeenEventId);
+            List<NewsStreamEventDTO> replay = lastSeenEventId != null && !gap
+                    ? eventsAfter(lastSeenEventId, subscriber.category)
+                    : List.of();
+            subscribers.add(subscriber);
+            // Encolado dentro del lock: ningún evento nuevo puede adelantarse al reenvío
+            List<SseEmitter.SseEventBuilder> initial = new ArrayList<>();
+            initial.add(SseEmitter.event().reconnectTime(retryMs).comment("conectado"));
+            if (gap) {
+                initial.add(SseEmitter.event().id(String.valueOf(lastEventId)).name(RESET_EVENT).data(""));
+            }
+            replay.forEach(event -> initial.add(toSse(event)));
+            for (SseEmitter.SseEventBuilder event : initial) {
+                if (!enqueue(subscriber, event)) {
+                    break;
+                }
+            }
+        }
+        return emitter;
+    }
+
+    public DeferredResult<NewsStreamPollDTO> poll(String category, Long after, long timeoutMs) {
+        String filter = normalize(category);
+        synchronized (lock) {
+            long currentId = lastEventId;
+            DeferredResult<NewsStreamPollDTO> result = new DeferredResult<>(timeoutMs,
+                    new NewsStreamPollDTO(List.of(), after != null ? after : currentId, false));
+            if (after == null || isGap(after)) {
+                result.setResult(new NewsStreamPollDTO(List.of(), currentId, after != null));
+                return result;
+            }
+            List<NewsStreamEventDTO> events = eventsAfter(after, filter);
+            if (!events.isEmpty()) {
+                result.setResult(new NewsStreamPollDTO(events, events.get(events.size() - 1).getEventId(), false));
+                return result;
+            }
+            Waiter waiter = new Waiter(filter, after, result);
+            waiters.add(waiter);
+            result.onCompletion(() -> {
+                synchronized (lock) {
+                    waiters.remove(waiter);
+                }
+            });
+            return result;
+        }
+    }
+
+    // Solo se avisa cuando una noticia pasa a estar publicada (al crearla o al actualizarla)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onNewsChanged(NewsChangedEvent event) {
+        if (!event.isNewlyPublished()) {
+            return;
+        }
+        NewsDTO news = event.news();
+        synchronized (lock) {
+            NewsStreamEventDTO streamEvent = new NewsStreamEventDTO(++lastEventId, news.getId(), news.getTitle(),
+                    news.getSummary(), news.getThumbnail(), news.getCategory(), news.getCreatedAt());
+            buffer.addLast(streamEvent);
+            while (buffer.size() > replayBufferSize) {
+                buffer.removeFirst();
+            }
+
+            Iterator<Waiter> it = waiters.iterator();
+            while (it.hasNext()) {
+                Waiter waiter = it.next();
+                if (matches(streamEvent, waiter.category())) {
+                    it.remove();
+                    waiter.result().setResult(
+                            new NewsStreamPollDTO(List.of(streamEvent), streamEvent.getEventId(), false));
+                }
+            }
+
+            broadcast(streamEvent);
+        }
+    }
+
+    // Comentario periódico: mantiene viva la conexión en proxies y detecta clientes desconectados
+    @Scheduled(fixedDelayString = "${levelup.news.stream.heartbeat-interval-ms:20000}")
+    public void heartbeat() {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        for (Subscriber subscriber : subscribers) {
+            enqueue(subscriber, SseEmitter.event().comment("ping"));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        senders.shutdownNow();
+        for (Subscriber subscriber : subscribers) {
+            subscriber.emitter.complete();
+        }
+        subscribers.clear();
+    }
+
+    private void broadcast(NewsStreamEventDTO event) {
+        SseEmitter.SseEventBuilder sse = toSse(event);
+        for (Subscriber subscriber : subscribers) {
+            if (matches(event, subscriber.category)) {
+                enqueue(subscriber, sse);
+            }
+        }
+    }
+
+    // Encola sin bloquear; si la cola está llena el cliente no da abasto y se le desconecta
+    private boolean enqueue(Subscriber subscriber, SseEmitter.SseEventBuilder event) {
+        if (!subscriber.queue.offer(event)) {
+            drop(subscriber, "cola llena");
+            return false;
+        }
+        startDrain(subscriber);
+        return true;
+    }
+
+    private void startDrain(Subscriber subscriber) {
+        if (!subscriber.draining.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            senders.execute(() -> drain(subscriber));
+        } catch (RejectedExecutionException e) {
+            // Apagándose
+            subscriber.draining.set(false);
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        do {
+            SseEmitter.SseEventBuilder event;
+            while (!subscriber.closed && (event = subscriber.queue.poll()) != null) {
+                try {
+                    subscriber.emitter.send(event);
+                } catch (IOException | IllegalStateException e) {
+                    // Cliente desconectado o emisor ya cerrado
+                    subscribers.remove(subscriber);
+                    subscriber.closed = true;
+                    logger.debug("Suscriptor del stream de noticias eliminado: {}", e.getMessage());
+                }
+            }
+            if (subscriber.closed) {
+                subscriber.queue.clear();
+                subscriber.emitter.complete();
+                return;
+            }
+            subscriber.draining.set(false);
+            // Un evento encolado justo después del último poll vuelve a tomar el turno aquí
+        } while (!subscriber.queue.isEmpty() && subscriber.draining.compareAndSet(false, true));
+    }
+
+    // No se cierra aquí: un envío lento en curso tiene tomada la conexión y se bloquearía quien publica
+    private void drop(Subscriber subscriber, String reason) {
+        if (subscribers.remove(subscriber)) {
+            subscriber.closed = true;
+            subscriber.queue.clear();
+            startDrain(subscriber);
+            logger.debug("Suscriptor del stream de noticias eliminado: {}", reason);
+        }
+    }
+
+    // Hay hueco si el cliente espera eventos que ya salieron del buffer o que no son de esta instancia
+    private boolean isGap(long lastSeen) {
+        long firstAvailable = buffer.isEmpty() ? lastEventId + 1 : buffer.getFirst().getEventId();
+        return lastSeen < firstAvailable - 1 || lastSeen > lastEventId;
+    }
+
+    private List<NewsStreamEventDTO> eventsAfter(long lastSeen, String category) {
+        List<NewsStreamEventDTO> events = new ArrayList<>();
+        for (NewsStreamEventDTO event : buffer) {
+            if (event.getEventId() > lastSeen && matches(event, category)) {
+                events.add(event);
+            }
+        }
+        return events;
+    }
+
+    private static boolean matches(NewsStreamEventDTO event, String category) {
+        return category == null || category.equals(event.getCategory());
+    }
+
+    private static String normalize(String category) {
+        return category == null || category.isBlank() ? null : category;
+    }
+
+    private static SseEmitter.SseEventBuilder toSse(NewsStreamEventDTO event) {
+        return SseEmitter.event()
+                .id(String.valueOf(event.getEventId()))
+                .name(PUBLISHED_EVENT)
+                .data(event, MediaType.APPLICATION_JSON);
+    }
+}
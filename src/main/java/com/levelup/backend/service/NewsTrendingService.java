@@ -0,0 +1,292 @@
+package com.levelup.backend.service;
+
+import com.levelup.backend.dto.NewsDTO;
+import com.levelup.backend.dto.NewsFeedItemDTO;
+import com.levelup.backend.dto.TrendingNewsDTO;
+import com.levelup.backend.event.NewsChangedEvent;
+import com.levelup.backend.event.NewsDeletedEvent;
+import com.levelup.backend.repository.NewsRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Ranking de noticias en tendencia con decaimiento exponencial.
+ *
+ * Se usa decaimiento "hacia adelante": cada vista suma e^(λ·(t - L)), donde L
+ * es un instante de referencia fijo. Así el puntaje de una noticia solo cambia
+ * cuando recibe vistas y el orden relativo entre noticias no varía con el paso
+ * del tiempo, lo que permite mantener un top-K por categoría de forma
+ * incremental. El puntaje actual es el acumulado por e^(-λ·(ahora - L)).
+ * Cuando el exponente crece se mueve L y se reescalan todos los puntajes.
+ */
+@Service
+public class NewsTrendingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(NewsTrendingService.class);
+
+    // Clave del ranking general (todas las categorías)
+    private static final String ALL = "";
+
+    // Margen amplio antes de desbordar un double (e^709)
+    private static final double REBASE_EXPONENT = 20;
+
+    // Puntajes por debajo de este valor tras reescalar se descartan
+    private static final double MIN_SCORE = 1e-6;
+
+    private record Ranked(long id, double score) {}
+
+    private static final Comparator<Ranked> BY_SCORE_DESC = Comparator.comparingDouble(Ranked::score).reversed()
+            .thenComparingLong(Ranked::id);
+
+    @Autowired
+    private NewsRepository newsRepository;
+
+    @Value("${levelup.news.trending.half-life-hours:6}")
+    private double halfLifeHours;
+
+    @Value("${levelup.news.trending.top-k:50}")
+    private int topK;
+
+    private double lambda;
+    private volatile long landmark = System.currentTimeMillis();
+
+    // Puntaje acumulado (relativo a landmark) de cada noticia con vistas
+    private final Map<Long, Double> scores = new ConcurrentHashMap<>();
+
+    // Resumen de las noticias publicadas, candidatas a aparecer en el ranking
+    private final Map<Long, NewsFeedItemDTO> published = new ConcurrentHashMap<>();
+
+    private final Map<String, TopK> rankings = new ConcurrentHashMap<>();
+
+    // Las vistas toman el de lectura; el reescalado, el de escritura
+    private final ReadWriteLock rebaseLock = new ReentrantReadWriteLock();
+
+    @PostConstruct
+    void init() {
+        lambda = Math.log(2) / (halfLifeHours * 3_600_000d);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        newsRepository.findAllFeedItems().forEach(item -> published.put(item.getId(), item));
+        logger.info("Ranking de tendencias listo con {} noticias publicadas", published.size());
+    }
+
+    public void recordView(Long newsId) {
+        rebaseLock.readLock().lock();
+        try {
+            double weight = Math.exp(lambda * (System.currentTimeMillis() - landmark));
+            double score = scores.merge(newsId, weight, Double::sum);
+            NewsFeedItemDTO item = published.get(newsId);
+            if (item != null) {
+                offer(item, score);
+            }
+        } finally {
+            rebaseLock.readLock().unlock();
+        }
+    }
+
+    // Top de noticias en tendencia, general o de una categoría; O(limit)
+    public List<TrendingNewsDTO> getTrending(String category, int limit) {
+        int size = Math.max(1, Math.min(limit, topK));
+        List<TrendingNewsDTO> result = new ArrayList<>(size);
+        rebaseLock.readLock().lock();
+        try {
+            TopK ranking = rankings.get(category == null || category.isBlank() ? ALL : category);
+            if (ranking == null) {
+                return result;
+            }
+            double decay = Math.exp(-lambda * (System.currentTimeMillis() - landmark));
+            for (Ranked ranked : ranking.top(size)) {
+                NewsFeedItemDTO item = published.get(ranked.id());
+                if (item != null) {
+                    result.add(new TrendingNewsDTO(item.getId(), item.getTitle(), item.getSummary(),
+                            item.getThumbnail(), item.getCategory(), item.getCreatedAt(),
+                            ranked.score() * decay));
+                }
+            }
+        } finally {
+            rebaseLock.readLock().unlock();
+        }
+        return result;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onNewsChanged(NewsChangedEvent event) {
+        NewsDTO news = event.news();
+        boolean isPublished = Boolean.TRUE.equals(news.getIsPublished());
+        NewsFeedItemDTO item = new NewsFeedItemDTO(news.getId(), news.getTitle(), news.getSummary(),
+                news.getThumbnail(), news.getCategory(), news.getCreatedAt());
+        rebaseLock.readLock().lock();
+        try {
+            NewsFeedItemDTO previous = isPublished ? published.put(news.getId(), item) : published.remove(news.getId());
+            if (previous != null) {
+                if (!isPublished) {
+                    withdraw(news.getId(), ALL);
+                }
+                if (!isPublished || !Objects.equals(previous.getCategory(), news.getCategory())) {
+                    withdraw(news.getId(), previous.getCategory());
+                }
+            }
+            Double score = scores.get(news.getId());
+            if (isPublished && score != null) {
+                offer(item, score);
+            }
+        } finally {
+            rebaseLock.readLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onNewsDeleted(NewsDeletedEvent event) {
+        rebaseLock.readLock().lock();
+        try {
+            scores.remove(event.newsId());
+            NewsFeedItemDTO previous = published.remove(event.newsId());
+            if (previous != null) {
+                withdraw(event.newsId(), ALL);
+                withdraw(event.newsId(), previous.getCategory());
+            }
+        } finally {
+            rebaseLock.readLock().unlock();
+        }
+    }
+
+    // Mueve el instante de referencia para que los pesos de las vistas nuevas no crezcan sin límite
+    @Scheduled(fixedDelayString = "${levelup.news.trending.rebase-check-interval-ms:3600000}")
+    public void rebase() {
+        long now = System.currentTimeMillis();
+        if (lambda * (now - landmark) < REBASE_EXPONENT) {
+            return;
+        }
+        rebaseLock.writeLock().lock();
+        try {
+            double factor = Math.exp(-lambda * (now - landmark));
+            scores.replaceAll((id, score) -> score * factor);
+            scores.values().removeIf(score -> score < MIN_SCORE);
+            // Reescalar no cambia el orden, así que cada top-K se conserva
+            rankings.values().forEach(ranking -> ranking.scale(factor));
+            landmark = now;
+            logger.debug("Ranking de tendencias reescalado, {} noticias con puntaje", scores.size());
+        } finally {
+            rebaseLock.writeLock().unlock();
+        }
+    }
+
+    private void offer(NewsFeedItemDTO item, double score) {
+        ranking(ALL).offer(item.getId(), score);
+        if (item.getCategory() != null) {
+            ranking(item.getCategory()).offer(item.getId(), score);
+        }
+    }
+
+    // Quitar un miembro deja un hueco: solo en ese caso se recalcula el top-K de la categoría
+    private void withdraw(Long newsId, String category) {
+        if (category == null) {
+            return;
+        }
+        TopK ranking = rankings.get(category);
+        if (ranking != null && ranking.contains(newsId)) {
+            ranking.rebuild(newsId, category);
+        }
+    }
+
+    private TopK ranking(String category) {
+        return rankings.computeIfAbsent(category, key -> new TopK(topK));
+    }
+
+    /**
+     * Las K noticias con mayor puntaje de una categoría. Como los puntajes
+     * solo crecen, una noticia fuera del top únicamente puede entrar con su
+     * propia vista, y basta compararla con el último.
+     */
+    private final class TopK {
+
+        private final int capacity;
+        private TreeSet<Ranked> ranked = new TreeSet<>(BY_SCORE_DESC);
+        private final Map<Long, Ranked> members = new HashMap<>();
+
+        TopK(int capacity) {
+            this.capacity = capacity;
+        }
+
+        synchronized void offer(long id, double score) {
+            Ranked current = members.get(id);
+            if (current != null) {
+                // Una vista concurrente ya dejó un puntaje mayor
+                if (score <= current.score()) {
+                    return;
+                }
+                ranked.remove(current);
+            } else if (ranked.size() >= capacity && score <= ranked.last().score()) {
+                return;
+            }
+            Ranked entry = new Ranked(id, score);
+            ranked.add(entry);
+            members.put(id, entry);
+            if (ranked.size() > capacity) {
+                members.remove(ranked.pollLast().id());
+            }
+        }
+
+        synchronized boolean contains(long id) {
+            return members.containsKey(id);
+        }
+
+        synchronized List<Ranked> top(int limit) {
+            List<Ranked> top = new ArrayList<>(Math.min(limit, ranked.size()));
+            for (Ranked entry : ranked) {
+                if (top.size() == limit) {
+                    break;
+                }
+                top.add(entry);
+            }
+            return top;
+        }
+
+        // Recorre las noticias publicadas de la categoría; ocurre al borrar, despublicar o recategorizar
+        synchronized void rebuild(long removedId, String category) {
+            ranked.clear();
+            members.clear();
+            for (NewsFeedItemDTO item : published.values()) {
+                if (item.getId() == removedId || (!ALL.equals(category)
+                        && !category.equals(item.getCategory()))) {
+                    continue;
+                }
+                Double score = scores.get(item.getId());
+                if (score != null) {
+                    offer(item.getId(), score);
+                }
+            }
+        }
+
+        synchronized void scale(double factor) {
+            TreeSet<Ranked> scaled = new TreeSet<>(BY_SCORE_DESC);
+            for (Ranked entry : ranked) {
+                Ranked updated = new Ranked(entry.id(), entry.score() * factor);
+                scaled.add(updated);
+                members.put(entry.id(), updated);
+            }
+            ranked = scaled;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.levelup.backend.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contador de vistas de noticias con escritura diferida. Cada vista suma en
+ * un LongAdder (contador segmentado, sin contención entre hilos) y un proceso
+ * periódico lleva los acumulados a la base con un UPDATE por lotes. Al
+ * vaciar se resta exactamente lo escrito, así no se pierden vistas que
+ * lleguen durante el flush.
+ *
+ * Los contadores que quedan en cero se quitan del mapa para que no crezca
+ * con cada noticia vista alguna vez. Antes de quitarlo, el flush marca el
+ * contador como retirado y vuelve a leerlo; quien incrementa mira la marca
+ * después de sumar y, si está puesta, deshace su suma y reintenta con el
+ * contador nuevo. Así ninguna vista queda en un contador ya quitado.
+ */
+@Service
+public class NewsViewCounter {
+
+    private static final Logger logger = LoggerFactory.getLogger(NewsViewCounter.class);
+
+    private static final String FLUSH_SQL = "UPDATE news SET views = COALESCE(views, 0) + ? WHERE id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private static final class Counter extends LongAdder {
+        // Solo lo escribe el flush
+        volatile boolean retired;
+    }
+
+    private final Map<Long, Counter> pending = new ConcurrentHashMap<>();
+
+    private final Object flushLock = new Object();
+
+    public void increment(Long newsId) {
+        while (true) {
+            Counter counter = pending.computeIfAbsent(newsId, id -> new Counter());
+            counter.increment();
+            if (!counter.retired) {
+                return;
+            }
+            // El flush lo está quitando: la suma no contaría
+            counter.decrement();
+            Thread.onSpinWait();
+        }
+    }
+
+    // Vistas aún no escritas en la base
+    public long pending(Long newsId) {
+        Counter adder = pending.get(newsId);
+        return adder != null ? adder.sum() : 0;
+    }
+
+    // Vistas persistidas más las pendientes
+    public int merge(Long newsId, Integer persisted) {
+        return (int) ((persisted != null ? persisted : 0) + pending(newsId));
+    }
+
+    @Scheduled(fixedDelayString = "${levelup.news.views.flush-interval-ms:2000}")
+    public void flush() {
+        synchronized (flushLock) {
+            List<long[]> batch = new ArrayList<>();
+            for (Map.Entry<Long, Counter> entry : pending.entrySet()) {
+                long count = entry.getValue().sum();
+                if (count > 0) {
+                    batch.add(new long[] { entry.getKey(), count });
+                }
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                jdbcTemplate.batchUpdate(FLUSH_SQL, batch, batch.size(), (ps, row) -> {
+                    ps.setLong(1, row[1]);
+                    ps.setLong(2, row[0]);
+                });
+            } catch (DataAccessException e) {
+                // Se conservan los acumulados y se reintenta en el próximo ciclo
+                logger.warn("No se pudieron guardar las vistas de {} noticias: {}", batch.size(), e.getMessage());
+                return;
+            }
+            for (long[] row : batch) {
+                Counter counter = pending.get(row[0]);
+                counter.add(-row[1]);
+                removeIfZero(row[0], counter);
+            }
+            logger.debug("Vistas guardadas para {} noticias", batch.size());
+        }
+    }
+
+    // Llamado con flushLock tomado, único lugar donde se quitan contadores
+    private void removeIfZero(Long newsId, Counter counter) {
+        if (counter.sum() != 0) {
+            return;
+        }
+        counter.retired = true;
+        if (counter.sum() == 0) {
+            pending.remove(newsId, counter);
+        } else {
+            // Llegó una vista entre ambas lecturas: el contador sigue en uso
+            counter.retired = false;
+        }
+    }
+
+    // Al apagar la aplicación se escriben las vistas pendientes
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+}
@@ -0,0 +1,543 @@
+package com.levelup.backend.service;
+
+import com.levelup.backend.archive.ArchivedOrder;
+import com.levelup.backend.archive.OrderSegment;
+import com.levelup.backend.archive.OrderSegmentWriter;
+import com.levelup.backend.dto.OrderArchiveStatsDTO;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Archivo frío de órdenes. Un proceso periódico mueve las órdenes más
+ * antiguas que levelup.archive.age-days a segmentos comprimidos de solo
+ * escritura en disco (ver OrderSegmentWriter) y luego las borra de orders y
+ * order_items. Se recorre la tabla por id en lotes y cada segmento se cierra
+ * al llegar a segment-max-orders, así la memoria no depende de cuántas filas
+ * se archiven.
+ *
+ * El orden importa para no perder datos: primero el segmento queda completo
+ * en disco y después se borra de la base, verificando con FOR UPDATE que la
+ * orden no haya cambiado mientras tanto. Si la aplicación cae entre ambos
+ * pasos la orden queda en los dos lados; las búsquedas prefieren siempre la
+ * base, así que el duplicado es inofensivo. Las copias archivadas que dejan
+ * de valer (orden modificada, borrada o restaurada) se marcan con una lápida
+ * en un archivo aparte, porque los segmentos nunca se reescriben.
+ *
+ * Las órdenes restauradas vuelven a la base con su mismo id y quedan fijadas:
+ * el archivador no las vuelve a mover.
+ *
+ * levelup.archive.dir es lo único que guarda las órdenes archivadas. Con
+ * varias instancias debe ser un directorio compartido (volumen de red)
+ * montado en la misma ruta en todas, y solo una debe escribirlo
+ * (levelup.archive.enabled=true): archiva y restaura. Las demás lo leen y
+ * cada levelup.archive.refresh-interval-ms incorporan los segmentos y
+ * lápidas nuevos.
+ */
+@Service
+public class OrderArchiveService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderArchiveService.class);
+
+    private static final Pattern SEGMENT_NAME = Pattern.compile("orders-(\\d+)\\.seg");
+    private static final String TOMBSTONES_FILE = "tombstones";
+    private static final String RESTORED_FILE = "restored";
+
+    private static final String MAX_ID_SQL = "SELECT MAX(id) FROM orders WHERE created_at < ?";
+
+    private static final String SELECT_ORDERS_SQL = "SELECT id, user_id, status, total, created_at FROM orders "
+            + "WHERE id > ? AND id <= ? AND created_at < ? ORDER BY id LIMIT ?";
+
+    private static final String SELECT_ITEMS_SQL = "SELECT id, order_id, product_id, quantity, price "
+            + "FROM order_items WHERE order_id IN (:ids) ORDER BY order_id, id";
+
+    private static final String LOCK_ORDERS_SQL = "SELECT id, user_id, status, total, created_at FROM orders "
+            + "WHERE id IN (:ids) FOR UPDATE";
+
+    private static final String LOCK_ITEMS_SQL = "SELECT id, order_id, product_id, quantity, price "
+            + "FROM order_items WHERE order_id IN (:ids) FOR UPDATE";
+
+    private static final String DELETE_ITEMS_SQL = "DELETE FROM order_items WHERE order_id IN (:ids)";
+
+    private static final String DELETE_ORDERS_SQL = "DELETE FROM orders WHERE id IN (:ids)";
+
+    private static final String EXISTS_SQL = "SELECT COUNT(*) FROM orders WHERE id = ?";
+
+    private static final String INSERT_ORDER_SQL =
+            "INSERT INTO orders (id, user_id, status, total, created_at) VALUES (?, ?, ?, ?, ?)";
+
+    private static final String INSERT_ITEM_SQL =
+            "INSERT INTO order_items (id, order_id, product_id, quantity, price) VALUES (?, ?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${levelup.archive.enabled:true}")
+    private boolean enabled;
+
+    @Value("${levelup.archive.dir:archive/orders}")
+    private String directory;
+
+    @Value("${levelup.archive.age-days:365}")
+    private int ageDays;
+
+    @Value("${levelup.archive.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${levelup.archive.segment-max-orders:100000}")
+    private int segmentMaxOrders;
+
+    @Value("${levelup.archive.block-size:256}")
+    private int blockSize;
+
+    private TransactionTemplate transactionTemplate;
+    private Path dir;
+
+    // Segmentos en orden de secuencia; los lectores no toman locks
+    private final List<OrderSegment> segments = new CopyOnWriteArrayList<>();
+
+    // Copias anuladas: secuencia del segmento << 32 | id de la orden
+    private final Set<Long> tombstones = ConcurrentHashMap.newKeySet();
+
+    private final Set<Integer> restored = ConcurrentHashMap.newKeySet();
+
+    // Una sola escritura a la vez (archivado o restauración)
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    private long nextSequence = 1;
+    private volatile LocalDateTime lastRunAt;
+    private volatile int lastRunArchived;
+
+    @PostConstruct
+    public void init() throws IOException {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        dir = Path.of(directory);
+        Files.createDirectories(dir);
+        if (enabled) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*.tmp")) {
+                for (Path file : files) {
+                    // Segmento que no llegó a terminarse: sus órdenes siguen en la base
+                    Files.delete(file);
+                }
+            }
+        }
+        load();
+        logger.info("Archivo de órdenes en {}: {} segmentos{}", dir.toAbsolutePath(), segments.size(),
+                enabled ? "" : " (solo lectura)");
+    }
+
+    // En los nodos que solo leen, incorpora lo que escribió el nodo archivador
+    @Scheduled(fixedDelayString = "${levelup.archive.refresh-interval-ms:60000}")
+    public void refresh() {
+        if (enabled) {
+            return;
+        }
+        try {
+            load();
+        } catch (IOException e) {
+            logger.warn("No se pudo releer el archivo de órdenes: {}", e.getMessage());
+        }
+    }
+
+    // Segmentos, lápidas y órdenes fijadas que aún no se conocen; todo en disco solo crece
+    private synchronized void load() throws IOException {
+        long known = segments.isEmpty() ? 0 : segments.get(segments.size() - 1).getSequence();
+        List<OrderSegment> found = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) {
+                Matcher matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+                if (matcher.matches() && Long.parseLong(matcher.group(1)) > known) {
+                    found.add(OrderSegment.open(file, Long.parseLong(matcher.group(1))));
+                }
+            }
+        }
+        found.sort(Comparator.comparingLong(OrderSegment::getSequence));
+        // Lápidas antes que segmentos: un lector nunca ve una copia ya anulada como válida
+        for (String line : readLines(TOMBSTONES_FILE)) {
+            String[] parts = line.split(" ");
+            tombstones.add(key(Long.parseLong(parts[0]), Integer.parseInt(parts[1])));
+        }
+        for (String line : readLines(RESTORED_FILE)) {
+            restored.add(Integer.parseInt(line));
+        }
+        segments.addAll(found);
+        if (!segments.isEmpty()) {
+            nextSequence = segments.get(segments.size() - 1).getSequence() + 1;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${levelup.archive.interval-ms:21600000}",
+            initialDelayString = "${levelup.archive.initial-delay-ms:300000}")
+    public void scheduledArchive() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            archive();
+        } catch (IllegalStateException e) {
+            logger.debug("Archivado omitido: {}", e.getMessage());
+        } catch (RuntimeException e) {
+            logger.error("Falló el archivado de órdenes", e);
+        }
+    }
+
+    /**
+     * Archiva las órdenes más antiguas que la edad configurada y devuelve
+     * cuántas salieron de la base. Lanza IllegalStateException si ya hay una
+     * escritura en curso o si este nodo no escribe el archivo.
+     */
+    public int archive() {
+        checkWriter();
+        if (!writeLock.tryLock()) {
+            throw new IllegalStateException("Ya hay un archivado o restauración en curso");
+        }
+        try {
+            LocalDateTime cutoff = LocalDateTime.now().minusDays(ageDays);
+            Integer maxId = jdbcTemplate.queryForObject(MAX_ID_SQL, Integer.class, Timestamp.valueOf(cutoff));
+            int archived = 0;
+            int afterId = 0;
+            while (maxId != null && afterId < maxId) {
+                SegmentRun run = writeSegment(cutoff, afterId, maxId);
+                if (run.segment() != null) {
+                    segments.add(run.segment());
+                    archived += removeArchived(run.segment());
+                }
+                afterId = run.lastScannedId();
+                if (run.exhausted()) {
+                    break;
+                }
+            }
+            lastRunAt = LocalDateTime.now();
+            lastRunArchived = archived;
+            if (archived > 0) {
+                logger.info("Órdenes archivadas: {} (anteriores a {})", archived, cutoff);
+            }
+            return archived;
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo escribir el archivo de órdenes", e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public Optional<ArchivedOrder> find(int id) {
+        try {
+            for (int i = segments.size() - 1; i >= 0; i--) {
+                OrderSegment segment = segments.get(i);
+                ArchivedOrder order = segment.find(id);
+                if (order != null && !tombstones.contains(key(segment.getSequence(), id))) {
+                    return Optional.of(order);
+                }
+            }
+            return Optional.empty();
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo leer el archivo de órdenes", e);
+        }
+    }
+
+    // Órdenes archivadas de un usuario, más recientes primero
+    public List<ArchivedOrder> findByUser(int userId) {
+        if (segments.isEmpty()) {
+            return List.of();
+        }
+        Map<Integer, ArchivedOrder> byId = new HashMap<>();
+        try {
+            for (int i = segments.size() - 1; i >= 0; i--) {
+                OrderSegment segment = segments.get(i);
+                for (ArchivedOrder order : segment.findByUser(userId)) {
+                    if (!tombstones.contains(key(segment.getSequence(), order.id()))) {
+                        byId.putIfAbsent(order.id(), order);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo leer el archivo de órdenes", e);
+        }
+        List<ArchivedOrder> orders = new ArrayList<>(byId.values());
+        orders.sort(Comparator.comparing(ArchivedOrder::createdAt).thenComparing(ArchivedOrder::id).reversed());
+        return orders;
+    }
+
+    // Fecha de la orden archivada más reciente; null si no hay archivo
+    public LocalDateTime getNewestArchivedAt() {
+        LocalDateTime newest = null;
+        for (OrderSegment segment : segments) {
+            if (segment.getOrderCount() > 0
+                    && (newest == null || segment.getNewestCreatedAt().isAfter(newest))) {
+                newest = segment.getNewestCreatedAt();
+            }
+        }
+        return newest;
+    }
+
+    /**
+     * Devuelve una orden archivada a la base con su id y los de sus items y
+     * la fija para que no se vuelva a archivar. Vacío si no está archivada;
+     * IllegalStateException si la base la rechaza (p. ej. el usuario o un
+     * producto ya no existen) o si este nodo no escribe el archivo.
+     */
+    public Optional<ArchivedOrder> restore(int id) {
+        checkWriter();
+        writeLock.lock();
+        try {
+            Optional<ArchivedOrder> found = find(id);
+            if (found.isEmpty()) {
+                return found;
+            }
+            ArchivedOrder order = found.get();
+            // Primero se fija: si la restauración falla, la orden sigue archivada igual
+            if (restored.add(id)) {
+                appendLine(RESTORED_FILE, String.valueOf(id));
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> insert(order));
+            } catch (DataIntegrityViolationException e) {
+                throw new IllegalStateException("No se puede restaurar la orden " + id + ": " + e.getMessage(), e);
+            }
+            tombstone(id);
+            logger.info("Orden {} restaurada desde el archivo", id);
+            return found;
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo escribir el archivo de órdenes", e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public OrderArchiveStatsDTO stats() {
+        long archivedOrders = 0;
+        long diskBytes = 0;
+        LocalDateTime oldest = null;
+        for (OrderSegment segment : segments) {
+            archivedOrders += segment.getOrderCount();
+            try {
+                diskBytes += Files.size(segment.getPath());
+            } catch (IOException e) {
+                logger.warn("No se pudo leer el tamaño de {}: {}", segment.getPath(), e.getMessage());
+            }
+            if (segment.getOrderCount() > 0 && (oldest == null || segment.getOldestCreatedAt().isBefore(oldest))) {
+                oldest = segment.getOldestCreatedAt();
+            }
+        }
+        return new OrderArchiveStatsDTO(segments.size(), archivedOrders - tombstones.size(), tombstones.size(),
+                restored.size(), diskBytes, oldest, getNewestArchivedAt(), lastRunAt, lastRunArchived);
+    }
+
+    // Escribe un segmento con las siguientes órdenes candidatas; sin órdenes no deja archivo
+    private SegmentRun writeSegment(LocalDateTime cutoff, int afterId, int maxId) throws IOException {
+        long sequence = nextSequence++;
+        Path target = dir.resolve("orders-" + sequence + ".seg");
+        Path temp = dir.resolve("orders-" + sequence + ".seg.tmp");
+        int lastScannedId = afterId;
+        boolean exhausted = false;
+        try (OrderSegmentWriter writer = new OrderSegmentWriter(temp, blockSize)) {
+            while (writer.count() < segmentMaxOrders) {
+                int limit = Math.min(batchSize, segmentMaxOrders - writer.count());
+                List<ArchivedOrder> batch = loadBatch(lastScannedId, maxId, cutoff, limit);
+                for (ArchivedOrder order : batch) {
+                    lastScannedId = order.id();
+                    if (!restored.contains(order.id())) {
+                        writer.append(order);
+                    }
+                }
+                if (batch.size() < limit) {
+                    exhausted = true;
+                    break;
+                }
+            }
+            if (writer.count() == 0) {
+                writer.abort();
+                return new SegmentRun(null, lastScannedId, exhausted);
+            }
+            writer.finish(target);
+        }
+        return new SegmentRun(OrderSegment.open(target, sequence), lastScannedId, exhausted);
+    }
+
+    // Un lote de órdenes en orden de id, con sus items en una sola consulta IN
+    private List<ArchivedOrder> loadBatch(int afterId, int maxId, LocalDateTime cutoff, int limit) {
+        List<Object[]> rows = jdbcTemplate.query(SELECT_ORDERS_SQL, (rs, rowNum) -> new Object[] {
+                rs.getInt("id"), rs.getInt("user_id"), rs.getString("status"), rs.getDouble("total"),
+                rs.getObject("created_at", LocalDateTime.class)
+        }, afterId, maxId, Timestamp.valueOf(cutoff), limit);
+        if (rows.isEmpty()) {
+            return List.of();
+        }
+        Map<Integer, List<ArchivedOrder.Item>> itemsByOrder = new HashMap<>();
+        List<Integer> ids = rows.stream().map(row -> (Integer) row[0]).toList();
+        namedParameterJdbcTemplate.query(SELECT_ITEMS_SQL, Map.of("ids", ids), rs -> {
+            itemsByOrder.computeIfAbsent(rs.getInt("order_id"), orderId -> new ArrayList<>())
+                    .add(new ArchivedOrder.Item(rs.getInt("id"), rs.getInt("product_id"), rs.getInt("quantity"),
+                            rs.getDouble("price")));
+        });
+        List<ArchivedOrder> batch = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            int id = (Integer) row[0];
+            batch.add(new ArchivedOrder(id, (Integer) row[1], (String) row[2], (Double) row[3],
+                    (LocalDateTime) row[4], itemsByOrder.getOrDefault(id, List.of())));
+        }
+        return batch;
+    }
+
+    // Borra de la base lo que quedó en el segmento, un lote por transacción
+    private int removeArchived(OrderSegment segment) throws IOException {
+        int removed = 0;
+        List<ArchivedOrder> pending = new ArrayList<>(batchSize);
+        for (int block = 0; block < segment.getBlockCount(); block++) {
+            pending.addAll(segment.readBlock(block));
+            if (pending.size() >= batchSize || block == segment.getBlockCount() - 1) {
+                List<ArchivedOrder> chunk = pending;
+                Integer deleted = transactionTemplate.execute(status -> delete(segment, chunk));
+                removed += deleted != null ? deleted : 0;
+                pending = new ArrayList<>(batchSize);
+            }
+        }
+        return removed;
+    }
+
+    private int delete(OrderSegment segment, List<ArchivedOrder> chunk) {
+        Map<String, Object> params = Map.of("ids", chunk.stream().map(ArchivedOrder::id).toList());
+        // Con la orden bloqueada no se le pueden agregar items (la clave foránea espera ese lock);
+        // los items existentes se bloquean aparte para que no cambien antes del DELETE
+        Map<Integer, ArchivedOrder> current = new HashMap<>();
+        namedParameterJdbcTemplate.query(LOCK_ORDERS_SQL, params, rs -> {
+            current.put(rs.getInt("id"), new ArchivedOrder(rs.getInt("id"), rs.getInt("user_id"),
+                    rs.getString("status"), rs.getDouble("total"), rs.getObject("created_at", LocalDateTime.class),
+                    new ArrayList<>()));
+        });
+        namedParameterJdbcTemplate.query(LOCK_ITEMS_SQL, params, rs -> {
+            ArchivedOrder order = current.get(rs.getInt("order_id"));
+            if (order != null) {
+                order.items().add(new ArchivedOrder.Item(rs.getInt("id"), rs.getInt("product_id"),
+                        rs.getInt("quantity"), rs.getDouble("price")));
+            }
+        });
+        List<Integer> deletable = new ArrayList<>(chunk.size());
+        for (ArchivedOrder order : chunk) {
+            if (sameOrder(order, current.get(order.id()))) {
+                deletable.add(order.id());
+            } else {
+                // Cambió o se borró mientras se archivaba: la copia archivada no vale
+                try {
+                    addTombstone(segment.getSequence(), order.id());
+                } catch (IOException e) {
+                    throw new UncheckedIOException("No se pudo escribir una lápida del archivo", e);
+                }
+            }
+        }
+        if (!deletable.isEmpty()) {
+            Map<String, Object> deleteParams = Map.of("ids", deletable);
+            namedParameterJdbcTemplate.update(DELETE_ITEMS_SQL, deleteParams);
+            namedParameterJdbcTemplate.update(DELETE_ORDERS_SQL, deleteParams);
+        }
+        return deletable.size();
+    }
+
+    // La copia del segmento coincide con la fila bloqueada, items incluidos
+    private static boolean sameOrder(ArchivedOrder archived, ArchivedOrder current) {
+        return current != null
+                && archived.userId() == current.userId()
+                && Objects.equals(archived.status(), current.status())
+                && archived.total() == current.total()
+                && new HashSet<>(archived.items()).equals(new HashSet<>(current.items()));
+    }
+
+    private void checkWriter() {
+        if (!enabled) {
+            throw new IllegalStateException("Este nodo no escribe el archivo de órdenes (levelup.archive.enabled=false)");
+        }
+    }
+
+    private void insert(ArchivedOrder order) {
+        Integer existing = jdbcTemplate.queryForObject(EXISTS_SQL, Integer.class, order.id());
+        if (existing != null && existing > 0) {
+            // Quedó en la base tras una caída entre el segmento y el borrado
+            return;
+        }
+        jdbcTemplate.update(INSERT_ORDER_SQL, order.id(), order.userId(), order.status(), order.total(),
+                Timestamp.valueOf(order.createdAt()));
+        jdbcTemplate.batchUpdate(INSERT_ITEM_SQL, order.items(), order.items().size(), (ps, item) -> {
+            ps.setInt(1, item.id());
+            ps.setInt(2, order.id());
+            ps.setInt(3, item.productId());
+            ps.setInt(4, item.quantity());
+            ps.setDouble(5, item.price());
+        });
+    }
+
+    // Anula todas las copias archivadas de la orden
+    private void tombstone(int id) throws IOException {
+        for (OrderSegment segment : segments) {
+            if (segment.find(id) != null) {
+                addTombstone(segment.getSequence(), id);
+            }
+        }
+    }
+
+    private void addTombstone(long sequence, int id) throws IOException {
+        if (tombstones.add(key(sequence, id))) {
+            appendLine(TOMBSTONES_FILE, sequence + " " + id);
+        }
+    }
+
+    private void appendLine(String file, String line) throws IOException {
+        Files.writeString(dir.resolve(file), line + "\n", StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND, StandardOpenOption.SYNC);
+    }
+
+    private List<String> readLines(String file) throws IOException {
+        Path path = dir.resolve(file);
+        if (!Files.exists(path)) {
+            return List.of();
+        }
+        return Files.readAllLines(path, StandardCharsets.UTF_8).stream()
+                .map(String::trim)
+                .filter(line -> !line.isEmpty())
+                .toList();
+    }
+
+    private static long key(long sequence, int id) {
+        return (sequence << 32) | (id & 0xFFFFFFFFL);
+    }
+
+    private record SegmentRun(OrderSegment segment, int lastScannedId, boolean exhausted) {}
+}
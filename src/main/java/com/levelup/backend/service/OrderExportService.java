@@ -0,0 +1,204 @@
+package com.levelup.backend.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import tools.jackson.databind.ObjectMapper;
+
+import javax.sql.DataSource;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exportación de órdenes e items en streaming (NDJSON o CSV). Las filas se
+ * leen con un cursor de solo avance y se escriben a la respuesta a medida
+ * que llegan, así la memoria usada no depende de cuántas se exporten. Cada
+ * exportación ocupa una conexión de la base mientras dura, por eso hay un
+ * máximo de exportaciones simultáneas.
+ *
+ * Solo se exportan las órdenes que siguen en la base: las movidas al archivo
+ * frío (ver OrderArchiveService) quedan fuera. Cuando el rango pedido las
+ * alcanza, la respuesta lo indica con la fecha de la más reciente
+ * archivada (ver archivedThrough).
+ */
+@Service
+public class OrderExportService {
+
+    public static final String NDJSON = "ndjson";
+    public static final String CSV = "csv";
+
+    private static final String[] ORDER_COLUMNS = { "id", "userId", "status", "total", "createdAt" };
+
+    private static final String[] ITEM_COLUMNS = { "id", "orderId", "productId", "quantity", "price",
+            "orderStatus", "orderCreatedAt" };
+
+    private static final String ORDERS_SQL = "SELECT o.id, o.user_id, o.status, o.total, o.created_at FROM orders o";
+
+    private static final String ITEMS_SQL = "SELECT i.id, i.order_id, i.product_id, i.quantity, i.price, "
+            + "o.status, o.created_at FROM orders o JOIN order_items i ON i.order_id = o.id";
+
+    // Sigue el índice de createdAt: sin ordenamiento en archivos temporales
+    private static final String ORDER_BY = " ORDER BY o.created_at, o.id";
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private OrderArchiveService orderArchiveService;
+
+    @Value("${levelup.export.max-concurrent:2}")
+    private int maxConcurrent;
+
+    private JdbcTemplate streamingJdbcTemplate;
+    private Semaphore slots;
+
+    @PostConstruct
+    public void init() {
+        streamingJdbcTemplate = new JdbcTemplate(dataSource);
+        // Con MySQL Connector/J, Integer.MIN_VALUE hace que el driver entregue las filas una a una
+        // desde el socket en vez de cargar el resultado completo en memoria
+        streamingJdbcTemplate.setFetchSize(Integer.MIN_VALUE);
+        slots = new Semaphore(maxConcurrent);
+    }
+
+    public static boolean isSupportedFormat(String format) {
+        return NDJSON.equals(format) || CSV.equals(format);
+    }
+
+    // Reserva un lugar para exportar; false si ya hay demasiadas exportaciones en curso
+    public boolean tryAcquire() {
+        return slots.tryAcquire();
+    }
+
+    public void release() {
+        slots.release();
+    }
+
+    // Fecha de la orden archivada más reciente si el rango que empieza en from incluye órdenes archivadas; si no, null
+    public LocalDateTime archivedThrough(LocalDate from) {
+        LocalDateTime newest = orderArchiveService.getNewestArchivedAt();
+        if (newest == null || (from != null && newest.isBefore(from.atStartOfDay()))) {
+            return null;
+        }
+        return newest;
+    }
+
+    public long exportOrders(LocalDate from, LocalDate to, String status, String format, boolean gzip,
+                             OutputStream out) throws IOException {
+        return export(ORDERS_SQL, ORDER_COLUMNS, from, to, status, format, gzip, out, rs -> new Object[] {
+                rs.getInt(1), rs.getInt(2), rs.getString(3), rs.getDouble(4),
+                rs.getObject(5, LocalDateTime.class)
+        });
+    }
+
+    public long exportOrderItems(LocalDate from, LocalDate to, String status, String format, boolean gzip,
+                                 OutputStream out) throws IOException {
+        return export(ITEMS_SQL, ITEM_COLUMNS, from, to, status, format, gzip, out, rs -> new Object[] {
+                rs.getInt(1), rs.getInt(2), rs.getInt(3), rs.getInt(4), rs.getDouble(5), rs.getString(6),
+                rs.getObject(7, LocalDateTime.class)
+        });
+    }
+
+    private long export(String select, String[] columns, LocalDate from, LocalDate to, String status, String format,
+                        boolean gzip, OutputStream out, RowReader reader) throws IOException {
+        StringBuilder sql = new StringBuilder(select).append(" WHERE 1 = 1");
+        List<Object> params = new ArrayList<>();
+        if (from != null) {
+            sql.append(" AND o.created_at >= ?");
+            params.add(Timestamp.valueOf(from.atStartOfDay()));
+        }
+        if (to != null) {
+            sql.append(" AND o.created_at < ?");
+            params.add(Timestamp.valueOf(to.plusDays(1).atStartOfDay()));
+        }
+        if (status != null) {
+            sql.append(" AND o.status = ?");
+            params.add(status);
+        }
+        sql.append(ORDER_BY);
+
+        OutputStream target = gzip ? new GZIPOutputStream(out, 64 * 1024) : out;
+        BufferedOutputStream buffered = new BufferedOutputStream(target, 64 * 1024);
+        boolean csv = CSV.equals(format);
+        if (csv) {
+            writeCsvLine(buffered, columns);
+        }
+        long[] rows = { 0 };
+        try {
+            streamingJdbcTemplate.query(sql.toString(), rs -> {
+                Object[] values = reader.read(rs);
+                try {
+                    if (csv) {
+                        writeCsvLine(buffered, values);
+                    } else {
+                        Map<String, Object> row = new LinkedHashMap<>();
+                        for (int i = 0; i < columns.length; i++) {
+                            row.put(columns[i], values[i]);
+                        }
+                        buffered.write(objectMapper.writeValueAsBytes(row));
+                        buffered.write('\n');
+                    }
+                } catch (IOException e) {
+                    // El cliente cortó la descarga
+                    throw new UncheckedIOException(e);
+                }
+                rows[0]++;
+            }, params.toArray());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        buffered.flush();
+        if (target instanceof GZIPOutputStream gzipStream) {
+            gzipStream.finish();
+        }
+        out.flush();
+        return rows[0];
+    }
+
+    private static void writeCsvLine(OutputStream out, Object[] values) throws IOException {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+            Object value = values[i];
+            if (value == null) {
+                continue;
+            }
+            String text = value instanceof Double number ? BigDecimal.valueOf(number).toPlainString() : value.toString();
+            if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0
+                    || text.indexOf('\r') >= 0) {
+                line.append('"').append(text.replace("\"", "\"\"")).append('"');
+            } else {
+                line.append(text);
+            }
+        }
+        line.append("\r\n");
+        out.write(line.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @FunctionalInterface
+    private interface RowReader {
+        Object[] read(ResultSet rs) throws SQLException;
+    }
+}
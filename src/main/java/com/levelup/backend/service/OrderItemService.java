@@ -0,0 +1,101 @@
+package com.levelup.backend.service;
+
+import com.levelup.backend.dto.OrderEventDTO;
+import com.levelup.backend.dto.OrderItemDTO;
+import com.levelup.backend.dto.OrderLineRow;
+import com.levelup.backend.event.OrderSalesEvent;
+import com.levelup.backend.model.Order;
+import com.levelup.backend.model.OrderItem;
+import com.levelup.backend.repository.OrderItemRepository;
+import com.levelup.backend.repository.OrderRepository;
+import com.levelup.backend.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Cambios sueltos de items de una orden. Cada uno publica en su transacción
+ * el delta de ventas de la línea (la anterior se resta, la nueva se suma),
+ * así los agregados no se desvían de orders y order_items, y deja en el
+ * outbox un order.items_changed con los items que quedan.
+ */
+@Service
+@Transactional
+public class OrderItemService {
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    public OrderItem create(Integer orderId, Integer productId, Integer quantity, Double price) {
+        OrderItem item = new OrderItem();
+        if (orderId != null) {
+            orderRepository.findById(orderId).ifPresent(item::setOrder);
+        }
+        if (productId != null) {
+            productRepository.findById(productId).ifPresent(item::setProduct);
+        }
+        item.setQuantity(quantity);
+        item.setPrice(price);
+        OrderItem saved = orderItemRepository.save(item);
+        publish(saved.getOrder(), List.of(), List.of(line(saved)));
+        return saved;
+    }
+
+    public Optional<OrderItem> update(Integer id, Integer quantity, Double price) {
+        return orderItemRepository.findById(id).map(item -> {
+            OrderLineRow before = line(item);
+            item.setQuantity(quantity);
+            item.setPrice(price);
+            OrderItem updated = orderItemRepository.save(item);
+            publish(updated.getOrder(), List.of(before), List.of(line(updated)));
+            return updated;
+        });
+    }
+
+    public boolean delete(Integer id) {
+        Optional<OrderItem> found = orderItemRepository.findById(id);
+        if (found.isEmpty()) {
+            return false;
+        }
+        OrderItem item = found.get();
+        orderItemRepository.delete(item);
+        publish(item.getOrder(), List.of(line(item)), List.of());
+        return true;
+    }
+
+    // Estado y total de la orden no cambian: solo se mueven unidades e ingresos por producto
+    private void publish(Order order, List<OrderLineRow> fromLines, List<OrderLineRow> toLines) {
+        eventPublisher.publishEvent(new OrderSalesEvent(order.getId(), order.getCreatedAt(), order.getStatus(),
+                order.getTotal(), order.getStatus(), order.getTotal(), fromLines, toLines));
+        // La consulta vacía antes el contexto de persistencia, así ya refleja el cambio
+        List<OrderItemDTO> items = orderItemRepository.findByOrder_Id(order.getId()).stream()
+                .map(item -> new OrderItemDTO(item.getId(), order.getId(), item.getProduct().getId(),
+                        item.getQuantity(), item.getPrice()))
+                .toList();
+        outboxService.record(OutboxService.ORDER, order.getId(), OutboxService.ORDER_ITEMS_CHANGED,
+                new OrderEventDTO(order.getId(), order.getUser().getId(), order.getStatus(), order.getStatus(),
+                        order.getTotal(), order.getCreatedAt(), items));
+    }
+
+    private static OrderLineRow line(OrderItem item) {
+        return new OrderLineRow(item.getProduct().getId(),
+                item.getProduct().getCategory() != null ? item.getProduct().getCategory().getId() : null,
+                item.getQuantity(), item.getPrice());
+    }
+}
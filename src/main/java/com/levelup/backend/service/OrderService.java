@@ -0,0 +1,400 @@
+package com.levelup.backend.service;
+
+import com.levelup.backend.archive.ArchivedOrder;
+import com.levelup.backend.dto.CreateOrderRequest;
+import com.levelup.backend.dto.CursorPageDTO;
+import com.levelup.backend.dto.OrderHistoryDTO;
+import com.levelup.backend.dto.OrderHistoryItemDTO;
+import com.levelup.backend.dto.OrderDTO;
+import com.levelup.backend.dto.OrderEventDTO;
+import com.levelup.backend.dto.OrderItemDTO;
+import com.levelup.backend.dto.OrderItemRequest;
+import com.levelup.backend.dto.OrderLineRow;
+import com.levelup.backend.dto.ProductCategoryRow;
+import com.levelup.backend.dto.ProductRow;
+import com.levelup.backend.event.OrderSalesEvent;
+import com.levelup.backend.model.Order;
+import com.levelup.backend.model.User;
+import com.levelup.backend.repository.OrderItemRepository;
+import com.levelup.backend.repository.OrderRepository;
+import com.levelup.backend.repository.ProductRepository;
+import com.levelup.backend.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Creación de órdenes con un número fijo de idas a la base, sin importar
+ * cuántos items traiga: el usuario, una consulta IN para validar todos los
+ * productos, el INSERT de la orden y un único batch JDBC para los items
+ * (con rewriteBatchedStatements MySQL lo recibe como un INSERT multi-fila y
+ * devuelve todas las claves generadas). Al confirmar se suma el INSERT del
+ * outbox (ver OutboxService), también fijo.
+ */
+@Service
+@Transactional
+public class OrderService {
+
+    private static final String INSERT_ITEM_SQL =
+            "INSERT INTO order_items (order_id, product_id, quantity, price) VALUES (?, ?, ?, ?)";
+
+    // FOR UPDATE OF c: bloquea el carrito contra cambios concurrentes sin bloquear los productos
+    private static final String CART_LINES_SQL = "SELECT c.product_id, c.quantity, p.price, p.currency, "
+            + "p.category_id, p.discontinued FROM cart c JOIN products p ON p.id = c.product_id "
+            + "WHERE c.user_id = ? ORDER BY c.product_id FOR UPDATE OF c";
+
+    private static final String CLEAR_CART_SQL = "DELETE FROM cart WHERE user_id = ?";
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private OrderArchiveService orderArchiveService;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private CartStore cartStore;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${levelup.orders.history.default-size:20}")
+    private int historyDefaultSize;
+
+    @Value("${levelup.orders.history.max-size:100}")
+    private int historyMaxSize;
+
+    // Las validaciones ocurren antes de escribir; no deben marcar para rollback la transacción del llamador
+    @Transactional(noRollbackFor = IllegalArgumentException.class)
+    public OrderDTO createOrder(CreateOrderRequest request) {
+        if (request.getUserId() == null) {
+            throw new IllegalArgumentException("La orden debe indicar un usuario");
+        }
+        User user = userRepository.findById(request.getUserId())
+                .orElseThrow(() -> new IllegalArgumentException("Usuario no encontrado: " + request.getUserId()));
+
+        List<OrderItemRequest> items = request.getItems() != null ? request.getItems() : List.of();
+        Set<Integer> productIds = new LinkedHashSet<>();
+        for (OrderItemRequest item : items) {
+            if (item.getProductId() == null || item.getQuantity() == null || item.getQuantity() <= 0
+                    || item.getPrice() == null) {
+                throw new IllegalArgumentException("Item de orden inválido: " + item);
+            }
+            productIds.add(item.getProductId().intValue());
+        }
+        // Valida los productos y obtiene su categoría (para las agregaciones de ventas) en una consulta
+        Map<Integer, Integer> categoryByProduct = new HashMap<>();
+        if (!productIds.isEmpty()) {
+            for (ProductCategoryRow row : productRepository.findCategoryRowsByIdIn(productIds)) {
+                categoryByProduct.put(row.getProductId(), row.getCategoryId());
+            }
+            for (Integer productId : productIds) {
+                if (!categoryByProduct.containsKey(productId)) {
+                    throw new IllegalArgumentException("Producto no encontrado: " + productId);
+                }
+            }
+        }
+
+        return persistOrder(user, request.getStatus() != null ? request.getStatus() : "pending", request.getTotal(),
+                items, categoryByProduct);
+    }
+
+    /**
+     * Checkout del carrito en una sola transacción: los items salen de las
+     * filas de cart con el precio actual de cada producto, el total se
+     * calcula en el servidor y el carrito se vacía. Son siempre las mismas
+     * sentencias: la lectura del carrito con sus productos (bloqueando solo
+     * las filas del carrito), el INSERT de la orden, el batch de items y el
+     * DELETE del carrito. Si el carrito sigue bloqueado por otro checkout
+     * (CartBusyException) no se llegó a escribir nada.
+     */
+    @Transactional(noRollbackFor = { IllegalArgumentException.class, CartBusyException.class })
+    public OrderDTO checkoutCart(Integer userId) {
+        // El carrito en memoria se escribe antes y queda bloqueado hasta el commit
+        return cartStore.withExternalChange(userId, () -> {
+            List<CartLine> cart = jdbcTemplate.query(CART_LINES_SQL, (rs, rowNum) -> new CartLine(
+                    rs.getInt("product_id"), rs.getInt("quantity"), rs.getObject("price", Double.class),
+                    rs.getString("currency"), rs.getObject("category_id", Integer.class),
+                    rs.getBoolean("discontinued")), userId);
+
+            List<OrderItemRequest> items = new ArrayList<>(cart.size());
+            Map<Integer, Integer> categoryByProduct = new HashMap<>();
+            BigDecimal total = BigDecimal.ZERO;
+            String currency = null;
+            for (CartLine line : cart) {
+                if (line.quantity() <= 0) {
+                    continue;
+                }
+                if (line.discontinued()) {
+                    throw new IllegalArgumentException("Producto descontinuado: " + line.productId());
+                }
+                if (line.price() == null) {
+                    throw new IllegalArgumentException("Producto sin precio: " + line.productId());
+                }
+                if (currency != null && !currency.equals(line.currency())) {
+                    throw new IllegalArgumentException("El carrito mezcla monedas: " + currency + " y " + line.currency());
+                }
+                currency = line.currency();
+                items.add(new OrderItemRequest((long) line.productId(), line.quantity(), line.price()));
+                categoryByProduct.put(line.productId(), line.categoryId());
+                total = total.add(BigDecimal.valueOf(line.price()).multiply(BigDecimal.valueOf(line.quantity())));
+            }
+            if (items.isEmpty()) {
+                throw new IllegalArgumentException("El carrito está vacío");
+            }
+
+            // Las filas del carrito existen, así que el usuario también: basta una referencia sin consulta
+            OrderDTO order = persistOrder(userRepository.getReferenceById(userId), "pending", total.doubleValue(),
+                    items, categoryByProduct);
+            jdbcTemplate.update(CLEAR_CART_SQL, userId);
+            return order;
+        });
+    }
+
+    // INSERT de la orden, batch de items y eventos (agregados de ventas y outbox)
+    private OrderDTO persistOrder(User user, String status, Double total, List<OrderItemRequest> items,
+                                  Map<Integer, Integer> categoryByProduct) {
+        Order savedOrder = orderRepository.save(new Order(user, status, total));
+
+        List<OrderItemDTO> itemDTOs = insertItems(savedOrder.getId(), items);
+
+        List<OrderLineRow> lines = new ArrayList<>(items.size());
+        for (OrderItemRequest item : items) {
+            int productId = item.getProductId().intValue();
+            lines.add(new OrderLineRow(productId, categoryByProduct.get(productId), item.getQuantity(), item.getPrice()));
+        }
+        eventPublisher.publishEvent(new OrderSalesEvent(savedOrder.getId(), savedOrder.getCreatedAt(), null, null,
+                savedOrder.getStatus(), savedOrder.getTotal(), lines));
+
+        outboxService.record(OutboxService.ORDER, savedOrder.getId(), OutboxService.ORDER_CREATED,
+                new OrderEventDTO(savedOrder.getId(), user.getId(), null, savedOrder.getStatus(),
+                        savedOrder.getTotal(), savedOrder.getCreatedAt(), itemDTOs));
+
+        return new OrderDTO(savedOrder.getId(), user.getId(), savedOrder.getStatus(), savedOrder.getTotal(),
+                savedOrder.getCreatedAt(), itemDTOs);
+    }
+
+    // Cambiar estado y total; las agregaciones de ventas mueven la orden de un estado a otro
+    public Optional<Order> updateOrder(Integer id, String status, Double total) {
+        return orderRepository.findById(id).map(order -> {
+            String fromStatus = order.getStatus();
+            Double fromTotal = order.getTotal();
+            order.setStatus(status);
+            order.setTotal(total);
+            Order updated = orderRepository.save(order);
+            if (!Objects.equals(fromStatus, status) || !Objects.equals(fromTotal, total)) {
+                eventPublisher.publishEvent(new OrderSalesEvent(id, order.getCreatedAt(), fromStatus, fromTotal,
+                        status, total, orderItemRepository.findLinesByOrderId(id)));
+                outboxService.record(OutboxService.ORDER, id,
+                        Objects.equals(fromStatus, status) ? OutboxService.ORDER_UPDATED
+                                : OutboxService.ORDER_STATUS_CHANGED,
+                        new OrderEventDTO(id, order.getUser().getId(), fromStatus, status, total,
+                                order.getCreatedAt(), null));
+            }
+            return updated;
+        });
+    }
+
+    public boolean deleteOrder(Integer id) {
+        Optional<Order> found = orderRepository.findById(id);
+        if (found.isEmpty()) {
+            return false;
+        }
+        Order order = found.get();
+        List<OrderLineRow> lines = orderItemRepository.findLinesByOrderId(id);
+        orderRepository.delete(order);
+        eventPublisher.publishEvent(new OrderSalesEvent(id, order.getCreatedAt(), order.getStatus(), order.getTotal(),
+                null, null, lines));
+        outboxService.record(OutboxService.ORDER, id, OutboxService.ORDER_DELETED,
+                new OrderEventDTO(id, order.getUser().getId(), order.getStatus(), null, order.getTotal(),
+                        order.getCreatedAt(), null));
+        return true;
+    }
+
+    /**
+     * Historial de órdenes de un usuario, más recientes primero. Siempre son
+     * dos consultas: la página de órdenes y, con un IN sobre sus ids, todos
+     * sus items con el resumen del producto. Si la página puede alcanzar a
+     * órdenes ya archivadas, se mezclan con las del archivo frío.
+     */
+    @Transactional(readOnly = true)
+    public CursorPageDTO<OrderHistoryDTO> findHistory(Integer userId, String status, KeysetCursor after,
+                                                      Integer size) {
+        int pageSize = size == null || size <= 0 ? historyDefaultSize : Math.min(size, historyMaxSize);
+        String statusFilter = status == null || status.isBlank() ? null : status;
+        // Se pide un elemento extra para saber si hay página siguiente
+        Pageable limit = PageRequest.of(0, pageSize + 1);
+        List<Order> orders = after == null
+                ? orderRepository.findHistory(userId, statusFilter, limit)
+                : orderRepository.findHistoryAfter(userId, statusFilter, after.createdAt(), (int) after.id(), limit);
+
+        List<OrderHistoryDTO> page = orders.stream()
+                .map(order -> new OrderHistoryDTO(order.getId(), order.getStatus(), order.getTotal(),
+                        order.getCreatedAt(), new ArrayList<>()))
+                .collect(Collectors.toList());
+        Map<Integer, ArchivedOrder> archived = findArchivedHistory(userId, statusFilter, after, page, pageSize);
+        if (!archived.isEmpty()) {
+            for (ArchivedOrder order : archived.values()) {
+                page.add(new OrderHistoryDTO(order.id(), order.status(), order.total(), order.createdAt(),
+                        new ArrayList<>()));
+            }
+            page.sort(Comparator.comparing(OrderHistoryDTO::getCreatedAt)
+                    .thenComparing(OrderHistoryDTO::getId).reversed());
+        }
+
+        boolean hasNext = page.size() > pageSize;
+        if (hasNext) {
+            page = page.subList(0, pageSize);
+        }
+        fillHistoryItems(page, archived);
+
+        String nextCursor = null;
+        if (hasNext) {
+            OrderHistoryDTO last = page.get(page.size() - 1);
+            nextCursor = new KeysetCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+        return new CursorPageDTO<>(page, nextCursor, hasNext, page.size());
+    }
+
+    // Órdenes archivadas que caen dentro de la página; ninguna si todo lo leído es más nuevo que el archivo
+    private Map<Integer, ArchivedOrder> findArchivedHistory(Integer userId, String status, KeysetCursor after,
+                                                            List<OrderHistoryDTO> page, int pageSize) {
+        LocalDateTime newestArchived = orderArchiveService.getNewestArchivedAt();
+        if (newestArchived == null
+                || (page.size() > pageSize && page.get(page.size() - 1).getCreatedAt().isAfter(newestArchived))) {
+            return Map.of();
+        }
+        Map<Integer, ArchivedOrder> candidates = new LinkedHashMap<>();
+        for (ArchivedOrder order : orderArchiveService.findByUser(userId)) {
+            if (status != null && !status.equals(order.status())) {
+                continue;
+            }
+            if (after != null && !(order.createdAt().isBefore(after.createdAt())
+                    || (order.createdAt().isEqual(after.createdAt()) && order.id() < after.id()))) {
+                continue;
+            }
+            candidates.put(order.id(), order);
+        }
+        if (!candidates.isEmpty()) {
+            // Una copia archivada de una orden que sigue en la base no cuenta: la base manda
+            orderRepository.findExistingIds(candidates.keySet()).forEach(candidates::remove);
+        }
+        // Vienen ordenadas: con una más que la página alcanza
+        Map<Integer, ArchivedOrder> result = new LinkedHashMap<>();
+        for (ArchivedOrder order : candidates.values()) {
+            if (result.size() > pageSize) {
+                break;
+            }
+            result.put(order.id(), order);
+        }
+        return result;
+    }
+
+    private void fillHistoryItems(List<OrderHistoryDTO> page, Map<Integer, ArchivedOrder> archived) {
+        Map<Integer, OrderHistoryDTO> byId = new HashMap<>();
+        List<Integer> liveIds = new ArrayList<>();
+        Set<Integer> archivedProductIds = new HashSet<>();
+        for (OrderHistoryDTO order : page) {
+            byId.put(order.getId(), order);
+            ArchivedOrder archivedOrder = archived.get(order.getId());
+            if (archivedOrder == null) {
+                liveIds.add(order.getId());
+            } else {
+                archivedOrder.items().forEach(item -> archivedProductIds.add(item.productId()));
+            }
+        }
+        if (!liveIds.isEmpty()) {
+            for (OrderHistoryItemDTO item : orderItemRepository.findHistoryItemsByOrderIdIn(liveIds)) {
+                byId.get(item.getOrderId()).getItems().add(item);
+            }
+        }
+        if (!archivedProductIds.isEmpty()) {
+            Map<Integer, ProductRow> products = new HashMap<>();
+            for (ProductRow product : productRepository.findRowsByIdIn(archivedProductIds)) {
+                products.put(product.getId(), product);
+            }
+            for (OrderHistoryDTO order : page) {
+                ArchivedOrder archivedOrder = archived.get(order.getId());
+                if (archivedOrder == null) {
+                    continue;
+                }
+                for (ArchivedOrder.Item item : archivedOrder.items()) {
+                    ProductRow product = products.get(item.productId());
+                    order.getItems().add(new OrderHistoryItemDTO(item.id(), order.getId(), item.productId(),
+                            product != null ? product.getTitle() : null, product != null ? product.getImage() : null,
+                            product != null ? product.getCurrency() : null, item.quantity(), item.price()));
+                }
+            }
+        }
+    }
+
+    private record CartLine(int productId, int quantity, Double price, String currency, Integer categoryId,
+                            boolean discontinued) {}
+
+    // Un solo executeBatch para todos los items; se recuperan los ids generados en el mismo orden
+    private List<OrderItemDTO> insertItems(Integer orderId, List<OrderItemRequest> items) {
+        List<OrderItemDTO> result = new ArrayList<>(items.size());
+        if (items.isEmpty()) {
+            return result;
+        }
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_ITEM_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                for (OrderItemRequest item : items) {
+                    ps.setInt(1, orderId);
+                    ps.setInt(2, item.getProductId().intValue());
+                    ps.setInt(3, item.getQuantity());
+                    ps.setDouble(4, item.getPrice());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    for (OrderItemRequest item : items) {
+                        Integer id = keys.next() ? keys.getInt(1) : null;
+                        result.add(new OrderItemDTO(id, orderId, item.getProductId().intValue(),
+                                item.getQuantity(), item.getPrice()));
+                    }
+                }
+            }
+            return null;
+        });
+        return result;
+    }
+}
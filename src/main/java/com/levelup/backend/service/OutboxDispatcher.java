@@ -0,0 +1,328 @@
+package com.levelup.backend.service;
+
+import com.levelup.backend.dto.OutboxSinkStatsDTO;
+import com.levelup.backend.outbox.OutboxMessage;
+import com.levelup.backend.outbox.OutboxSink;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Despacha el outbox a los destinos habilitados (levelup.outbox.sinks). Cada
+ * destino avanza por su cuenta: lee lotes en orden de id desde su checkpoint,
+ * los entrega y recién entonces guarda el nuevo checkpoint, así que la
+ * entrega es al menos una vez. Un destino que falla se reintenta con espera
+ * exponencial sin frenar a los demás.
+ *
+ * Los ids AUTO_INCREMENT se asignan antes del commit, de modo que una
+ * transacción puede confirmar el id 11 antes que otra el 10. Para no saltar
+ * eventos, la entrega se detiene ante un hueco. Al verlo por primera vez se
+ * anotan las transacciones InnoDB activas: la dueña del id faltante, si
+ * sigue abierta, está entre ellas. Cuando ninguna de esas sigue activa se
+ * vuelve a leer; si el id todavía falta, esa transacción se revirtió y el
+ * hueco se salta. gap-timeout-ms queda como límite por si una transacción
+ * ajena se alarga o no se puede consultar information_schema.
+ */
+@Service
+public class OutboxDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxDispatcher.class);
+
+    private static final String SELECT_SQL = "SELECT id, aggregate_type, aggregate_id, event_type, payload, created_at "
+            + "FROM outbox_events WHERE id > ? ORDER BY id LIMIT ?";
+
+    private static final String CHECKPOINTS_SQL = "SELECT sink, last_event_id FROM outbox_checkpoints";
+
+    private static final String SAVE_CHECKPOINT_SQL = "INSERT INTO outbox_checkpoints (sink, last_event_id, updated_at) "
+            + "VALUES (?, ?, ?) ON DUPLICATE KEY UPDATE last_event_id = VALUES(last_event_id), "
+            + "updated_at = VALUES(updated_at)";
+
+    private static final String HEAD_SQL = "SELECT MAX(id) FROM outbox_events";
+
+    private static final String OLDEST_PENDING_SQL = "SELECT created_at FROM outbox_events WHERE id > ? ORDER BY id LIMIT 1";
+
+    private static final String PURGE_SQL = "DELETE FROM outbox_events WHERE id <= ? AND created_at < ? ORDER BY id LIMIT ?";
+
+    private static final String ACTIVE_TRANSACTIONS_SQL = "SELECT trx_id FROM information_schema.INNODB_TRX";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private List<OutboxSink> availableSinks;
+
+    @Value("${levelup.outbox.dispatcher.enabled:true}")
+    private boolean enabled;
+
+    @Value("${levelup.outbox.sinks:file,listeners}")
+    private String[] enabledSinks;
+
+    @Value("${levelup.outbox.batch-size:500}")
+    private int batchSize;
+
+    @Value("${levelup.outbox.max-batches-per-run:20}")
+    private int maxBatchesPerRun;
+
+    @Value("${levelup.outbox.gap-timeout-ms:10000}")
+    private long gapTimeoutMs;
+
+    @Value("${levelup.outbox.retry-base-ms:1000}")
+    private long retryBaseMs;
+
+    @Value("${levelup.outbox.retry-max-ms:60000}")
+    private long retryMaxMs;
+
+    @Value("${levelup.outbox.retention-hours:72}")
+    private int retentionHours;
+
+    @Value("${levelup.outbox.purge-batch-size:5000}")
+    private int purgeBatchSize;
+
+    private final Map<String, SinkState> sinks = new LinkedHashMap<>();
+
+    // Primer id faltante de cada hueco -> cuándo se vio y qué transacciones estaban activas
+    private final Map<Long, Gap> gaps = new ConcurrentHashMap<>();
+
+    private final Object dispatchLock = new Object();
+
+    @PostConstruct
+    public void init() {
+        Map<String, Long> checkpoints = new LinkedHashMap<>();
+        jdbcTemplate.query(CHECKPOINTS_SQL, rs -> {
+            checkpoints.put(rs.getString("sink"), rs.getLong("last_event_id"));
+        });
+        for (OutboxSink sink : availableSinks) {
+            if (List.of(enabledSinks).contains(sink.name())) {
+                // Un destino nuevo empieza desde el evento más antiguo que se conserva
+                sinks.put(sink.name(), new SinkState(sink, checkpoints.getOrDefault(sink.name(), 0L)));
+            }
+        }
+        logger.info("Outbox: destinos habilitados {}", sinks.keySet());
+    }
+
+    @Scheduled(fixedDelayString = "${levelup.outbox.poll-interval-ms:500}")
+    public void dispatch() {
+        if (!enabled) {
+            return;
+        }
+        synchronized (dispatchLock) {
+            long now = System.currentTimeMillis();
+            for (SinkState state : sinks.values()) {
+                if (now < state.retryAt) {
+                    continue;
+                }
+                for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+                    if (dispatchBatch(state) < batchSize) {
+                        break;
+                    }
+                }
+            }
+            long lowest = lowestCheckpoint();
+            gaps.keySet().removeIf(id -> id <= lowest);
+        }
+    }
+
+    // Borra los eventos que todos los destinos ya recibieron y superan la retención
+    @Scheduled(fixedDelayString = "${levelup.outbox.purge-interval-ms:3600000}")
+    public void purge() {
+        if (!enabled || sinks.isEmpty()) {
+            return;
+        }
+        Timestamp before = Timestamp.valueOf(LocalDateTime.now().minusHours(retentionHours));
+        long lowest = lowestCheckpoint();
+        int total = 0;
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update(PURGE_SQL, lowest, before, purgeBatchSize);
+            total += deleted;
+        } while (deleted == purgeBatchSize);
+        if (total > 0) {
+            logger.debug("Outbox: {} eventos entregados eliminados", total);
+        }
+    }
+
+    // Vuelve a entregar desde un id (o salta hacia adelante) para un destino
+    public boolean resetCheckpoint(String sinkName, long lastEventId) {
+        synchronized (dispatchLock) {
+            SinkState state = sinks.get(sinkName);
+            if (state == null) {
+                return false;
+            }
+            state.checkpoint = lastEventId;
+            state.retryAt = 0;
+            state.consecutiveFailures = 0;
+            jdbcTemplate.update(SAVE_CHECKPOINT_SQL, sinkName, lastEventId, Timestamp.valueOf(LocalDateTime.now()));
+            logger.info("Outbox: checkpoint de {} movido a {}", sinkName, lastEventId);
+            return true;
+        }
+    }
+
+    public List<OutboxSinkStatsDTO> stats() {
+        Long head = jdbcTemplate.queryForObject(HEAD_SQL, Long.class);
+        long headId = head != null ? head : 0;
+        List<OutboxSinkStatsDTO> result = new ArrayList<>(sinks.size());
+        for (SinkState state : sinks.values()) {
+            long checkpoint = state.checkpoint;
+            long lagSeconds = 0;
+            if (headId > checkpoint) {
+                List<LocalDateTime> oldest = jdbcTemplate.query(OLDEST_PENDING_SQL,
+                        (rs, rowNum) -> rs.getObject("created_at", LocalDateTime.class), checkpoint);
+                if (!oldest.isEmpty()) {
+                    lagSeconds = Math.max(0, Duration.between(oldest.get(0), LocalDateTime.now()).toSeconds());
+                }
+            }
+            result.add(new OutboxSinkStatsDTO(state.sink.name(), checkpoint, headId,
+                    Math.max(0, headId - checkpoint), lagSeconds, state.delivered, state.failures,
+                    state.lastError, state.lastDeliveredAt));
+        }
+        return result;
+    }
+
+    // Entrega un lote; devuelve cuántos eventos se entregaron
+    private int dispatchBatch(SinkState state) {
+        // Antes de leer: un hueco resuelto aquí y ausente en la lectura es una transacción revertida
+        resolveGaps();
+        List<OutboxMessage> rows;
+        try {
+            rows = jdbcTemplate.query(SELECT_SQL, (rs, rowNum) -> new OutboxMessage(rs.getLong("id"),
+                    rs.getString("aggregate_type"), rs.getString("aggregate_id"), rs.getString("event_type"),
+                    rs.getString("payload"), rs.getObject("created_at", LocalDateTime.class)),
+                    state.checkpoint, batchSize);
+        } catch (DataAccessException e) {
+            logger.warn("Outbox: no se pudieron leer eventos: {}", e.getMessage());
+            return 0;
+        }
+        List<OutboxMessage> ready = contiguous(state.checkpoint, rows);
+        if (ready.isEmpty()) {
+            return 0;
+        }
+        try {
+            state.sink.deliver(ready);
+        } catch (Exception e) {
+            state.failures++;
+            state.consecutiveFailures++;
+            state.lastError = e.getMessage();
+            long delay = Math.min(retryMaxMs, retryBaseMs << Math.min(state.consecutiveFailures - 1, 16));
+            state.retryAt = System.currentTimeMillis() + delay;
+            logger.warn("Outbox: falló la entrega a {} desde el evento {} (reintento en {} ms): {}",
+                    state.sink.name(), ready.get(0).id(), delay, e.getMessage());
+            return 0;
+        }
+        long last = ready.get(ready.size() - 1).id();
+        state.checkpoint = last;
+        state.delivered += ready.size();
+        state.consecutiveFailures = 0;
+        state.lastDeliveredAt = LocalDateTime.now();
+        try {
+            jdbcTemplate.update(SAVE_CHECKPOINT_SQL, state.sink.name(), last, Timestamp.valueOf(state.lastDeliveredAt));
+        } catch (DataAccessException e) {
+            // Se conserva en memoria; tras un reinicio se repetiría la entrega (al menos una vez)
+            logger.warn("Outbox: no se pudo guardar el checkpoint de {}: {}", state.sink.name(), e.getMessage());
+        }
+        return ready.size();
+    }
+
+    // Prefijo sin huecos pendientes: un id faltante puede ser una transacción que aún no confirma
+    private List<OutboxMessage> contiguous(long checkpoint, List<OutboxMessage> rows) {
+        List<OutboxMessage> ready = new ArrayList<>(rows.size());
+        long expected = checkpoint + 1;
+        long now = System.currentTimeMillis();
+        for (OutboxMessage row : rows) {
+            if (row.id() != expected) {
+                Gap gap = gaps.computeIfAbsent(expected, id -> new Gap(now, activeTransactions()));
+                if (!gap.resolved && now - gap.firstSeen < gapTimeoutMs) {
+                    break;
+                }
+            }
+            ready.add(row);
+            expected = row.id() + 1;
+        }
+        return ready;
+    }
+
+    // Un hueco queda resuelto cuando terminaron todas las transacciones activas al verlo
+    private void resolveGaps() {
+        if (gaps.isEmpty()) {
+            return;
+        }
+        Set<String> active = null;
+        for (Gap gap : gaps.values()) {
+            if (gap.resolved || gap.transactions == null) {
+                continue;
+            }
+            if (active == null) {
+                active = activeTransactions();
+                if (active == null) {
+                    return;
+                }
+            }
+            if (Collections.disjoint(gap.transactions, active)) {
+                gap.resolved = true;
+            }
+        }
+    }
+
+    // Ids de las transacciones InnoDB abiertas; null si no se pueden consultar (sin permiso PROCESS)
+    private Set<String> activeTransactions() {
+        try {
+            return new HashSet<>(jdbcTemplate.queryForList(ACTIVE_TRANSACTIONS_SQL, String.class));
+        } catch (DataAccessException e) {
+            logger.debug("Outbox: no se pudieron consultar las transacciones activas: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private long lowestCheckpoint() {
+        long lowest = Long.MAX_VALUE;
+        for (SinkState state : sinks.values()) {
+            lowest = Math.min(lowest, state.checkpoint);
+        }
+        return lowest == Long.MAX_VALUE ? 0 : lowest;
+    }
+
+    private static final class Gap {
+        private final long firstSeen;
+        // null si no se pudieron consultar: solo vale el timeout
+        private final Set<String> transactions;
+        private volatile boolean resolved;
+
+        private Gap(long firstSeen, Set<String> transactions) {
+            this.firstSeen = firstSeen;
+            this.transactions = transactions;
+        }
+    }
+
+    private static final class SinkState {
+        private final OutboxSink sink;
+        private volatile long checkpoint;
+        private volatile long delivered;
+        private volatile long failures;
+        private volatile String lastError;
+        private volatile LocalDateTime lastDeliveredAt;
+        private int consecutiveFailures;
+        private long retryAt;
+
+        private SinkState(OutboxSink sink, long checkpoint) {
+            this.sink = sink;
+            this.checkpoint = checkpoint;
+        }
+    }
+}
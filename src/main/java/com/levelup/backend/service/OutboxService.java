@@ -0,0 +1,105 @@
+package com.levelup.backend.service;
+
+import com.levelup.backend.dto.ProductDTO;
+import com.levelup.backend.event.ProductsChangedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import tools.jackson.databind.ObjectMapper;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Escritura del outbox. Los eventos de una transacción se acumulan en
+ * memoria y se insertan en un solo batch justo antes del commit, así la
+ * escritura que los origina paga un único INSERT multi-fila extra y el
+ * evento existe si y solo si el cambio se confirma. Insertar al final
+ * además acorta el tiempo entre que se asigna el id y el commit, que es lo
+ * que el despachador espera ante un hueco de ids (ver OutboxDispatcher).
+ * Sin transacción activa el evento se inserta de inmediato.
+ */
+@Service
+public class OutboxService {
+
+    public static final String ORDER = "order";
+    public static final String PRODUCT = "product";
+
+    public static final String ORDER_CREATED = "order.created";
+    public static final String ORDER_STATUS_CHANGED = "order.status_changed";
+    public static final String ORDER_UPDATED = "order.updated";
+    public static final String ORDER_ITEMS_CHANGED = "order.items_changed";
+    public static final String ORDER_DELETED = "order.deleted";
+    public static final String PRODUCT_CHANGED = "product.changed";
+
+    private static final String INSERT_SQL = "INSERT INTO outbox_events "
+            + "(aggregate_type, aggregate_id, event_type, payload, created_at) VALUES (?, ?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    public void record(String aggregateType, Object aggregateId, String eventType, Object payload) {
+        Object[] row = new Object[] { aggregateType, String.valueOf(aggregateId), eventType,
+                objectMapper.writeValueAsString(payload), Timestamp.valueOf(LocalDateTime.now()) };
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            insert(List.of(row));
+            return;
+        }
+        PendingEvents pending = (PendingEvents) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new PendingEvents();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        if (pending.flushed) {
+            // Publicado desde otro beforeCommit, después del batch: sigue dentro de la transacción
+            insert(List.of(row));
+        } else {
+            pending.rows.add(row);
+        }
+    }
+
+    // Productos creados o modificados (controlador, importación, cambios de stock)
+    @EventListener
+    public void onProductsChanged(ProductsChangedEvent event) {
+        recordProducts(event.products());
+    }
+
+    public void recordProducts(List<ProductDTO> products) {
+        for (ProductDTO product : products) {
+            record(PRODUCT, product.getId(), PRODUCT_CHANGED, product);
+        }
+    }
+
+    private void insert(List<Object[]> rows) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+    }
+
+    // Eventos de la transacción en curso
+    private final class PendingEvents implements TransactionSynchronization {
+
+        private final List<Object[]> rows = new ArrayList<>();
+        private boolean flushed;
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            flushed = true;
+            if (!rows.isEmpty()) {
+                insert(rows);
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(OutboxService.this);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.levelup.backend.service;
+
+import com.levelup.backend.dto.ProductDTO;
+import com.levelup.backend.event.CategoryChangedEvent;
+import com.levelup.backend.event.ProductsChangedEvent;
+import com.levelup.backend.event.ProductsImportedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * Caché en memoria del catálogo de productos basada en snapshots versionados.
+ * Las lecturas solo desreferencian el snapshot actual (sin bloqueos); las
+ * escrituras (ProductsChangedEvent, o una categoría eliminada con sus
+ * productos) construyen una versión nueva y la publican tras el commit.
+ */
+@Service
+public class ProductCatalogCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductCatalogCache.class);
+
+    @Autowired
+    private ProductQueryService productQueryService;
+
+    @Value("${levelup.catalog.cache.enabled:true}")
+    private boolean enabled;
+
+    private final AtomicReference<CatalogSnapshot> current = new AtomicReference<>();
+
+    // Distingue las versiones de esta instancia de las de otra instancia o de un reinicio
+    private final String instanceId = UUID.randomUUID().toString().substring(0, 8);
+
+    // Cambios publicados mientras la carga inicial todavía no termina, en orden
+    private final List<UnaryOperator<CatalogSnapshot>> pending = new ArrayList<>();
+
+    private final Object writeLock = new Object();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!enabled) {
+            logger.info("Caché de catálogo deshabilitada");
+            return;
+        }
+        List<ProductDTO> products = productQueryService.findAll();
+        synchronized (writeLock) {
+            CatalogSnapshot snapshot = CatalogSnapshot.of(1, products);
+            for (UnaryOperator<CatalogSnapshot> change : pending) {
+                snapshot = change.apply(snapshot);
+            }
+            pending.clear();
+            current.set(snapshot);
+            logger.info("Caché de catálogo cargada: {} productos (versión {})", snapshot.size(), snapshot.getVersion());
+        }
+    }
+
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    // Snapshot actual, vacío si la caché está deshabilitada o aún no se carga
+    public Optional<CatalogSnapshot> snapshot() {
+        return Optional.ofNullable(current.get());
+    }
+
+    // Aplicar productos creados o modificados una vez confirmada la transacción
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductsChanged(ProductsChangedEvent event) {
+        if (!enabled || event.products().isEmpty()) {
+            return;
+        }
+        apply(snapshot -> snapshot.withProducts(event.products()));
+    }
+
+    // Cada bloque de una importación masiva se aplica como una sola versión nueva
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductsImported(ProductsImportedEvent event) {
+        if (!enabled || event.products().isEmpty()) {
+            return;
+        }
+        apply(snapshot -> snapshot.withProducts(event.products()));
+    }
+
+    // Los productos de una categoría eliminada se borraron en cascada con ella
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        if (!enabled || event.deletedProductIds().isEmpty()) {
+            return;
+        }
+        apply(snapshot -> snapshot.withoutProducts(event.deletedProductIds()));
+    }
+
+    private void apply(UnaryOperator<CatalogSnapshot> change) {
+        synchronized (writeLock) {
+            CatalogSnapshot snapshot = current.get();
+            if (snapshot == null) {
+                pending.add(change);
+                return;
+            }
+            current.set(change.apply(snapshot));
+        }
+    }
+}
@@ -0,0 +1,369 @@
+package com.levelup.backend.service;
+
+import com.levelup.backend.dto.ProductDTO;
+import com.levelup.backend.dto.TagDTO;
+import com.levelup.backend.event.CategoryChangedEvent;
+import com.levelup.backend.event.ProductsChangedEvent;
+import com.levelup.backend.event.ProductsImportedEvent;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índices de bits sobre los ids de producto para filtrar por varias facetas a
+ * la vez (categoría, etiquetas, rango de precio, stock y descontinuado).
+ * Cada faceta es un BitSet donde el bit i indica que el producto con id i
+ * tiene ese valor; un filtro combinado es la intersección de esos BitSet.
+ */
+@Service
+public class ProductFacetIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductFacetIndex.class);
+
+    // Criterios de filtrado; los null no filtran
+    public record Filter(List<Integer> categoryIds, List<Integer> tagIds, boolean matchAllTags,
+                         Double minPrice, Double maxPrice, Boolean inStock, Boolean discontinued) {}
+
+    public record Result(List<Integer> ids, int total, Map<String, Map<String, Integer>> facets) {}
+
+    // Valores indexados de cada producto, para poder desindexarlo al cambiar
+    private record Facts(Integer categoryId, List<Integer> tagIds, double price, int bucket,
+                         boolean inStock, boolean discontinued) {}
+
+    @Autowired
+    private ProductQueryService productQueryService;
+
+    @Value("${levelup.facets.price-buckets:0,5000,10000,25000,50000,100000,250000,500000}")
+    private double[] priceBounds;
+
+    private final BitSet all = new BitSet();
+    private final BitSet inStock = new BitSet();
+    private final BitSet discontinued = new BitSet();
+    private final Map<Integer, BitSet> byCategory = new HashMap<>();
+    private final Map<Integer, BitSet> byTag = new HashMap<>();
+    private final Map<Integer, BitSet> byPriceBucket = new TreeMap<>();
+    private final Map<Integer, Facts> facts = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Cambios recibidos durante la carga, en orden; null fuera de ella. Protegido por el lock de escritura
+    private List<Runnable> pending;
+
+    @PostConstruct
+    public void init() {
+        Arrays.sort(priceBounds);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        lock.writeLock().lock();
+        try {
+            pending = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        List<ProductDTO> products;
+        try {
+            products = productQueryService.findAll();
+        } catch (RuntimeException e) {
+            // Sin carga completa: los cambios guardados se aplican igual para no perderlos
+            lock.writeLock().lock();
+            try {
+                pending.forEach(Runnable::run);
+                pending = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+        lock.writeLock().lock();
+        try {
+            products.forEach(this::indexInternal);
+            // Lo recibido mientras se leía es más nuevo que esas filas
+            pending.forEach(Runnable::run);
+            logger.debug("Cambios aplicados tras la carga del índice de facetas: {}", pending.size());
+            pending = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Índice de facetas cargado: {} productos", products.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductsChanged(ProductsChangedEvent event) {
+        index(event.products());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductsImported(ProductsImportedEvent event) {
+        index(event.products());
+    }
+
+    // Los productos de una categoría eliminada se borraron en cascada con ella
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        if (!event.deletedProductIds().isEmpty()) {
+            remove(event.deletedProductIds());
+        }
+    }
+
+    public void index(Collection<ProductDTO> products) {
+        write(() -> products.forEach(this::indexInternal));
+    }
+
+    public void remove(Collection<Integer> ids) {
+        write(() -> ids.forEach(this::removeInternal));
+    }
+
+    private void write(Runnable change) {
+        lock.writeLock().lock();
+        try {
+            if (pending != null) {
+                pending.add(change);
+                return;
+            }
+            change.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Result filter(Filter filter, int offset, int limit) {
+        lock.readLock().lock();
+        try {
+            BitSet result = (BitSet) all.clone();
+
+            if (filter.categoryIds() != null && !filter.categoryIds().isEmpty()) {
+                BitSet categories = new BitSet();
+                for (Integer categoryId : filter.categoryIds()) {
+                    BitSet bits = byCategory.get(categoryId);
+                    if (bits != null) {
+                        categories.or(bits);
+                    }
+                }
+                result.and(categories);
+            }
+
+            if (filter.tagIds() != null && !filter.tagIds().isEmpty()) {
+                BitSet tags = new BitSet();
+                boolean first = true;
+                for (Integer tagId : filter.tagIds()) {
+                    BitSet bits = byTag.getOrDefault(tagId, new BitSet());
+                    if (filter.matchAllTags()) {
+                        if (first) {
+                            tags.or(bits);
+                        } else {
+                            tags.and(bits);
+                        }
+                    } else {
+                        tags.or(bits);
+                    }
+                    first = false;
+                }
+                result.and(tags);
+            }
+
+            if (filter.minPrice() != null || filter.maxPrice() != null) {
+                result.and(priceRange(filter.minPrice(), filter.maxPrice()));
+            }
+            if (filter.inStock() != null) {
+                applyFlag(result, inStock, filter.inStock());
+            }
+            if (filter.discontinued() != null) {
+                applyFlag(result, discontinued, filter.discontinued());
+            }
+
+            List<Integer> ids = new ArrayList<>(Math.max(limit, 0));
+            int skipped = 0;
+            for (int id = result.nextSetBit(0); id >= 0 && ids.size() < limit; id = result.nextSetBit(id + 1)) {
+                if (skipped++ < offset) {
+                    continue;
+                }
+                ids.add(id);
+            }
+            return new Result(ids, result.cardinality(), facetCounts(result));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void indexInternal(ProductDTO product) {
+        int id = product.getId();
+        removeInternal(id);
+
+        List<Integer> tagIds = new ArrayList<>();
+        if (product.getTags() != null) {
+            for (TagDTO tag : product.getTags()) {
+                tagIds.add(tag.getId());
+            }
+        }
+        double price = product.getPrice() != null ? product.getPrice() : 0;
+        Facts productFacts = new Facts(
+                product.getCategoryId(),
+                tagIds,
+                price,
+                bucketOf(price),
+                product.getStock() != null && product.getStock() > 0,
+                Boolean.TRUE.equals(product.getDiscontinued()));
+
+        all.set(id);
+        if (productFacts.categoryId() != null) {
+            byCategory.computeIfAbsent(productFacts.categoryId(), key -> new BitSet()).set(id);
+        }
+        for (Integer tagId : tagIds) {
+            byTag.computeIfAbsent(tagId, key -> new BitSet()).set(id);
+        }
+        byPriceBucket.computeIfAbsent(productFacts.bucket(), key -> new BitSet()).set(id);
+        inStock.set(id, productFacts.inStock());
+        discontinued.set(id, productFacts.discontinued());
+        facts.put(id, productFacts);
+    }
+
+    private void removeInternal(int id) {
+        Facts previous = facts.remove(id);
+        if (previous == null) {
+            return;
+        }
+        all.clear(id);
+        inStock.clear(id);
+        discontinued.clear(id);
+        if (previous.categoryId() != null) {
+            clearBit(byCategory, previous.categoryId(), id);
+        }
+        for (Integer tagId : previous.tagIds()) {
+            clearBit(byTag, tagId, id);
+        }
+        clearBit(byPriceBucket, previous.bucket(), id);
+    }
+
+    private static void clearBit(Map<Integer, BitSet> index, Integer key, int id) {
+        BitSet bits = index.get(key);
+        if (bits != null) {
+            bits.clear(id);
+            if (bits.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    private static void applyFlag(BitSet result, BitSet flag, boolean expected) {
+        if (expected) {
+            result.and(flag);
+        } else {
+            result.andNot(flag);
+        }
+    }
+
+    // Los buckets completamente dentro del rango se unen directo; los de borde se revisan por precio
+    private BitSet priceRange(Double minPrice, Double maxPrice) {
+        double min = minPrice != null ? minPrice : Double.NEGATIVE_INFINITY;
+        double max = maxPrice != null ? maxPrice : Double.POSITIVE_INFINITY;
+        BitSet range = new BitSet();
+        for (Map.Entry<Integer, BitSet> bucket : byPriceBucket.entrySet()) {
+            double lower = bucketLower(bucket.getKey());
+            double upper = bucketUpper(bucket.getKey());
+            if (upper <= min || lower > max) {
+                continue;
+            }
+            if (lower >= min && upper <= max) {
+                range.or(bucket.getValue());
+                continue;
+            }
+            BitSet bits = bucket.getValue();
+            for (int id = bits.nextSetBit(0); id >= 0; id = bits.nextSetBit(id + 1)) {
+                double price = facts.get(id).price();
+                if (price >= min && price <= max) {
+                    range.set(id);
+                }
+            }
+        }
+        return range;
+    }
+
+    // Bucket i cubre [priceBounds[i-1], priceBounds[i]); el 0 lo que está bajo el primer límite
+    private int bucketOf(double price) {
+        int position = Arrays.binarySearch(priceBounds, price);
+        return position >= 0 ? position + 1 : -position - 1;
+    }
+
+    private double bucketLower(int bucket) {
+        return bucket == 0 ? Double.NEGATIVE_INFINITY : priceBounds[bucket - 1];
+    }
+
+    private double bucketUpper(int bucket) {
+        return bucket >= priceBounds.length ? Double.POSITIVE_INFINITY : priceBounds[bucket];
+    }
+
+    private String bucketLabel(int bucket) {
+        if (bucket == 0) {
+            return "<" + format(priceBounds[0]);
+        }
+        if (bucket >= priceBounds.length) {
+            return format(priceBounds[priceBounds.length - 1]) + "+";
+        }
+        return format(priceBounds[bucket - 1]) + "-" + format(priceBounds[bucket]);
+    }
+
+    private static String format(double value) {
+        return value == Math.rint(value) ? String.valueOf((long) value) : String.valueOf(value);
+    }
+
+    private Map<String, Map<String, Integer>> facetCounts(BitSet result) {
+        // Un solo BitSet de trabajo por consulta, reutilizado para cada valor de faceta
+        BitSet scratch = new BitSet(all.length());
+        Map<String, Map<String, Integer>> facets = new LinkedHashMap<>();
+        facets.put("category", countBy(byCategory, result, scratch));
+        facets.put("tag", countBy(byTag, result, scratch));
+
+        Map<String, Integer> prices = new LinkedHashMap<>();
+        for (Map.Entry<Integer, BitSet> bucket : byPriceBucket.entrySet()) {
+            int count = intersectionSize(bucket.getValue(), result, scratch);
+            if (count > 0) {
+                prices.put(bucketLabel(bucket.getKey()), count);
+            }
+        }
+        facets.put("price", prices);
+
+        int inStockCount = intersectionSize(inStock, result, scratch);
+        facets.put("inStock", Map.of("true", inStockCount, "false", result.cardinality() - inStockCount));
+        int discontinuedCount = intersectionSize(discontinued, result, scratch);
+        facets.put("discontinued", Map.of("true", discontinuedCount, "false", result.cardinality() - discontinuedCount));
+        return facets;
+    }
+
+    private static Map<String, Integer> countBy(Map<Integer, BitSet> index, BitSet result, BitSet scratch) {
+        Map<String, Integer> counts = new TreeMap<>();
+        for (Map.Entry<Integer, BitSet> entry : index.entrySet()) {
+            int count = intersectionSize(entry.getValue(), result, scratch);
+            if (count > 0) {
+                counts.put(String.valueOf(entry.getKey()), count);
+            }
+        }
+        return counts;
+    }
+
+    // |a ∩ b| sin asignar memoria: scratch ya tiene capacidad para cualquier id indexado
+    private static int intersectionSize(BitSet a, BitSet b, BitSet scratch) {
+        scratch.clear();
+        scratch.or(a);
+        scratch.and(b);
+        return scratch.cardinality();
+    }
+}
@@ -0,0 +1,587 @@
+package com.levelup.backend.service;
+
+import com.levelup.backend.dto.ProductDTO;
+import com.levelup.backend.dto.ProductImportReportDTO;
+import com.levelup.backend.dto.ProductImportRow;
+import com.levelup.backend.event.ProductsImportedEvent;
+import com.levelup.backend.model.Category;
+import com.levelup.backend.model.Tag;
+import com.levelup.backend.repository.CategoryRepository;
+import com.levelup.backend.repository.TagRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Importación masiva de productos desde NDJSON o CSV. El archivo se lee
+ * registro a registro y se escribe en bloques (chunks): cada bloque resuelve
+ * sus categorías y etiquetas en lote y hace upsert con batches JDBC en su
+ * propia transacción, así la memoria usada no depende del tamaño del archivo.
+ *
+ * Cada bloque escribe sus filas del outbox en su misma transacción y, al
+ * confirmarse, avisa a las cachés (catálogo, búsqueda, facetas, contadores
+ * de stock) con un ProductsImportedEvent que solo lleva sus productos: las
+ * cachés se ponen al día mientras la importación avanza y nada se acumula
+ * por el archivo entero.
+ */
+@Service
+public class ProductImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductImportService.class);
+
+    private static final String INSERT_SQL = "INSERT INTO products "
+            + "(title, description, price, currency, category_id, stock, image, discontinued, created_at, updated_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String UPSERT_SQL = "INSERT INTO products "
+            + "(id, title, description, price, currency, category_id, stock, image, discontinued, created_at, updated_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE title = VALUES(title), description = VALUES(description), "
+            + "price = VALUES(price), currency = VALUES(currency), category_id = VALUES(category_id), "
+            + "stock = VALUES(stock), image = VALUES(image), discontinued = VALUES(discontinued), "
+            + "updated_at = VALUES(updated_at)";
+
+    private static final String DELETE_TAGS_SQL = "DELETE FROM product_tags WHERE product_id IN (:ids)";
+
+    private static final String INSERT_TAG_SQL = "INSERT INTO product_tags (product_id, tag_id) VALUES (?, ?)";
+
+    // Cantidad de importaciones recientes cuyo progreso se conserva
+    private static final int RECENT_IMPORTS = 50;
+
+    public enum Format {
+        NDJSON, CSV;
+
+        public static Format from(String format, String contentType) {
+            if (format != null && !format.isBlank()) {
+                return valueOf(format.trim().toUpperCase(Locale.ROOT));
+            }
+            if (contentType != null && contentType.toLowerCase(Locale.ROOT).contains("csv")) {
+                return CSV;
+            }
+            return NDJSON;
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private TagRepository tagRepository;
+
+    @Autowired
+    private ProductQueryService productQueryService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${levelup.import.chunk-size:1000}")
+    private int defaultChunkSize;
+
+    @Value("${levelup.import.max-chunk-size:10000}")
+    private int maxChunkSize;
+
+    @Value("${levelup.import.max-errors:1000}")
+    private int maxErrors;
+
+    private final Map<String, ImportJob> imports = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, false) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, ImportJob> eldest) {
+                    return size() > RECENT_IMPORTS;
+                }
+            });
+
+    // Progreso de una importación en curso o reciente
+    public ProductImportReportDTO getProgress(String importId) {
+        ImportJob job = imports.get(importId);
+        return job != null ? job.toReport() : null;
+    }
+
+    public ProductImportReportDTO importProducts(String importId, InputStream input, Format format,
+                                                 Integer chunkSize) throws IOException {
+        int chunk = chunkSize == null || chunkSize <= 0 ? defaultChunkSize : Math.min(chunkSize, maxChunkSize);
+        ImportJob job = new ImportJob(importId != null ? importId : UUID.randomUUID().toString(), format);
+        imports.put(job.id, job);
+        logger.info("Importación {} iniciada ({}, bloques de {})", job.id, format, chunk);
+
+        ImportContext context = new ImportContext();
+        List<PendingRow> pending = new ArrayList<>(chunk);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        try {
+            if (format == Format.CSV) {
+                readCsv(reader, job, pending, chunk, context);
+            } else {
+                readNdjson(reader, job, pending, chunk, context);
+            }
+            if (!pending.isEmpty()) {
+                writeChunk(pending, job, context);
+            }
+            job.status = "completed";
+        } catch (IOException | RuntimeException e) {
+            job.status = "failed";
+            logger.error("Importación {} interrumpida en la fila {}: {}", job.id, job.processed, e.getMessage());
+            throw e;
+        } finally {
+            job.finish();
+        }
+        logger.info("Importación {} terminada: {} filas, {} insertadas, {} actualizadas, {} con error en {} ms",
+                job.id, job.processed, job.inserted, job.upserted, job.failed, job.elapsedMs());
+        return job.toReport();
+    }
+
+    private void readNdjson(BufferedReader reader, ImportJob job, List<PendingRow> pending, int chunk,
+                            ImportContext context) throws IOException {
+        String line;
+        long lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                pending.add(new PendingRow(lineNumber, objectMapper.readValue(line, ProductImportRow.class)));
+            } catch (RuntimeException e) {
+                job.processed++;
+                job.error(lineNumber, "JSON inválido: " + e.getMessage(), maxErrors);
+            }
+            if (pending.size() >= chunk) {
+                writeChunk(pending, job, context);
+            }
+        }
+    }
+
+    private void readCsv(BufferedReader reader, ImportJob job, List<PendingRow> pending, int chunk,
+                         ImportContext context) throws IOException {
+        CsvRecordReader csv = new CsvRecordReader(reader);
+        List<String> header = csv.next();
+        if (header == null) {
+            return;
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+
+        List<String> record;
+        while ((record = csv.next()) != null) {
+            if (record.size() == 1 && record.get(0).isBlank()) {
+                continue;
+            }
+            try {
+                pending.add(new PendingRow(csv.getLine(), toRow(record, columns)));
+            } catch (RuntimeException e) {
+                job.processed++;
+                job.error(csv.getLine(), "Registro CSV inválido: " + e.getMessage(), maxErrors);
+            }
+            if (pending.size() >= chunk) {
+                writeChunk(pending, job, context);
+            }
+        }
+    }
+
+    private ProductImportRow toRow(List<String> record, Map<String, Integer> columns) {
+        ProductImportRow row = new ProductImportRow();
+        row.setId(parseInteger(column(record, columns, "id")));
+        row.setTitle(column(record, columns, "title"));
+        row.setDescription(column(record, columns, "description"));
+        String price = column(record, columns, "price");
+        row.setPrice(price != null ? Double.valueOf(price) : null);
+        row.setCurrency(column(record, columns, "currency"));
+        row.setCategoryId(parseInteger(column(record, columns, "categoryid")));
+        row.setCategory(column(record, columns, "category"));
+        row.setStock(parseInteger(column(record, columns, "stock")));
+        row.setImage(column(record, columns, "image"));
+        String discontinued = column(record, columns, "discontinued");
+        row.setDiscontinued(discontinued != null ? Boolean.valueOf(discontinued) : null);
+        String tags = column(record, columns, "tags");
+        if (tags != null) {
+            row.setTags(Arrays.stream(tags.split("[;|]"))
+                    .map(String::trim)
+                    .filter(tag -> !tag.isEmpty())
+                    .collect(Collectors.toList()));
+        }
+        return row;
+    }
+
+    private static String column(List<String> record, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= record.size()) {
+            return null;
+        }
+        String value = record.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static Integer parseInteger(String value) {
+        return value != null ? Integer.valueOf(value) : null;
+    }
+
+    // Validar, resolver referencias y escribir un bloque; el buffer queda vacío al terminar
+    private void writeChunk(List<PendingRow> pending, ImportJob job, ImportContext context) {
+        List<ResolvedRow> valid = new ArrayList<>(pending.size());
+        resolveCategories(pending, context);
+        resolveTags(pending, context);
+
+        for (PendingRow pendingRow : pending) {
+            String error = validate(pendingRow.row(), context);
+            if (error != null) {
+                job.error(pendingRow.line(), error, maxErrors);
+                continue;
+            }
+            valid.add(new ResolvedRow(pendingRow.line(), pendingRow.row(), categoryOf(pendingRow.row(), context),
+                    tagsOf(pendingRow.row(), context)));
+        }
+        job.processed += pending.size();
+        pending.clear();
+        if (valid.isEmpty()) {
+            return;
+        }
+
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        List<ResolvedRow> written = new ArrayList<>(valid.size());
+        List<ProductDTO> committed = new ArrayList<>(valid.size());
+        try {
+            committed.addAll(transaction.execute(status -> writeAndRecord(valid)));
+            written.addAll(valid);
+        } catch (DataAccessException e) {
+            // El batch falló: se reintenta fila por fila para aislar los registros con error
+            logger.warn("Importación {}: bloque con error, reintentando fila por fila ({})", job.id, e.getMessage());
+            for (ResolvedRow row : valid) {
+                row.id = row.row.getId();
+                try {
+                    committed.addAll(transaction.execute(status -> writeAndRecord(List.of(row))));
+                    written.add(row);
+                } catch (DataAccessException rowError) {
+                    job.error(row.line, rowError.getMostSpecificCause().getMessage(), maxErrors);
+                }
+            }
+        }
+
+        publishImported(job, committed);
+        for (ResolvedRow row : written) {
+            if (row.row.getId() != null) {
+                job.upserted++;
+            } else {
+                job.inserted++;
+            }
+        }
+        logger.debug("Importación {}: {} filas procesadas", job.id, job.processed);
+    }
+
+    // El outbox se escribe dentro de la transacción del bloque, junto con los productos
+    private List<ProductDTO> writeAndRecord(List<ResolvedRow> rows) {
+        write(rows);
+        List<Integer> ids = rows.stream().map(row -> row.id).collect(Collectors.toList());
+        List<ProductDTO> products = productQueryService.findByIds(ids);
+        outboxService.recordProducts(products);
+        return products;
+    }
+
+    // Un aviso a las cachés por bloque confirmado, con los mismos productos que fueron al outbox
+    private void publishImported(ImportJob job, List<ProductDTO> committed) {
+        if (committed.isEmpty()) {
+            return;
+        }
+        try {
+            eventPublisher.publishEvent(new ProductsImportedEvent(job.id, committed));
+        } catch (RuntimeException e) {
+            logger.error("Importación {}: no se pudieron avisar los cambios a las cachés: {}", job.id, e.getMessage());
+        }
+    }
+
+    private String validate(ProductImportRow row, ImportContext context) {
+        if (row.getTitle() == null || row.getTitle().isBlank()) {
+            return "El título es obligatorio";
+        }
+        if (row.getPrice() == null || row.getPrice() < 0) {
+            return "El precio es obligatorio y no puede ser negativo";
+        }
+        if (row.getCategoryId() != null && !context.categoryIds.contains(row.getCategoryId())) {
+            return "Categoría no encontrada: " + row.getCategoryId();
+        }
+        if (row.getCategoryId() == null && row.getCategory() != null
+                && !context.categoriesByName.containsKey(row.getCategory())) {
+            return "Categoría no encontrada: " + row.getCategory();
+        }
+        return null;
+    }
+
+    private void resolveCategories(List<PendingRow> pending, ImportContext context) {
+        Set<Integer> missingIds = new HashSet<>();
+        Set<String> missingNames = new HashSet<>();
+        for (PendingRow pendingRow : pending) {
+            ProductImportRow row = pendingRow.row();
+            if (row.getCategoryId() != null && !context.categoryIds.contains(row.getCategoryId())) {
+                missingIds.add(row.getCategoryId());
+            } else if (row.getCategoryId() == null && row.getCategory() != null
+                    && !context.categoriesByName.containsKey(row.getCategory())) {
+                missingNames.add(row.getCategory());
+            }
+        }
+        if (!missingIds.isEmpty()) {
+            categoryRepository.findAllById(missingIds).forEach(category -> context.categoryIds.add(category.getId()));
+        }
+        if (!missingNames.isEmpty()) {
+            for (Category category : categoryRepository.findByNameIn(missingNames)) {
+                context.categoriesByName.put(category.getName(), category.getId());
+                context.categoryIds.add(category.getId());
+            }
+        }
+    }
+
+    // Las etiquetas inexistentes se crean en lote
+    private void resolveTags(List<PendingRow> pending, ImportContext context) {
+        Set<String> missing = new HashSet<>();
+        for (PendingRow pendingRow : pending) {
+            if (pendingRow.row().getTags() != null) {
+                for (String tag : pendingRow.row().getTags()) {
+                    if (tag != null && !tag.isBlank() && !context.tagsByName.containsKey(tag.trim())) {
+                        missing.add(tag.trim());
+                    }
+                }
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+        for (Tag tag : tagRepository.findByNameIn(missing)) {
+            context.tagsByName.put(tag.getName(), tag.getId());
+            missing.remove(tag.getName());
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+        try {
+            List<Tag> created = tagRepository.saveAll(missing.stream().map(Tag::new).collect(Collectors.toList()));
+            created.forEach(tag -> context.tagsByName.put(tag.getName(), tag.getId()));
+        } catch (DataIntegrityViolationException e) {
+            // Otra importación creó alguna de las etiquetas al mismo tiempo
+            tagRepository.findByNameIn(missing).forEach(tag -> context.tagsByName.put(tag.getName(), tag.getId()));
+        }
+    }
+
+    private static Integer categoryOf(ProductImportRow row, ImportContext context) {
+        if (row.getCategoryId() != null) {
+            return row.getCategoryId();
+        }
+        return row.getCategory() != null ? context.categoriesByName.get(row.getCategory()) : null;
+    }
+
+    private static List<Integer> tagsOf(ProductImportRow row, ImportContext context) {
+        if (row.getTags() == null) {
+            return null;
+        }
+        return row.getTags().stream()
+                .filter(tag -> tag != null && !tag.isBlank())
+                .map(tag -> context.tagsByName.get(tag.trim()))
+                .filter(id -> id != null)
+                .distinct()
+                .collect(Collectors.toList());
+    }
+
+    private void write(List<ResolvedRow> rows) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<ResolvedRow> withId = new ArrayList<>();
+        List<ResolvedRow> withoutId = new ArrayList<>();
+        for (ResolvedRow row : rows) {
+            if (row.row.getId() != null) {
+                row.id = row.row.getId();
+                withId.add(row);
+            } else {
+                withoutId.add(row);
+            }
+        }
+
+        if (!withId.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT_SQL, withId, withId.size(), (ps, row) -> {
+                ps.setInt(1, row.id);
+                bind(ps, 2, row, now);
+            });
+        }
+
+        if (!withoutId.isEmpty()) {
+            jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+                try (PreparedStatement ps = connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                    for (ResolvedRow row : withoutId) {
+                        bind(ps, 1, row, now);
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                    try (ResultSet keys = ps.getGeneratedKeys()) {
+                        int index = 0;
+                        while (keys.next() && index < withoutId.size()) {
+                            withoutId.get(index++).id = keys.getInt(1);
+                        }
+                    }
+                }
+                return null;
+            });
+        }
+
+        // Las etiquetas se reemplazan solo en las filas que las traen
+        List<ResolvedRow> tagged = rows.stream().filter(row -> row.tagIds != null).collect(Collectors.toList());
+        List<Integer> replaced = tagged.stream()
+                .filter(row -> row.row.getId() != null)
+                .map(row -> row.id)
+                .collect(Collectors.toList());
+        if (!replaced.isEmpty()) {
+            namedParameterJdbcTemplate.update(DELETE_TAGS_SQL, Map.of("ids", replaced));
+        }
+        List<int[]> links = new ArrayList<>();
+        for (ResolvedRow row : tagged) {
+            for (Integer tagId : row.tagIds) {
+                links.add(new int[] { row.id, tagId });
+            }
+        }
+        if (!links.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_TAG_SQL, links, links.size(), (ps, link) -> {
+                ps.setInt(1, link[0]);
+                ps.setInt(2, link[1]);
+            });
+        }
+    }
+
+    private static void bind(PreparedStatement ps, int start, ResolvedRow resolved, Timestamp now) throws SQLException {
+        ProductImportRow row = resolved.row;
+        ps.setString(start, row.getTitle());
+        ps.setString(start + 1, row.getDescription());
+        ps.setDouble(start + 2, row.getPrice());
+        ps.setString(start + 3, row.getCurrency());
+        if (resolved.categoryId != null) {
+            ps.setInt(start + 4, resolved.categoryId);
+        } else {
+            ps.setNull(start + 4, Types.INTEGER);
+        }
+        if (row.getStock() != null) {
+            ps.setInt(start + 5, row.getStock());
+        } else {
+            ps.setNull(start + 5, Types.INTEGER);
+        }
+        ps.setString(start + 6, row.getImage() != null ? row.getImage() : "");
+        ps.setBoolean(start + 7, Boolean.TRUE.equals(row.getDiscontinued()));
+        ps.setTimestamp(start + 8, now);
+        ps.setTimestamp(start + 9, now);
+    }
+
+    private record PendingRow(long line, ProductImportRow row) {}
+
+    private static final class ResolvedRow {
+        private final long line;
+        private final ProductImportRow row;
+        private final Integer categoryId;
+        private final List<Integer> tagIds;
+        private Integer id;
+
+        private ResolvedRow(long line, ProductImportRow row, Integer categoryId, List<Integer> tagIds) {
+            this.line = line;
+            this.row = row;
+            this.categoryId = categoryId;
+            this.tagIds = tagIds;
+        }
+    }
+
+    // Categorías y etiquetas ya resueltas durante la importación
+    private static final class ImportContext {
+        private final Set<Integer> categoryIds = new HashSet<>();
+        private final Map<String, Integer> categoriesByName = new HashMap<>();
+        private final Map<String, Integer> tagsByName = new HashMap<>();
+    }
+
+    private static final class ImportJob {
+        private final String id;
+        private final Format format;
+        private final long startedAt = System.currentTimeMillis();
+        private final List<ProductImportReportDTO.RowError> errors = new ArrayList<>();
+        private volatile String status = "running";
+        private volatile long processed;
+        private volatile long inserted;
+        private volatile long upserted;
+        private volatile long failed;
+        private volatile long finishedAt;
+        private volatile boolean errorsTruncated;
+
+        private ImportJob(String id, Format format) {
+            this.id = id;
+            this.format = format;
+        }
+
+        private void error(long line, String message, int maxErrors) {
+            failed++;
+            synchronized (errors) {
+                if (errors.size() < maxErrors) {
+                    errors.add(new ProductImportReportDTO.RowError(line, message));
+                } else {
+                    errorsTruncated = true;
+                }
+            }
+        }
+
+        private void finish() {
+            finishedAt = System.currentTimeMillis();
+        }
+
+        private long elapsedMs() {
+            return (finishedAt > 0 ? finishedAt : System.currentTimeMillis()) - startedAt;
+        }
+
+        private ProductImportReportDTO toReport() {
+            List<ProductImportReportDTO.RowError> snapshot;
+            synchronized (errors) {
+                snapshot = List.copyOf(errors);
+            }
+            return new ProductImportReportDTO(id, format.name(), status, processed, inserted, upserted, failed,
+                    elapsedMs(), snapshot, errorsTruncated);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.levelup.backend.service;
+
+import com.levelup.backend.dto.ProductDTO;
+import com.levelup.backend.dto.TagDTO;
+import com.levelup.backend.model.Product;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Component
+public class ProductMapper {
+
+    // Convertir Product a ProductDTO
+    public ProductDTO toDTO(Product product) {
+        List<TagDTO> tags = product.getTags() != null ?
+                product.getTags().stream()
+                        .map(tag -> new TagDTO(tag.getId(), tag.getName()))
+                        .collect(Collectors.toList()) : List.of();
+
+        return new ProductDTO(
+                product.getId(),
+                product.getTitle(),
+                product.getDescription(),
+                product.getPrice(),
+                product.getCurrency(),
+                product.getCategory() != null ? product.getCategory().getId() : null,
+                product.getStock(),
+                product.getImage(),
+                product.getDiscontinued(),
+                product.getCreatedAt(),
+                product.getUpdatedAt(),
+                tags
+        );
+    }
+}
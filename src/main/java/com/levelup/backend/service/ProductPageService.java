@@ -0,0 +1,172 @@
+package com.levelup.backend.service;
+
+import com.levelup.backend.model.Product;
+import com.levelup.backend.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Paginación por keyset (cursor) del catálogo de productos.
+ * El cursor es opaco para el cliente: codifica el orden usado y los valores
+ * (campo de orden, id) del último producto devuelto, así cada página es un
+ * "WHERE (campo, id) > (?, ?) ORDER BY campo, id LIMIT n" sin OFFSET.
+ */
+@Service
+@Transactional(readOnly = true)
+public class ProductPageService {
+
+    // Campos por los que se puede ordenar el listado
+    public enum SortField {
+        ID("id"),
+        CREATED_AT("createdAt"),
+        PRICE("price"),
+        TITLE("title");
+
+        private final String property;
+
+        SortField(String property) {
+            this.property = property;
+        }
+
+        public String getProperty() {
+            return property;
+        }
+
+        public static SortField from(String value) {
+            if (value == null || value.isBlank()) {
+                return ID;
+            }
+            for (SortField field : values()) {
+                if (field.property.equalsIgnoreCase(value) || field.name().equalsIgnoreCase(value)) {
+                    return field;
+                }
+            }
+            throw new IllegalArgumentException("Campo de orden no soportado: " + value);
+        }
+    }
+
+    // Filtro aplicado al listado paginado
+    public record Scope(Boolean discontinued, Integer categoryId) {
+        public static Scope all() {
+            return new Scope(null, null);
+        }
+
+        public static Scope discontinued(boolean discontinued) {
+            return new Scope(discontinued, null);
+        }
+
+        public static Scope category(Integer categoryId) {
+            return new Scope(null, categoryId);
+        }
+    }
+
+    public record Page(List<Product> products, String nextCursor, boolean hasNext) {}
+
+    private static final String SEPARATOR = "|";
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Value("${levelup.catalog.page.default-size:20}")
+    private int defaultSize;
+
+    @Value("${levelup.catalog.page.max-size:100}")
+    private int maxSize;
+
+    public int resolveSize(Integer requested) {
+        if (requested == null || requested <= 0) {
+            return defaultSize;
+        }
+        return Math.min(requested, maxSize);
+    }
+
+    public Page findPage(Scope scope, String sortParam, String directionParam, String cursor, Integer size) {
+        SortField sortField;
+        Sort.Direction direction;
+        ScrollPosition position;
+
+        if (cursor != null && !cursor.isBlank()) {
+            // El cursor manda sobre sort/direction para que la página siguiente sea consistente
+            DecodedCursor decoded = decode(cursor);
+            sortField = decoded.sortField();
+            direction = decoded.direction();
+            position = decoded.position();
+        } else {
+            sortField = SortField.from(sortParam);
+            direction = directionParam != null && directionParam.equalsIgnoreCase("desc")
+                    ? Sort.Direction.DESC : Sort.Direction.ASC;
+            position = ScrollPosition.keyset();
+        }
+
+        Sort sort = sortField == SortField.ID
+                ? Sort.by(direction, "id")
+                : Sort.by(direction, sortField.getProperty()).and(Sort.by(direction, "id"));
+        Limit limit = Limit.of(resolveSize(size));
+
+        Window<Product> window;
+        if (scope.categoryId() != null) {
+            window = productRepository.findByCategory_Id(scope.categoryId(), position, sort, limit);
+        } else if (scope.discontinued() != null) {
+            window = productRepository.findByDiscontinued(scope.discontinued(), position, sort, limit);
+        } else {
+            window = productRepository.findAllBy(position, sort, limit);
+        }
+
+        String nextCursor = null;
+        if (window.hasNext() && !window.isEmpty()) {
+            Product last = window.getContent().get(window.size() - 1);
+            nextCursor = encode(sortField, direction, last);
+        }
+        return new Page(window.getContent(), nextCursor, nextCursor != null);
+    }
+
+    private String encode(SortField sortField, Sort.Direction direction, Product last) {
+        String value = switch (sortField) {
+            case ID -> "";
+            case CREATED_AT -> last.getCreatedAt().toString();
+            case PRICE -> last.getPrice().toString();
+            case TITLE -> last.getTitle();
+        };
+        String raw = sortField.name() + SEPARATOR + direction.name() + SEPARATOR + last.getId() + SEPARATOR + value;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private DecodedCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", 4);
+            SortField sortField = SortField.valueOf(parts[0]);
+            Sort.Direction direction = Sort.Direction.valueOf(parts[1]);
+            Integer lastId = Integer.valueOf(parts[2]);
+
+            Map<String, Object> keys = new LinkedHashMap<>();
+            switch (sortField) {
+                case CREATED_AT -> keys.put(sortField.getProperty(), LocalDateTime.parse(parts[3]));
+                case PRICE -> keys.put(sortField.getProperty(), Double.valueOf(parts[3]));
+                case TITLE -> keys.put(sortField.getProperty(), parts[3]);
+                case ID -> { }
+            }
+            keys.put("id", lastId);
+            KeysetScrollPosition position = ScrollPosition.forward(keys);
+            return new DecodedCursor(sortField, direction, position);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Cursor inválido", e);
+        }
+    }
+
+    private record DecodedCursor(SortField sortField, Sort.Direction direction, ScrollPosition position) {}
+}
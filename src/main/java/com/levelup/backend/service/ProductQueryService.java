@@ -0,0 +1,119 @@
+package com.levelup.backend.service;
+
+import com.levelup.backend.dto.ProductDTO;
+import com.levelup.backend.dto.ProductRow;
+import com.levelup.backend.dto.ProductTagRow;
+import com.levelup.backend.dto.TagDTO;
+import com.levelup.backend.model.Product;
+import com.levelup.backend.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Listados de productos mediante proyecciones: una consulta para las columnas
+ * del producto y otra para sus etiquetas, sin importar cuántos productos
+ * haya. Evita el N+1 de Product.tags y no hidrata entidades administradas.
+ */
+@Service
+@Transactional(readOnly = true)
+public class ProductQueryService {
+
+    // Tamaño máximo de las listas IN para no exceder los límites del driver
+    private static final int IN_CHUNK = 1000;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    public List<ProductDTO> findAll() {
+        return assemble(productRepository.findAllRows(), productRepository.findAllTagRows());
+    }
+
+    public List<ProductDTO> findByCategory(Integer categoryId) {
+        return assemble(productRepository.findRowsByCategoryId(categoryId),
+                productRepository.findTagRowsByCategoryId(categoryId));
+    }
+
+    public List<ProductDTO> findByDiscontinued(Boolean discontinued) {
+        return assemble(productRepository.findRowsByDiscontinued(discontinued),
+                productRepository.findTagRowsByDiscontinued(discontinued));
+    }
+
+    // Productos por id, en el mismo orden en que se pidieron
+    public List<ProductDTO> findByIds(Collection<Integer> ids) {
+        List<Integer> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+        List<ProductRow> rows = new ArrayList<>();
+        List<ProductTagRow> tags = new ArrayList<>();
+        for (int from = 0; from < distinct.size(); from += IN_CHUNK) {
+            List<Integer> chunk = distinct.subList(from, Math.min(from + IN_CHUNK, distinct.size()));
+            rows.addAll(productRepository.findRowsByIdIn(chunk));
+            tags.addAll(productRepository.findTagRowsByProductIdIn(chunk));
+        }
+        Map<Integer, ProductDTO> byId = assemble(rows, tags).stream()
+                .collect(Collectors.toMap(ProductDTO::getId, product -> product));
+        return distinct.stream()
+                .map(byId::get)
+                .filter(product -> product != null)
+                .collect(Collectors.toList());
+    }
+
+    // Convertir una página de entidades cargando todas sus etiquetas en una sola consulta
+    public List<ProductDTO> toDTOs(List<Product> products) {
+        if (products.isEmpty()) {
+            return List.of();
+        }
+        List<Integer> ids = products.stream().map(Product::getId).collect(Collectors.toList());
+        Map<Integer, List<TagDTO>> tags = groupTags(productRepository.findTagRowsByProductIdIn(ids));
+        return products.stream()
+                .map(product -> new ProductDTO(
+                        product.getId(),
+                        product.getTitle(),
+                        product.getDescription(),
+                        product.getPrice(),
+                        product.getCurrency(),
+                        product.getCategory() != null ? product.getCategory().getId() : null,
+                        product.getStock(),
+                        product.getImage(),
+                        product.getDiscontinued(),
+                        product.getCreatedAt(),
+                        product.getUpdatedAt(),
+                        tags.getOrDefault(product.getId(), List.of())))
+                .collect(Collectors.toList());
+    }
+
+    private List<ProductDTO> assemble(List<ProductRow> rows, List<ProductTagRow> tagRows) {
+        Map<Integer, List<TagDTO>> tags = groupTags(tagRows);
+        return rows.stream()
+                .map(row -> new ProductDTO(
+                        row.getId(),
+                        row.getTitle(),
+                        row.getDescription(),
+                        row.getPrice(),
+                        row.getCurrency(),
+                        row.getCategoryId(),
+                        row.getStock(),
+                        row.getImage(),
+                        row.getDiscontinued(),
+                        row.getCreatedAt(),
+                        row.getUpdatedAt(),
+                        tags.getOrDefault(row.getId(), List.of())))
+                .collect(Collectors.toList());
+    }
+
+    private Map<Integer, List<TagDTO>> groupTags(List<ProductTagRow> tagRows) {
+        Map<Integer, List<TagDTO>> tags = new HashMap<>();
+        for (ProductTagRow row : tagRows) {
+            tags.computeIfAbsent(row.getProductId(), id -> new ArrayList<>())
+                    .add(new TagDTO(row.getTagId(), row.getTagName()));
+        }
+        return tags;
+    }
+}
@@ -0,0 +1,196 @@
+package com.levelup.backend.service;
+
+import com.levelup.backend.dto.ProductDTO;
+import com.levelup.backend.dto.SearchPageDTO;
+import com.levelup.backend.dto.TagDTO;
+import com.levelup.backend.event.CategoryChangedEvent;
+import com.levelup.backend.event.ProductsChangedEvent;
+import com.levelup.backend.event.ProductsImportedEvent;
+import com.levelup.backend.model.Category;
+import com.levelup.backend.repository.CategoryRepository;
+import com.levelup.backend.search.InvertedIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Búsqueda de productos sobre un índice invertido en memoria (título,
+ * descripción, nombre de categoría y etiquetas). Reemplaza el
+ * LIKE '%texto%' de findByTitleContainingIgnoreCase, que no usa índices.
+ *
+ * La carga inicial arma un índice nuevo y lo publica al terminar. Los
+ * cambios que llegan mientras tanto se guardan y se aplican sobre el índice
+ * nuevo justo antes de publicarlo, porque son posteriores a la lectura de
+ * la carga y no deben quedar pisados por ella.
+ */
+@Service
+public class ProductSearchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductSearchService.class);
+
+    private static final float TITLE_WEIGHT = 3.0f;
+    private static final float CATEGORY_WEIGHT = 2.0f;
+    private static final float TAG_WEIGHT = 2.0f;
+    private static final float DESCRIPTION_WEIGHT = 1.0f;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductQueryService productQueryService;
+
+    @Autowired
+    private ProductCatalogCache productCatalogCache;
+
+    @Value("${levelup.search.max-page-size:100}")
+    private int maxPageSize;
+
+    private volatile InvertedIndex index = new InvertedIndex();
+    private final Map<Integer, String> categoryNames = new ConcurrentHashMap<>();
+    private volatile boolean ready = false;
+
+    private final Object writeLock = new Object();
+
+    // Cambios recibidos durante la carga, en orden; null fuera de ella. Protegido por writeLock
+    private List<Consumer<InvertedIndex>> pending;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void load() {
+        synchronized (writeLock) {
+            pending = new ArrayList<>();
+        }
+        for (Category category : categoryRepository.findAll()) {
+            categoryNames.put(category.getId(), category.getName());
+        }
+        InvertedIndex loaded = new InvertedIndex();
+        try {
+            productQueryService.findAll().forEach(product -> indexProduct(loaded, product));
+        } catch (RuntimeException e) {
+            // Sin carga completa: los cambios guardados van al índice actual para no perderlos
+            synchronized (writeLock) {
+                pending.forEach(change -> change.accept(index));
+                pending = null;
+            }
+            throw e;
+        }
+        synchronized (writeLock) {
+            pending.forEach(change -> change.accept(loaded));
+            logger.debug("Cambios aplicados tras la carga del índice de productos: {}", pending.size());
+            pending = null;
+            index = loaded;
+            ready = true;
+        }
+        logger.info("Índice de búsqueda de productos cargado: {} documentos", loaded.size());
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public SearchPageDTO<ProductDTO> search(String query, int page, int size) {
+        int pageSize = Math.max(1, Math.min(size, maxPageSize));
+        int pageNumber = Math.max(page, 0);
+        InvertedIndex.Hits hits = index.search(query, pageNumber * pageSize, pageSize);
+        List<Integer> ids = hits.hits().stream()
+                .map(hit -> (int) hit.id())
+                .collect(Collectors.toList());
+        return new SearchPageDTO<>(loadInOrder(ids), hits.total(), pageNumber, pageSize);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductsChanged(ProductsChangedEvent event) {
+        apply(event.products());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductsImported(ProductsImportedEvent event) {
+        apply(event.products());
+    }
+
+    // Reindexar los productos de una categoría renombrada; si se eliminó, sus productos se borraron con ella
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        if (event.name() == null) {
+            categoryNames.remove(event.categoryId());
+            List<Integer> deleted = event.deletedProductIds();
+            update(target -> deleted.forEach(target::remove));
+            return;
+        }
+        categoryNames.put(event.categoryId(), event.name());
+        Optional<CatalogSnapshot> snapshot = productCatalogCache.snapshot();
+        List<ProductDTO> products = snapshot.isPresent()
+                ? snapshot.get().getByCategory(event.categoryId())
+                : productQueryService.findByCategory(event.categoryId());
+        apply(products);
+    }
+
+    private void apply(List<ProductDTO> products) {
+        update(target -> products.forEach(product -> indexProduct(target, product)));
+    }
+
+    private void update(Consumer<InvertedIndex> change) {
+        synchronized (writeLock) {
+            if (pending != null) {
+                pending.add(change);
+                return;
+            }
+            change.accept(index);
+        }
+    }
+
+    private void indexProduct(InvertedIndex target, ProductDTO product) {
+        List<InvertedIndex.Field> fields = new ArrayList<>();
+        fields.add(new InvertedIndex.Field(product.getTitle(), TITLE_WEIGHT));
+        // La descripción es el texto más largo: solo términos completos, sin prefijos
+        fields.add(new InvertedIndex.Field(product.getDescription(), DESCRIPTION_WEIGHT, false));
+        if (product.getCategoryId() != null) {
+            fields.add(new InvertedIndex.Field(categoryNames.get(product.getCategoryId()), CATEGORY_WEIGHT));
+        }
+        if (product.getTags() != null) {
+            for (TagDTO tag : product.getTags()) {
+                fields.add(new InvertedIndex.Field(tag.getName(), TAG_WEIGHT));
+            }
+        }
+        target.index(product.getId(), fields);
+    }
+
+    // Obtener los DTOs respetando el orden de relevancia
+    private List<ProductDTO> loadInOrder(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Optional<CatalogSnapshot> snapshot = productCatalogCache.snapshot();
+        Map<Integer, ProductDTO> byId = new HashMap<>();
+        if (snapshot.isPresent()) {
+            for (Integer id : ids) {
+                ProductDTO product = snapshot.get().getById(id);
+                if (product != null) {
+                    byId.put(id, product);
+                }
+            }
+        } else {
+            productQueryService.findByIds(ids)
+                    .forEach(product -> byId.put(product.getId(), product));
+        }
+        return ids.stream()
+                .map(byId::get)
+                .filter(product -> product != null)
+                .collect(Collectors.toList());
+    }
+}
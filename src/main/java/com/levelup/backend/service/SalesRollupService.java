@@ -0,0 +1,334 @@
+package com.levelup.backend.service;
+
+import com.levelup.backend.dto.CategorySalesDTO;
+import com.levelup.backend.dto.OrderLineRow;
+import com.levelup.backend.dto.ProductSalesDTO;
+import com.levelup.backend.dto.SalesPeriodDTO;
+import com.levelup.backend.dto.SalesStatusDTO;
+import com.levelup.backend.event.OrderSalesEvent;
+import com.levelup.backend.repository.SalesHourlyRepository;
+import com.levelup.backend.repository.SalesProductDailyRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Agregados de ventas mantenidos de forma incremental: por hora y estado
+ * (órdenes, unidades, ingresos) y por día, producto y estado (unidades e
+ * ingresos, con la categoría del producto). Cada cambio de orden llega como
+ * un OrderSalesEvent tras el commit; los deltas se acumulan en memoria y se
+ * escriben en lote con upserts cada pocos segundos, así las órdenes no
+ * compiten por la misma fila de la hora actual. Los reportes solo leen estas
+ * tablas. rebuild recalcula un rango desde orders por si se perdieron deltas.
+ *
+ * Para que un rebuild no cuente dos veces un cambio, cada delta lleva un
+ * número tomado antes del commit de su transacción. Las sentencias del
+ * rebuild leen orders con locks compartidos, así que todo cambio del rango
+ * con número menor o igual al que se lee al terminarlas ya está incluido en
+ * el recálculo y su delta se descarta, llegue antes o después.
+ */
+@Service
+public class SalesRollupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SalesRollupService.class);
+
+    private static final String UPSERT_HOURLY_SQL = "INSERT INTO sales_hourly "
+            + "(bucket, status, order_count, units, revenue) VALUES (?, ?, ?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE order_count = order_count + VALUES(order_count), "
+            + "units = units + VALUES(units), revenue = revenue + VALUES(revenue)";
+
+    private static final String UPSERT_PRODUCT_SQL = "INSERT INTO sales_product_daily "
+            + "(sale_date, product_id, status, category_id, units, revenue) VALUES (?, ?, ?, ?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE units = units + VALUES(units), revenue = revenue + VALUES(revenue), "
+            + "category_id = COALESCE(category_id, VALUES(category_id))";
+
+    private static final String DELETE_HOURLY_SQL = "DELETE FROM sales_hourly WHERE bucket >= ? AND bucket < ?";
+
+    private static final String REBUILD_HOURLY_SQL = "INSERT INTO sales_hourly "
+            + "(bucket, status, order_count, units, revenue) "
+            + "SELECT DATE_FORMAT(o.created_at, '%Y-%m-%d %H:00:00'), o.status, COUNT(*), "
+            + "COALESCE(SUM(u.units), 0), COALESCE(SUM(o.total), 0) "
+            + "FROM orders o LEFT JOIN (SELECT i.order_id, SUM(i.quantity) AS units FROM order_items i "
+            + "JOIN orders r ON r.id = i.order_id WHERE r.created_at >= ? AND r.created_at < ? "
+            + "GROUP BY i.order_id) u ON u.order_id = o.id "
+            + "WHERE o.created_at >= ? AND o.created_at < ? "
+            + "GROUP BY DATE_FORMAT(o.created_at, '%Y-%m-%d %H:00:00'), o.status";
+
+    private static final String DELETE_PRODUCT_SQL =
+            "DELETE FROM sales_product_daily WHERE sale_date >= ? AND sale_date < ?";
+
+    private static final String REBUILD_PRODUCT_SQL = "INSERT INTO sales_product_daily "
+            + "(sale_date, product_id, status, category_id, units, revenue) "
+            + "SELECT DATE(o.created_at), i.product_id, o.status, MAX(p.category_id), SUM(i.quantity), "
+            + "SUM(i.quantity * i.price) "
+            + "FROM orders o JOIN order_items i ON i.order_id = o.id LEFT JOIN products p ON p.id = i.product_id "
+            + "WHERE o.created_at >= ? AND o.created_at < ? "
+            + "GROUP BY DATE(o.created_at), i.product_id, o.status";
+
+    private record HourKey(LocalDateTime bucket, String status) {}
+
+    private record ProductKey(LocalDate saleDate, Integer productId, String status) {}
+
+    private static final class Totals {
+        long orders;
+        long units;
+        double revenue;
+        Integer categoryId;
+    }
+
+    @Autowired
+    private SalesHourlyRepository salesHourlyRepository;
+
+    @Autowired
+    private SalesProductDailyRepository salesProductDailyRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    private record Pending(long sequence, OrderSalesEvent event) {}
+
+    // Rango ya recalculado: los deltas con número <= sequence de esos días se descartan
+    private record Rebuilt(LocalDate from, LocalDate to, long sequence) {}
+
+    private final Object lock = new Object();
+
+    // Un flush o un rebuild a la vez
+    private final Object writeLock = new Object();
+
+    // Protegidos por lock: deltas pendientes, números en transacciones sin terminar y rangos recalculados
+    private List<Pending> pending = new ArrayList<>();
+    private long sequence;
+    private final TreeSet<Long> inFlight = new TreeSet<>();
+    private final List<Rebuilt> rebuilt = new ArrayList<>();
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    // Antes del commit se toma el número del delta; el delta se anota recién si la transacción se confirma
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onOrderSales(OrderSalesEvent event) {
+        long number;
+        synchronized (lock) {
+            number = ++sequence;
+            inFlight.add(number);
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            record(number, event, true);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                record(number, event, status == STATUS_COMMITTED);
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${levelup.analytics.flush-interval-ms:5000}")
+    public void flush() {
+        synchronized (writeLock) {
+            List<Pending> batch;
+            synchronized (lock) {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = pending;
+                pending = new ArrayList<>();
+            }
+            Map<HourKey, Totals> hourlyBatch = new HashMap<>();
+            Map<ProductKey, Totals> productBatch = new HashMap<>();
+            for (Pending delta : batch) {
+                apply(delta.event(), hourlyBatch, productBatch);
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> write(hourlyBatch, productBatch));
+                logger.debug("Agregados de ventas actualizados: {} horas, {} productos",
+                        hourlyBatch.size(), productBatch.size());
+            } catch (DataAccessException e) {
+                // Se devuelven los deltas para el próximo ciclo
+                logger.warn("No se pudieron guardar los agregados de ventas: {}", e.getMessage());
+                synchronized (lock) {
+                    batch.addAll(pending);
+                    pending = batch;
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    // Recalcula los agregados de los días [from, to] a partir de orders y order_items
+    public void rebuild(LocalDate from, LocalDate to) {
+        synchronized (writeLock) {
+            flush();
+            Timestamp start = Timestamp.valueOf(from.atStartOfDay());
+            Timestamp end = Timestamp.valueOf(to.plusDays(1).atStartOfDay());
+            Long covered = transactionTemplate.execute(status -> {
+                jdbcTemplate.update(DELETE_HOURLY_SQL, start, end);
+                jdbcTemplate.update(REBUILD_HOURLY_SQL, start, end, start, end);
+                jdbcTemplate.update(DELETE_PRODUCT_SQL, Date.valueOf(from), Date.valueOf(to.plusDays(1)));
+                jdbcTemplate.update(REBUILD_PRODUCT_SQL, start, end);
+                // Con los locks aún tomados: todo delta del rango con número <= este ya está en el recálculo
+                synchronized (lock) {
+                    return sequence;
+                }
+            });
+            synchronized (lock) {
+                Rebuilt range = new Rebuilt(from, to, covered != null ? covered : 0);
+                pending.removeIf(delta -> covers(range, delta.sequence(), delta.event()));
+                rebuilt.add(range);
+                pruneRebuilt();
+            }
+        }
+        logger.info("Agregados de ventas recalculados entre {} y {}", from, to);
+    }
+
+    public List<SalesPeriodDTO> hourly(LocalDate from, LocalDate to, String status) {
+        return salesHourlyRepository.findHourly(from.atStartOfDay(), to.plusDays(1).atStartOfDay(), status);
+    }
+
+    // Suma las horas de cada día (a lo más 24 filas por día)
+    public List<SalesPeriodDTO> daily(LocalDate from, LocalDate to, String status) {
+        Map<LocalDateTime, SalesPeriodDTO> days = new LinkedHashMap<>();
+        for (SalesPeriodDTO hour : hourly(from, to, status)) {
+            LocalDateTime day = hour.getPeriod().truncatedTo(ChronoUnit.DAYS);
+            SalesPeriodDTO total = days.computeIfAbsent(day, d -> new SalesPeriodDTO(d, 0L, 0L, 0.0));
+            total.setOrderCount(total.getOrderCount() + hour.getOrderCount());
+            total.setUnits(total.getUnits() + hour.getUnits());
+            total.setRevenue(total.getRevenue() + hour.getRevenue());
+        }
+        return new ArrayList<>(days.values());
+    }
+
+    public List<SalesStatusDTO> byStatus(LocalDate from, LocalDate to) {
+        return salesHourlyRepository.findByStatus(from.atStartOfDay(), to.plusDays(1).atStartOfDay(), null);
+    }
+
+    public List<ProductSalesDTO> topProducts(LocalDate from, LocalDate to, String status, int limit) {
+        return salesProductDailyRepository.findTopProducts(from, to, status, PageRequest.of(0, limit));
+    }
+
+    public List<CategorySalesDTO> byCategory(LocalDate from, LocalDate to, String status) {
+        return salesProductDailyRepository.findByCategory(from, to, status);
+    }
+
+    private void record(long number, OrderSalesEvent event, boolean committed) {
+        synchronized (lock) {
+            inFlight.remove(number);
+            if (committed && rebuilt.stream().noneMatch(range -> covers(range, number, event))) {
+                pending.add(new Pending(number, event));
+            }
+            pruneRebuilt();
+        }
+    }
+
+    // Un rango recalculado deja de importar cuando ya no queda ninguna transacción con número anterior
+    private void pruneRebuilt() {
+        long oldest = inFlight.isEmpty() ? Long.MAX_VALUE : inFlight.first();
+        rebuilt.removeIf(range -> range.sequence() < oldest);
+    }
+
+    private static boolean covers(Rebuilt range, long number, OrderSalesEvent event) {
+        if (number > range.sequence() || event.orderCreatedAt() == null) {
+            return false;
+        }
+        LocalDate day = event.orderCreatedAt().toLocalDate();
+        return !day.isBefore(range.from()) && !day.isAfter(range.to());
+    }
+
+    private static void apply(OrderSalesEvent event, Map<HourKey, Totals> hourly, Map<ProductKey, Totals> products) {
+        LocalDateTime createdAt = event.orderCreatedAt() != null ? event.orderCreatedAt() : LocalDateTime.now();
+        if (event.fromStatus() != null) {
+            apply(-1, createdAt, event.fromStatus(), event.fromTotal(), event.fromLines(), hourly, products);
+        }
+        if (event.toStatus() != null) {
+            apply(1, createdAt, event.toStatus(), event.toTotal(), event.toLines(), hourly, products);
+        }
+    }
+
+    private static void apply(int sign, LocalDateTime createdAt, String status, Double total,
+                              List<OrderLineRow> lines, Map<HourKey, Totals> hourly,
+                              Map<ProductKey, Totals> products) {
+        Totals hour = hourly.computeIfAbsent(new HourKey(createdAt.truncatedTo(ChronoUnit.HOURS), status),
+                key -> new Totals());
+        hour.orders += sign;
+        hour.revenue += sign * (total != null ? total : 0);
+        LocalDate saleDate = createdAt.toLocalDate();
+        for (OrderLineRow line : lines) {
+            int quantity = line.getQuantity() != null ? line.getQuantity() : 0;
+            double price = line.getPrice() != null ? line.getPrice() : 0;
+            hour.units += (long) sign * quantity;
+            Totals product = products.computeIfAbsent(new ProductKey(saleDate, line.getProductId(), status),
+                    key -> new Totals());
+            product.units += (long) sign * quantity;
+            product.revenue += sign * quantity * price;
+            if (product.categoryId == null) {
+                product.categoryId = line.getCategoryId();
+            }
+        }
+    }
+
+    private void write(Map<HourKey, Totals> hourlyBatch, Map<ProductKey, Totals> productBatch) {
+        List<Map.Entry<HourKey, Totals>> hours = new ArrayList<>(hourlyBatch.entrySet());
+        if (!hours.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT_HOURLY_SQL, hours, hours.size(), (ps, entry) -> {
+                ps.setTimestamp(1, Timestamp.valueOf(entry.getKey().bucket()));
+                ps.setString(2, entry.getKey().status());
+                ps.setLong(3, entry.getValue().orders);
+                ps.setLong(4, entry.getValue().units);
+                ps.setDouble(5, entry.getValue().revenue);
+            });
+        }
+        List<Map.Entry<ProductKey, Totals>> rows = new ArrayList<>(productBatch.entrySet());
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT_PRODUCT_SQL, rows, rows.size(), (ps, entry) -> {
+                ps.setDate(1, Date.valueOf(entry.getKey().saleDate()));
+                ps.setInt(2, entry.getKey().productId());
+                ps.setString(3, entry.getKey().status());
+                if (entry.getValue().categoryId != null) {
+                    ps.setInt(4, entry.getValue().categoryId);
+                } else {
+                    ps.setNull(4, Types.INTEGER);
+                }
+                ps.setLong(5, entry.getValue().units);
+                ps.setDouble(6, entry.getValue().revenue);
+            });
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.levelup.backend.service;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Contadores de stock disponibles por producto, sin bloqueos: cada SKU tiene
+ * su propio AtomicInteger y las reservas compiten solo con las del mismo
+ * producto. Es una barrera rápida delante de la base de datos; la fuente de
+ * verdad sigue siendo el UPDATE condicional sobre products.stock.
+ */
+public class StockCounters {
+
+    private final ConcurrentHashMap<Integer, AtomicInteger> counters = new ConcurrentHashMap<>();
+    private final IntUnaryOperator loader;
+
+    // loader obtiene el stock actual de un producto cuando aún no tiene contador
+    public StockCounters(IntUnaryOperator loader) {
+        this.loader = loader;
+    }
+
+    // Descuenta quantity si hay suficiente; nunca deja el contador negativo
+    public boolean tryAcquire(int productId, int quantity) {
+        AtomicInteger counter = counter(productId);
+        while (true) {
+            int current = counter.get();
+            if (current < quantity) {
+                return false;
+            }
+            if (counter.compareAndSet(current, current - quantity)) {
+                return true;
+            }
+        }
+    }
+
+    public int release(int productId, int quantity) {
+        AtomicInteger counter = counters.get(productId);
+        return counter != null ? counter.addAndGet(quantity) : -1;
+    }
+
+    public int available(int productId) {
+        return counter(productId).get();
+    }
+
+    // Olvidar el contador para recargarlo desde la base en el próximo acceso
+    public void invalidate(int productId) {
+        counters.remove(productId);
+    }
+
+    private AtomicInteger counter(int productId) {
+        return counters.computeIfAbsent(productId, id -> new AtomicInteger(Math.max(loader.applyAsInt(id), 0)));
+    }
+}
@@ -0,0 +1,253 @@
+package com.levelup.backend.service;
+
+import com.levelup.backend.dto.ProductDTO;
+import com.levelup.backend.dto.StockReservationDTO;
+import com.levelup.backend.event.ProductsChangedEvent;
+import com.levelup.backend.event.ProductsImportedEvent;
+import com.levelup.backend.model.StockReservation;
+import com.levelup.backend.repository.ProductRepository;
+import com.levelup.backend.repository.StockReservationRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reservas de stock por producto. Reservar descuenta products.stock con un
+ * UPDATE condicional (stock >= cantidad), de modo que nunca se vende de más
+ * aunque haya varias instancias; los contadores en memoria (StockCounters)
+ * descartan sin escribir en la base las reservas que no pueden cumplirse.
+ * Como otra instancia o un cambio manual pueden devolver unidades sin pasar
+ * por este contador, ante un rechazo se recarga desde la base una vez antes
+ * de responder sin stock. Confirmar deja el stock descontado; liberar o
+ * expirar lo devuelve.
+ *
+ * Cada cambio confirmado marca el producto, y cada
+ * levelup.stock.publish-interval-ms se publica un solo ProductsChangedEvent
+ * (stockOnly) con todos los productos marcados, así catálogo, búsqueda,
+ * facetas y outbox reciben todos los cambios de stock sin un evento por
+ * reserva. Entre publicaciones el stock que muestran puede ir atrasado a lo
+ * sumo ese intervalo.
+ */
+@Service
+public class StockReservationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockReservationService.class);
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private StockReservationRepository stockReservationRepository;
+
+    @Autowired
+    private ProductQueryService productQueryService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${levelup.stock.reservation-ttl-seconds:600}")
+    private int defaultTtlSeconds;
+
+    @Value("${levelup.stock.max-reservation-ttl-seconds:3600}")
+    private int maxTtlSeconds;
+
+    @Value("${levelup.stock.expire-batch-size:500}")
+    private int expireBatchSize;
+
+    private StockCounters counters;
+
+    // Productos con cambios de stock aún no publicados
+    private final Set<Integer> changed = ConcurrentHashMap.newKeySet();
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        counters = new StockCounters(productId -> {
+            Integer stock = productRepository.findStockById(productId);
+            return stock != null ? stock : 0;
+        });
+    }
+
+    public int available(Integer productId) {
+        return counters.available(productId);
+    }
+
+    public StockReservationDTO reserve(Integer productId, int quantity, Integer ttlSeconds) {
+        if (productId == null || quantity <= 0) {
+            throw new IllegalArgumentException("Se requiere un producto y una cantidad positiva");
+        }
+        if (!counters.tryAcquire(productId, quantity)) {
+            // El contador puede ir por debajo de la base (unidades devueltas o repuestas en otra instancia)
+            counters.invalidate(productId);
+            if (!counters.tryAcquire(productId, quantity)) {
+                throw new InsufficientStockException(productId);
+            }
+        }
+
+        int ttl = ttlSeconds == null || ttlSeconds <= 0 ? defaultTtlSeconds : Math.min(ttlSeconds, maxTtlSeconds);
+        StockReservation reservation;
+        try {
+            reservation = transactionTemplate.execute(status -> {
+                if (productRepository.decrementStock(productId, quantity) == 0) {
+                    return null;
+                }
+                return stockReservationRepository.save(
+                        new StockReservation(productId, quantity, LocalDateTime.now().plusSeconds(ttl)));
+            });
+        } catch (RuntimeException e) {
+            counters.release(productId, quantity);
+            throw e;
+        }
+
+        if (reservation == null) {
+            // La base tiene menos stock que el contador (otra instancia o un cambio manual): se recarga
+            counters.invalidate(productId);
+            throw new InsufficientStockException(productId);
+        }
+        changed.add(productId);
+        return toDTO(reservation);
+    }
+
+    // Confirmar una reserva vigente; el stock queda descontado definitivamente
+    public Optional<StockReservationDTO> confirm(Long reservationId) {
+        return transactionTemplate.execute(status -> {
+            Optional<StockReservation> reservation = stockReservationRepository.findById(reservationId);
+            if (reservation.isEmpty()) {
+                return Optional.empty();
+            }
+            if (stockReservationRepository.confirm(reservationId, LocalDateTime.now()) == 0) {
+                throw new IllegalStateException("La reserva " + reservationId + " no está vigente");
+            }
+            StockReservation confirmed = reservation.get();
+            confirmed.setStatus(StockReservation.CONFIRMED);
+            return Optional.of(toDTO(confirmed));
+        });
+    }
+
+    // Liberar una reserva y devolver sus unidades
+    public boolean release(Long reservationId) {
+        StockReservation reservation = stockReservationRepository.findById(reservationId).orElse(null);
+        if (reservation == null) {
+            return false;
+        }
+        Boolean released = transactionTemplate.execute(status -> returnUnits(reservation, StockReservation.RELEASED));
+        if (Boolean.TRUE.equals(released)) {
+            afterUnitsReturned(reservation);
+            return true;
+        }
+        throw new IllegalStateException("La reserva " + reservationId + " ya no está activa");
+    }
+
+    // Expirar en bloques acotados las reservas cuyo TTL venció
+    @Scheduled(fixedDelayString = "${levelup.stock.expire-interval-ms:5000}")
+    public void expireReservations() {
+        while (true) {
+            List<StockReservation> expired = stockReservationRepository.findByStatusAndExpiresAtBeforeOrderByExpiresAt(
+                    StockReservation.RESERVED, LocalDateTime.now(), Limit.of(expireBatchSize));
+            if (expired.isEmpty()) {
+                return;
+            }
+            List<StockReservation> returned = transactionTemplate.execute(status -> {
+                List<StockReservation> done = new ArrayList<>();
+                for (StockReservation reservation : expired) {
+                    if (returnUnits(reservation, StockReservation.EXPIRED)) {
+                        done.add(reservation);
+                    }
+                }
+                return done;
+            });
+            returned.forEach(this::afterUnitsReturned);
+            logger.debug("Reservas de stock expiradas: {}", returned.size());
+            if (expired.size() < expireBatchSize) {
+                return;
+            }
+        }
+    }
+
+    // Publicar en un solo evento los productos cuyo stock cambió desde la última vez
+    @Scheduled(fixedDelayString = "${levelup.stock.publish-interval-ms:1000}")
+    public void publishStockChanges() {
+        if (changed.isEmpty()) {
+            return;
+        }
+        List<Integer> ids = new ArrayList<>(changed);
+        changed.removeAll(ids);
+        try {
+            // En una transacción para que el outbox escriba sus filas junto con la lectura
+            transactionTemplate.executeWithoutResult(status ->
+                    eventPublisher.publishEvent(ProductsChangedEvent.stock(productQueryService.findByIds(ids))));
+        } catch (RuntimeException e) {
+            logger.warn("No se pudieron publicar cambios de stock: {}", e.getMessage());
+            changed.addAll(ids);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        publishStockChanges();
+    }
+
+    // Un cambio externo del producto (edición o importación) recarga su contador
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductsChanged(ProductsChangedEvent event) {
+        if (event.stockOnly()) {
+            return;
+        }
+        for (ProductDTO product : event.products()) {
+            counters.invalidate(product.getId());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductsImported(ProductsImportedEvent event) {
+        for (ProductDTO product : event.products()) {
+            counters.invalidate(product.getId());
+        }
+    }
+
+    private boolean returnUnits(StockReservation reservation, String finalStatus) {
+        if (stockReservationRepository.transition(reservation.getId(), StockReservation.RESERVED, finalStatus) == 0) {
+            return false;
+        }
+        productRepository.incrementStock(reservation.getProductId(), reservation.getQuantity());
+        reservation.setStatus(finalStatus);
+        return true;
+    }
+
+    private void afterUnitsReturned(StockReservation reservation) {
+        counters.release(reservation.getProductId(), reservation.getQuantity());
+        changed.add(reservation.getProductId());
+    }
+
+    private StockReservationDTO toDTO(StockReservation reservation) {
+        return new StockReservationDTO(
+                reservation.getId(),
+                reservation.getProductId(),
+                reservation.getQuantity(),
+                reservation.getStatus(),
+                reservation.getExpiresAt(),
+                reservation.getCreatedAt()
+        );
+    }
+}
@@ -0,0 +1,134 @@
+package com.levelup.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CheckoutQueueTests {
+
+    @Test
+    void rejectsWhenQueueIsFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CheckoutQueue<Integer, Integer> queue = new CheckoutQueue<>(2, 1, request -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return request;
+        });
+
+        CheckoutQueue.Ticket<Integer, Integer> first = queue.submit(1);
+        assertNotNull(first);
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!CheckoutQueue.PROCESSING.equals(first.getStatus()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertNotNull(queue.submit(2));
+        assertNotNull(queue.submit(3));
+        assertNull(queue.submit(4));
+        assertEquals(1, queue.stats().rejected());
+
+        release.countDown();
+        while (!first.isDone() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(CheckoutQueue.COMPLETED, first.getStatus());
+        assertEquals(1, first.getResult());
+        queue.shutdown(5_000);
+    }
+
+    @Test
+    void shutdownProcessesAcceptedTicketsAndRejectsNewOnes() {
+        CheckoutQueue<Integer, Integer> queue = new CheckoutQueue<>(100, 2, request -> {
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (request < 0) {
+                throw new IllegalArgumentException("Pedido inválido " + request);
+            }
+            return request;
+        });
+        List<CheckoutQueue.Ticket<Integer, Integer>> tickets = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            tickets.add(queue.submit(i));
+        }
+        CheckoutQueue.Ticket<Integer, Integer> invalid = queue.submit(-1);
+
+        assertEquals(0, queue.shutdown(5_000));
+        assertNull(queue.submit(21));
+        for (CheckoutQueue.Ticket<Integer, Integer> ticket : tickets) {
+            assertEquals(CheckoutQueue.COMPLETED, ticket.getStatus());
+        }
+        assertEquals(CheckoutQueue.FAILED, invalid.getStatus());
+        assertEquals(CheckoutQueue.ERROR_INVALID_REQUEST, invalid.getError());
+    }
+
+    // Carga sintética: muchos productores contra una cola con pocos workers que simulan 2 ms de base
+    @Test
+    void syntheticLoadAccountsForEveryTicket() throws Exception {
+        int producers = 200;
+        int ordersPerProducer = 50;
+        CheckoutQueue<Integer, Integer> queue = new CheckoutQueue<>(500, 8, request -> {
+            try {
+                Thread.sleep(2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return request;
+        });
+        AtomicInteger rejected = new AtomicInteger();
+        List<CheckoutQueue.Ticket<Integer, Integer>> tickets = new ArrayList<>();
+
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        List<Future<List<CheckoutQueue.Ticket<Integer, Integer>>>> futures = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            futures.add(executor.submit(() -> {
+                List<CheckoutQueue.Ticket<Integer, Integer>> accepted = new ArrayList<>();
+                for (int i = 0; i < ordersPerProducer; i++) {
+                    CheckoutQueue.Ticket<Integer, Integer> ticket = queue.submit(i);
+                    if (ticket == null) {
+                        rejected.incrementAndGet();
+                        Thread.sleep(5);
+                    } else {
+                        accepted.add(ticket);
+                    }
+                }
+                return accepted;
+            }));
+        }
+        for (Future<List<CheckoutQueue.Ticket<Integer, Integer>>> future : futures) {
+            tickets.addAll(future.get(60, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+        for (CheckoutQueue.Ticket<Integer, Integer> ticket : tickets) {
+            while (!ticket.isDone()) {
+                Thread.sleep(1);
+            }
+        }
+
+        CheckoutQueue.Stats stats = queue.stats();
+
+        assertEquals(tickets.size(), stats.completed());
+        assertEquals(rejected.get(), stats.rejected());
+        assertEquals(producers * ordersPerProducer, stats.accepted() + stats.rejected());
+        // Cada orden pasa al menos por los 2 ms simulados de base
+        assertTrue(stats.p50Millis() >= 2.0);
+        assertTrue(stats.p99Millis() >= stats.p50Millis());
+        queue.shutdown(5_000);
+    }
+}
@@ -0,0 +1,180 @@
+package com.levelup.backend.service;
+
+import com.levelup.backend.model.Category;
+import com.levelup.backend.repository.CategoryRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Claves contra la base real y sin transacción en la prueba, como en los endpoints (NOT_SUPPORTED)
+@SpringBootTest
+class IdempotencyServiceTests {
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final String scope = "prueba-" + UUID.randomUUID();
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM idempotency_keys WHERE id LIKE ?", scope + ":%");
+        jdbcTemplate.update("DELETE FROM categories WHERE name LIKE ?", scope + "%");
+    }
+
+    @Test
+    void replaysStoredResponseWithoutRunningTheActionAgain() {
+        AtomicInteger runs = new AtomicInteger();
+
+        ResponseEntity<String> first = idempotencyService.execute(scope, "k1", Map.of("a", 1), String.class,
+                () -> ResponseEntity.ok("orden-" + runs.incrementAndGet()));
+        ResponseEntity<String> second = idempotencyService.execute(scope, "k1", Map.of("a", 1), String.class,
+                () -> ResponseEntity.ok("orden-" + runs.incrementAndGet()));
+
+        assertEquals(1, runs.get());
+        assertEquals("orden-1", first.getBody());
+        assertNull(first.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        assertEquals("orden-1", second.getBody());
+        assertEquals("true", second.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        assertEquals("completed", status("k1"));
+    }
+
+    @Test
+    void sameKeyWithDifferentBodyIsRejected() {
+        idempotencyService.execute(scope, "k1", Map.of("a", 1), String.class, () -> ResponseEntity.ok("uno"));
+
+        IdempotencyConflictException conflict = assertThrows(IdempotencyConflictException.class, () ->
+                idempotencyService.execute(scope, "k1", Map.of("a", 2), String.class, () -> ResponseEntity.ok("dos")));
+        assertFalse(conflict.isInProgress());
+    }
+
+    @Test
+    void concurrentDuplicateWaitsForTheFirstAndReplaysIt() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch proceed = new CountDownLatch(1);
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            Future<ResponseEntity<String>> first = executor.submit(() ->
+                    idempotencyService.execute(scope, "k1", "cuerpo", String.class, () -> {
+                        started.countDown();
+                        await(proceed);
+                        return ResponseEntity.ok("orden-" + runs.incrementAndGet());
+                    }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<ResponseEntity<String>> duplicate = executor.submit(() ->
+                    idempotencyService.execute(scope, "k1", "cuerpo", String.class,
+                            () -> ResponseEntity.ok("orden-" + runs.incrementAndGet())));
+            Thread.sleep(100);
+            assertFalse(duplicate.isDone());
+
+            proceed.countDown();
+            assertEquals("orden-1", first.get(5, TimeUnit.SECONDS).getBody());
+            ResponseEntity<String> replayed = duplicate.get(5, TimeUnit.SECONDS);
+            assertEquals("orden-1", replayed.getBody());
+            assertEquals("true", replayed.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+            assertEquals(1, runs.get());
+        } finally {
+            proceed.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void abandonedClaimIsTakenOver() {
+        LocalDateTime longAgo = LocalDateTime.now().minusHours(1);
+        jdbcTemplate.update("INSERT INTO idempotency_keys (id, request_hash, status, created_at, expires_at, claim_token) "
+                        + "VALUES (?, 'otro', 'in_progress', ?, ?, 'nodo-caido')",
+                scope + ":k1", Timestamp.valueOf(longAgo), Timestamp.valueOf(longAgo.plusHours(24)));
+
+        ResponseEntity<String> response = idempotencyService.execute(scope, "k1", "cuerpo", String.class,
+                () -> ResponseEntity.ok("tomada"));
+
+        assertEquals("tomada", response.getBody());
+        assertNull(response.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        assertEquals("completed", status("k1"));
+    }
+
+    @Test
+    void slowOwnerWhoseClaimWasTakenRollsBackItsWrite() {
+        String name = scope + "-lenta";
+
+        IdempotencyConflictException conflict = assertThrows(IdempotencyConflictException.class, () ->
+                idempotencyService.execute(scope, "k1", "cuerpo", String.class, () -> {
+                    categoryRepository.save(new Category(name));
+                    // Otro nodo la dio por abandonada y la reclamó con su propio token
+                    jdbcTemplate.update("UPDATE idempotency_keys SET claim_token = 'otro-nodo' WHERE id = ?",
+                            scope + ":k1");
+                    return ResponseEntity.ok("lenta");
+                }));
+
+        assertTrue(conflict.isInProgress());
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM categories WHERE name = ?",
+                Integer.class, name));
+    }
+
+    @Test
+    void serverErrorsAndExceptionsReleaseTheKey() {
+        AtomicInteger runs = new AtomicInteger();
+
+        ResponseEntity<String> unavailable = idempotencyService.execute(scope, "k1", "cuerpo", String.class, () -> {
+            runs.incrementAndGet();
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        });
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, unavailable.getStatusCode());
+        assertNull(status("k1"));
+
+        assertThrows(IllegalArgumentException.class, () ->
+                idempotencyService.execute(scope, "k1", "cuerpo", String.class, () -> {
+                    runs.incrementAndGet();
+                    throw new IllegalArgumentException("Pedido inválido");
+                }));
+        assertNull(status("k1"));
+
+        ResponseEntity<String> ok = idempotencyService.execute(scope, "k1", "cuerpo", String.class, () -> {
+            runs.incrementAndGet();
+            return ResponseEntity.ok("listo");
+        });
+        assertEquals("listo", ok.getBody());
+        assertEquals(3, runs.get());
+    }
+
+    private String status(String key) {
+        return jdbcTemplate.query("SELECT status FROM idempotency_keys WHERE id = ?",
+                rs -> rs.next() ? rs.getString(1) : null, scope + ":" + key);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
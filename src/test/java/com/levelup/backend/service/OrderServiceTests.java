@@ -0,0 +1,161 @@
+package com.levelup.backend.service;
+
+import com.levelup.backend.dto.CreateOrderRequest;
+import com.levelup.backend.dto.OrderDTO;
+import com.levelup.backend.dto.OrderItemRequest;
+import com.levelup.backend.model.Cart;
+import com.levelup.backend.model.Category;
+import com.levelup.backend.model.Product;
+import com.levelup.backend.model.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Mide sentencias (contador "Questions" de la sesión MySQL) y latencia al crear órdenes de distinto tamaño
+@SpringBootTest
+@Transactional
+class OrderServiceTests {
+
+    private static final int[] ITEM_COUNTS = { 1, 10, 30, 100 };
+    private static final int ROUNDS = 5;
+    private static final double LATENCY_FACTOR = 5.0;
+    private static final double MIN_BASELINE_MILLIS = 5.0;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Test
+    void statementCountDoesNotGrowWithItemCount() {
+        String suffix = UUID.randomUUID().toString();
+        User user = new User("Cliente", "orden-" + suffix + "@test.cl", "clave");
+        entityManager.persist(user);
+        Category category = new Category("ordenes-" + suffix);
+        entityManager.persist(category);
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Product product = new Product("Producto " + i, "Descripción " + i, 1000.0 + i, "CLP");
+            product.setImage("test.png");
+            product.setStock(10);
+            product.setCategory(category);
+            entityManager.persist(product);
+            products.add(product);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        long[] statements = new long[ITEM_COUNTS.length];
+        double[] medianMillis = new double[ITEM_COUNTS.length];
+        for (int c = 0; c < ITEM_COUNTS.length; c++) {
+            CreateOrderRequest request = request(user.getId(), products, ITEM_COUNTS[c]);
+
+            long before = questions();
+            OrderDTO order = orderService.createOrder(request);
+            statements[c] = questions() - before;
+            assertNotNull(order.getId());
+            assertEquals(ITEM_COUNTS[c], order.getItems().size());
+            assertNotNull(order.getItems().get(ITEM_COUNTS[c] - 1).getId());
+
+            // Repetir la misma orden no debe cambiar la cantidad de sentencias
+            long[] rounds = new long[ROUNDS];
+            for (int r = 0; r < ROUNDS; r++) {
+                long roundBefore = questions();
+                long start = System.nanoTime();
+                orderService.createOrder(request);
+                rounds[r] = System.nanoTime() - start;
+                assertEquals(statements[c], questions() - roundBefore);
+            }
+            Arrays.sort(rounds);
+            medianMillis[c] = rounds[ROUNDS / 2] / 1_000_000.0;
+            entityManager.clear();
+        }
+
+        for (long count : statements) {
+            assertEquals(statements[0], count);
+        }
+        // Con sentencias constantes la latencia tampoco debe escalar con los items; el margen absorbe el ruido de la máquina
+        double limit = Math.max(medianMillis[0], MIN_BASELINE_MILLIS) * LATENCY_FACTOR;
+        for (int c = 1; c < ITEM_COUNTS.length; c++) {
+            assertTrue(medianMillis[c] <= limit, "createOrder con " + ITEM_COUNTS[c] + " items tardó "
+                    + medianMillis[c] + " ms de mediana frente a " + medianMillis[0] + " ms con 1 item");
+        }
+    }
+
+    @Test
+    void checkoutStatementCountDoesNotGrowWithCartSize() {
+        String suffix = UUID.randomUUID().toString();
+        Category category = new Category("checkout-" + suffix);
+        entityManager.persist(category);
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Product product = new Product("Producto " + i, "Descripción " + i, 1000.0 + i, "CLP");
+            product.setImage("test.png");
+            product.setStock(10);
+            product.setCategory(category);
+            entityManager.persist(product);
+            products.add(product);
+        }
+
+        long[] statements = new long[ITEM_COUNTS.length];
+        for (int c = 0; c < ITEM_COUNTS.length; c++) {
+            User user = new User("Cliente", "checkout-" + c + "-" + suffix + "@test.cl", "clave");
+            entityManager.persist(user);
+            double expectedTotal = 0;
+            for (int i = 0; i < ITEM_COUNTS[c]; i++) {
+                entityManager.persist(new Cart(user, products.get(i), 2));
+                expectedTotal += products.get(i).getPrice() * 2;
+            }
+            entityManager.flush();
+            entityManager.clear();
+
+            long before = questions();
+            OrderDTO order = orderService.checkoutCart(user.getId());
+            statements[c] = questions() - before;
+
+            assertEquals(ITEM_COUNTS[c], order.getItems().size());
+            assertEquals(expectedTotal, order.getTotal(), 0.001);
+            assertEquals(0L, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM cart WHERE user_id = ?",
+                    Long.class, user.getId()));
+            entityManager.clear();
+        }
+
+        for (long count : statements) {
+            assertEquals(statements[0], count);
+        }
+    }
+
+    private CreateOrderRequest request(Integer userId, List<Product> products, int items) {
+        List<OrderItemRequest> itemRequests = new ArrayList<>();
+        double total = 0;
+        for (int i = 0; i < items; i++) {
+            Product product = products.get(i);
+            itemRequests.add(new OrderItemRequest(product.getId().longValue(), 1, product.getPrice()));
+            total += product.getPrice();
+        }
+        return new CreateOrderRequest(userId, "pending", total, itemRequests);
+    }
+
+    // Sentencias enviadas por la conexión actual (la misma de la transacción de la prueba)
+    private long questions() {
+        return jdbcTemplate.queryForObject("SHOW SESSION STATUS LIKE 'Questions'",
+                (rs, rowNum) -> rs.getLong(2));
+    }
+}
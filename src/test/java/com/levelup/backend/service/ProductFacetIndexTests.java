@@ -0,0 +1,156 @@
+package com.levelup.backend.service;
+
+import com.levelup.backend.dto.ProductDTO;
+import com.levelup.backend.dto.TagDTO;
+import com.levelup.backend.event.CategoryChangedEvent;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ProductFacetIndexTests {
+
+    private static final double[] PRICE_BOUNDS = { 0, 5000, 10000, 25000, 50000 };
+
+    @Test
+    void combinesCategoryAndAllTagsFilters() {
+        ProductFacetIndex index = catalog();
+
+        ProductFacetIndex.Result result = index.filter(
+                new ProductFacetIndex.Filter(List.of(1, 2), List.of(10, 11), true, null, null, null, null), 0, 10);
+
+        assertEquals(List.of(1, 4), result.ids());
+        assertEquals(2, result.total());
+        assertEquals(Map.of("1", 1, "2", 1), result.facets().get("category"));
+        assertEquals(Map.of("10", 2, "11", 2), result.facets().get("tag"));
+        assertEquals(Map.of("true", 2, "false", 0), result.facets().get("inStock"));
+        assertEquals(Map.of("true", 0, "false", 2), result.facets().get("discontinued"));
+    }
+
+    @Test
+    void anyTagWithFlagsAndPriceCountsEachFacet() {
+        ProductFacetIndex index = catalog();
+
+        ProductFacetIndex.Result result = index.filter(
+                new ProductFacetIndex.Filter(null, List.of(10, 11), false, 10000.0, null, true, null), 0, 10);
+
+        assertEquals(List.of(3, 4), result.ids());
+        assertEquals(Map.of("10000-25000", 1, "25000-50000", 1), result.facets().get("price"));
+        assertEquals(Map.of("2", 2), result.facets().get("category"));
+        assertEquals(Map.of("10", 1, "11", 2), result.facets().get("tag"));
+        assertEquals(Map.of("true", 1, "false", 1), result.facets().get("discontinued"));
+
+        ProductFacetIndex.Result active = index.filter(
+                new ProductFacetIndex.Filter(null, List.of(10, 11), false, 10000.0, null, true, false), 0, 10);
+        assertEquals(List.of(4), active.ids());
+    }
+
+    @Test
+    void priceRangeChecksPartialBucketsByPrice() {
+        ProductFacetIndex index = catalog();
+
+        ProductFacetIndex.Result result = index.filter(
+                new ProductFacetIndex.Filter(null, null, false, 4000.0, 12000.0, null, null), 0, 10);
+
+        assertEquals(List.of(2, 3, 5), result.ids());
+        assertEquals(Map.of("5000-10000", 2, "10000-25000", 1), result.facets().get("price"));
+    }
+
+    @Test
+    void pagesOverTheWholeIntersection() {
+        ProductFacetIndex index = catalog();
+
+        ProductFacetIndex.Result result = index.filter(
+                new ProductFacetIndex.Filter(null, null, false, null, null, null, null), 1, 2);
+
+        assertEquals(List.of(2, 3), result.ids());
+        assertEquals(5, result.total());
+        assertEquals(Map.of("1", 2, "2", 2, "3", 1), result.facets().get("category"));
+    }
+
+    @Test
+    void reindexingMovesProductBetweenFacets() {
+        ProductFacetIndex index = catalog();
+
+        index.index(List.of(product(2, 3, 7000, 4, false)));
+
+        ProductFacetIndex.Result first = index.filter(
+                new ProductFacetIndex.Filter(List.of(1), null, false, null, null, null, null), 0, 10);
+        assertEquals(List.of(1), first.ids());
+        ProductFacetIndex.Result third = index.filter(
+                new ProductFacetIndex.Filter(List.of(3), List.of(10), false, null, null, true, null), 0, 10);
+        assertEquals(List.of(), third.ids());
+        ProductFacetIndex.Result inStock = index.filter(
+                new ProductFacetIndex.Filter(List.of(3), null, false, null, null, true, null), 0, 10);
+        assertEquals(List.of(2, 5), inStock.ids());
+        assertEquals(Map.of("10", 1, "11", 1), first.facets().get("tag"));
+    }
+
+    @Test
+    void productsOfDeletedCategoryLeaveEveryFacet() {
+        ProductFacetIndex index = catalog();
+
+        index.onCategoryChanged(new CategoryChangedEvent(2, null, List.of(3, 4)));
+
+        ProductFacetIndex.Result result = index.filter(
+                new ProductFacetIndex.Filter(null, null, false, null, null, null, null), 0, 10);
+        assertEquals(List.of(1, 2, 5), result.ids());
+        assertEquals(Map.of("1", 2, "3", 1), result.facets().get("category"));
+        assertEquals(Map.of("10", 2, "11", 1), result.facets().get("tag"));
+        assertEquals(Map.of("true", 0, "false", 3), result.facets().get("discontinued"));
+    }
+
+    @Test
+    void changesReceivedDuringLoadWinOverTheRowsBeingRead() {
+        ProductFacetIndex index = newIndex();
+        ProductDTO stale = product(1, 1, 3000, 5, false, 10);
+        ProductDTO fresh = product(1, 2, 3000, 0, false, 11);
+        ReflectionTestUtils.setField(index, "productQueryService", new ProductQueryService() {
+            @Override
+            public List<ProductDTO> findAll() {
+                // Un cambio que se confirma mientras la carga todavía está leyendo
+                index.index(List.of(fresh));
+                return List.of(stale);
+            }
+        });
+
+        index.load();
+
+        ProductFacetIndex.Result result = index.filter(
+                new ProductFacetIndex.Filter(null, null, false, null, null, null, null), 0, 10);
+        assertEquals(List.of(1), result.ids());
+        assertEquals(Map.of("2", 1), result.facets().get("category"));
+        assertEquals(Map.of("11", 1), result.facets().get("tag"));
+        assertEquals(Map.of("true", 0, "false", 1), result.facets().get("inStock"));
+    }
+
+    // 1 y 2 en la categoría 1, 3 y 4 en la 2, 5 en la 3; etiquetas 10 y 11
+    private static ProductFacetIndex catalog() {
+        ProductFacetIndex index = newIndex();
+        index.index(List.of(
+                product(1, 1, 3000, 5, false, 10, 11),
+                product(2, 1, 7000, 0, false, 10),
+                product(3, 2, 12000, 2, true, 11),
+                product(4, 2, 30000, 1, false, 10, 11),
+                product(5, 3, 5000, 3, false)));
+        return index;
+    }
+
+    private static ProductFacetIndex newIndex() {
+        ProductFacetIndex index = new ProductFacetIndex();
+        ReflectionTestUtils.setField(index, "priceBounds", PRICE_BOUNDS.clone());
+        index.init();
+        return index;
+    }
+
+    private static ProductDTO product(int id, int categoryId, double price, int stock, boolean discontinued,
+                                      Integer... tagIds) {
+        List<TagDTO> tags = Arrays.stream(tagIds).map(tagId -> new TagDTO(tagId, "tag-" + tagId)).toList();
+        return new ProductDTO(id, "Producto " + id, null, price, "CLP", categoryId, stock, null, discontinued,
+                null, null, tags);
+    }
+}
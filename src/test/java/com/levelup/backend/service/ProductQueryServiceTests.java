@@ -0,0 +1,76 @@
+package com.levelup.backend.service;
+
+import com.levelup.backend.dto.ProductDTO;
+import com.levelup.backend.model.Category;
+import com.levelup.backend.model.Product;
+import com.levelup.backend.model.Tag;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional
+class ProductQueryServiceTests {
+
+    @Autowired
+    private ProductQueryService productQueryService;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Test
+    void listingUsesSameStatementCountRegardlessOfSize() {
+        String suffix = UUID.randomUUID().toString();
+        Tag first = new Tag("tag-a-" + suffix);
+        Tag second = new Tag("tag-b-" + suffix);
+        entityManager.persist(first);
+        entityManager.persist(second);
+
+        Category small = createCategory("small-" + suffix, 3, first, second);
+        Category large = createCategory("large-" + suffix, 40, first, second);
+        entityManager.flush();
+        entityManager.clear();
+
+        Statistics statistics = entityManager.getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+
+        statistics.clear();
+        List<ProductDTO> smallList = productQueryService.findByCategory(small.getId());
+        long smallStatements = statistics.getPrepareStatementCount();
+
+        statistics.clear();
+        List<ProductDTO> largeList = productQueryService.findByCategory(large.getId());
+        long largeStatements = statistics.getPrepareStatementCount();
+
+        assertEquals(3, smallList.size());
+        assertEquals(40, largeList.size());
+        assertEquals(2, largeList.get(0).getTags().size());
+        assertEquals(2, smallStatements);
+        assertEquals(smallStatements, largeStatements);
+    }
+
+    private Category createCategory(String name, int products, Tag... tags) {
+        Category category = new Category(name);
+        entityManager.persist(category);
+        for (int i = 0; i < products; i++) {
+            Product product = new Product("Producto " + i, "Descripción " + i, 1000.0 + i, "CLP");
+            product.setImage("test.png");
+            product.setStock(10);
+            product.setCategory(category);
+            product.setTags(new ArrayList<>(List.of(tags)));
+            entityManager.persist(product);
+        }
+        return category;
+    }
+}
@@ -0,0 +1,93 @@
+package com.levelup.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StockCountersTests {
+
+    @Test
+    void concurrentReservationsOnHotProductNeverOversell() throws Exception {
+        int stock = 1_000;
+        int threads = 64;
+        int attemptsPerThread = 200;
+        StockCounters counters = new StockCounters(productId -> stock);
+        AtomicInteger acquired = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < attemptsPerThread; i++) {
+                    if (counters.tryAcquire(1, 1)) {
+                        acquired.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(stock, acquired.get());
+        assertEquals(0, counters.available(1));
+    }
+
+    @Test
+    void concurrentReserveAndReleaseKeepCounterConsistent() throws Exception {
+        int stock = 50;
+        int threads = 32;
+        int cyclesPerThread = 2_000;
+        StockCounters counters = new StockCounters(productId -> stock);
+        AtomicInteger minimumSeen = new AtomicInteger(Integer.MAX_VALUE);
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < cyclesPerThread; i++) {
+                    if (counters.tryAcquire(7, 3)) {
+                        minimumSeen.accumulateAndGet(counters.available(7), Math::min);
+                        counters.release(7, 3);
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(stock, counters.available(7));
+        assertTrue(minimumSeen.get() >= 0);
+    }
+
+    @Test
+    void productsDoNotShareCounters() {
+        StockCounters counters = new StockCounters(productId -> productId * 10);
+        assertTrue(counters.tryAcquire(1, 10));
+        assertTrue(counters.tryAcquire(2, 20));
+        assertEquals(0, counters.available(1));
+        assertEquals(0, counters.available(2));
+        assertEquals(30, counters.available(3));
+    }
+}
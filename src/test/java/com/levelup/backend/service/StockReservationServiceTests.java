@@ -0,0 +1,174 @@
+package com.levelup.backend.service;
+
+import com.levelup.backend.dto.StockReservationDTO;
+import com.levelup.backend.model.Category;
+import com.levelup.backend.model.Product;
+import com.levelup.backend.model.StockReservation;
+import com.levelup.backend.repository.CategoryRepository;
+import com.levelup.backend.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Reservas contra la base real: el servicio confirma sus propias transacciones, así que la prueba limpia al final
+@SpringBootTest
+class StockReservationServiceTests {
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Category category;
+    private Product product;
+
+    @BeforeEach
+    void createProduct() {
+        category = categoryRepository.save(new Category("reservas-" + UUID.randomUUID()));
+        product = new Product("Producto reservable", "Descripción", 1000.0, "CLP");
+        product.setImage("test.png");
+        product.setStock(5);
+        product.setCategory(category);
+        product = productRepository.save(product);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM stock_reservations WHERE product_id = ?", product.getId());
+        productRepository.deleteById(product.getId());
+        categoryRepository.deleteById(category.getId());
+    }
+
+    @Test
+    void reserveAndReleaseMoveDatabaseStock() {
+        StockReservationDTO reservation = stockReservationService.reserve(product.getId(), 3, null);
+        assertEquals(StockReservation.RESERVED, reservation.getStatus());
+        assertEquals(2, stock());
+        assertEquals(2, stockReservationService.available(product.getId()));
+
+        assertThrows(InsufficientStockException.class,
+                () -> stockReservationService.reserve(product.getId(), 3, null));
+        assertEquals(2, stock());
+
+        assertTrue(stockReservationService.release(reservation.getId()));
+        assertEquals(5, stock());
+        assertEquals(5, stockReservationService.available(product.getId()));
+        assertThrows(IllegalStateException.class, () -> stockReservationService.release(reservation.getId()));
+        assertEquals(5, stock());
+    }
+
+    @Test
+    void expireReservationsReturnsUnitsOnce() {
+        StockReservationDTO reservation = stockReservationService.reserve(product.getId(), 4, null);
+        assertEquals(1, stock());
+        jdbcTemplate.update("UPDATE stock_reservations SET expires_at = NOW() - INTERVAL 1 MINUTE WHERE id = ?",
+                reservation.getId());
+
+        stockReservationService.expireReservations();
+        stockReservationService.expireReservations();
+
+        assertEquals(5, stock());
+        assertEquals(5, stockReservationService.available(product.getId()));
+        assertEquals(StockReservation.EXPIRED, jdbcTemplate.queryForObject(
+                "SELECT status FROM stock_reservations WHERE id = ?", String.class, reservation.getId()));
+    }
+
+    @Test
+    void counterIsReloadedWhenDatabaseHasLessStock() {
+        assertEquals(5, stockReservationService.available(product.getId()));
+        // Otra instancia vendió sin pasar por este contador
+        jdbcTemplate.update("UPDATE products SET stock = 1 WHERE id = ?", product.getId());
+
+        assertThrows(InsufficientStockException.class,
+                () -> stockReservationService.reserve(product.getId(), 2, null));
+        assertEquals(1, stock());
+        assertEquals(1, stockReservationService.available(product.getId()));
+
+        stockReservationService.reserve(product.getId(), 1, null);
+        assertEquals(0, stock());
+        assertThrows(InsufficientStockException.class,
+                () -> stockReservationService.reserve(product.getId(), 1, null));
+    }
+
+    @Test
+    void counterIsReloadedWhenDatabaseHasMoreStock() {
+        stockReservationService.reserve(product.getId(), 5, null);
+        assertEquals(0, stockReservationService.available(product.getId()));
+        // Otra instancia devolvió unidades (o se repuso a mano) sin pasar por este contador
+        jdbcTemplate.update("UPDATE products SET stock = 3 WHERE id = ?", product.getId());
+
+        StockReservationDTO reservation = stockReservationService.reserve(product.getId(), 3, null);
+        assertEquals(StockReservation.RESERVED, reservation.getStatus());
+        assertEquals(0, stock());
+        assertThrows(InsufficientStockException.class,
+                () -> stockReservationService.reserve(product.getId(), 1, null));
+    }
+
+    @Test
+    void concurrentReservationsNeverOversellTheDatabase() throws Exception {
+        jdbcTemplate.update("UPDATE products SET stock = 20 WHERE id = ?", product.getId());
+        assertEquals(20, stockReservationService.available(product.getId()));
+        // La base queda por debajo del contador: el UPDATE condicional es el que decide
+        jdbcTemplate.update("UPDATE products SET stock = 12 WHERE id = ?", product.getId());
+
+        int threads = 16;
+        int attemptsPerThread = 5;
+        AtomicInteger reserved = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < attemptsPerThread; i++) {
+                    try {
+                        stockReservationService.reserve(product.getId(), 1, null);
+                        reserved.incrementAndGet();
+                    } catch (InsufficientStockException e) {
+                        // Sin stock: se sigue intentando
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(12, reserved.get());
+        assertEquals(0, stock());
+        assertEquals(12, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM stock_reservations WHERE product_id = ? AND status = ?",
+                Integer.class, product.getId(), StockReservation.RESERVED));
+    }
+
+    private int stock() {
+        return productRepository.findStockById(product.getId());
+    }
+}